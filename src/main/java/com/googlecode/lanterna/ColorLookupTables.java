@@ -0,0 +1,155 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna;
+
+import java.awt.Color;
+
+/**
+ * Precomputed nearest-color tables for downsampling 24-bit colors to the indexed 256 color palette and to the ANSI
+ * colors. The RGB color is cut down to 5 bits per channel, so each table has 32768 entries and a lookup is a single
+ * array access. The tables are built the first time they are used.
+ * @author martin
+ */
+final class ColorLookupTables {
+    private static final int[] CUBE_LEVELS = { 0x00, 0x5f, 0x87, 0xaf, 0xd7, 0xff };
+
+    private ColorLookupTables() {
+    }
+
+    /**
+     * Returns the index in the 256 color palette closest to the supplied color. Only the color cube and the grey-scale
+     * ramp are considered, since the system colors (0 - 15) look different depending on the terminal emulator.
+     * @param red Red intensity, from 0 to 255
+     * @param green Green intensity, from 0 to 255
+     * @param blue Blue intensity, from 0 to 255
+     * @return Closest color index, from 16 to 255
+     */
+    static int nearestIndexed(int red, int green, int blue) {
+        return IndexedTable.TABLE[key(red, green, blue)] & 0xff;
+    }
+
+    /**
+     * Returns the ANSI color closest to the supplied color, {@link TextColor.ANSI#DEFAULT} not included.
+     * @param red Red intensity, from 0 to 255
+     * @param green Green intensity, from 0 to 255
+     * @param blue Blue intensity, from 0 to 255
+     * @return Closest ANSI color
+     */
+    static TextColor.ANSI nearestANSI(int red, int green, int blue) {
+        return ANSITable.COLORS[ANSITable.TABLE[key(red, green, blue)]];
+    }
+
+    static void checkRGB(int red, int green, int blue) {
+        if(red < 0 || red > 255) {
+            throw new IllegalArgumentException("fromRGB: red is outside of valid range (0-255)");
+        }
+        if(green < 0 || green > 255) {
+            throw new IllegalArgumentException("fromRGB: green is outside of valid range (0-255)");
+        }
+        if(blue < 0 || blue > 255) {
+            throw new IllegalArgumentException("fromRGB: blue is outside of valid range (0-255)");
+        }
+    }
+
+    private static int key(int red, int green, int blue) {
+        return ((red >> 3) << 10) | ((green >> 3) << 5) | (blue >> 3);
+    }
+
+    // Value in the middle of the range covered by a 5-bit channel value
+    private static int expand(int fiveBits) {
+        return (fiveBits << 3) | (fiveBits >> 2);
+    }
+
+    private static int square(int value) {
+        return value * value;
+    }
+
+    private static class IndexedTable {
+        private static final byte[] TABLE = new byte[32768];
+        static {
+            for(int key = 0; key < TABLE.length; key++) {
+                TABLE[key] = (byte)findNearestIndexed(expand(key >> 10), expand((key >> 5) & 0x1f), expand(key & 0x1f));
+            }
+        }
+
+        private static int findNearestIndexed(int red, int green, int blue) {
+            // The cube is a regular grid, so the closest cube color is made up of the closest level in each channel
+            int redLevel = nearestCubeLevel(red);
+            int greenLevel = nearestCubeLevel(green);
+            int blueLevel = nearestCubeLevel(blue);
+            int cubeDistance = square(red - CUBE_LEVELS[redLevel]) +
+                    square(green - CUBE_LEVELS[greenLevel]) +
+                    square(blue - CUBE_LEVELS[blueLevel]);
+
+            // The grey-scale ramp goes from 8 to 238 in steps of 10, the closest grey is the one closest to the average
+            int greyStep = Math.max(0, Math.min(23, ((red + green + blue) / 3 - 8 + 5) / 10));
+            int grey = 8 + greyStep * 10;
+            int greyDistance = square(red - grey) + square(green - grey) + square(blue - grey);
+
+            if(greyDistance < cubeDistance) {
+                return 232 + greyStep;
+            }
+            return 16 + redLevel * 36 + greenLevel * 6 + blueLevel;
+        }
+
+        private static int nearestCubeLevel(int value) {
+            int best = 0;
+            for(int level = 1; level < CUBE_LEVELS.length; level++) {
+                if(Math.abs(value - CUBE_LEVELS[level]) < Math.abs(value - CUBE_LEVELS[best])) {
+                    best = level;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static class ANSITable {
+        private static final TextColor.ANSI[] COLORS = {
+                TextColor.ANSI.BLACK,
+                TextColor.ANSI.RED,
+                TextColor.ANSI.GREEN,
+                TextColor.ANSI.YELLOW,
+                TextColor.ANSI.BLUE,
+                TextColor.ANSI.MAGENTA,
+                TextColor.ANSI.CYAN,
+                TextColor.ANSI.WHITE
+        };
+        private static final byte[] TABLE = new byte[32768];
+        static {
+            for(int key = 0; key < TABLE.length; key++) {
+                int red = expand(key >> 10);
+                int green = expand((key >> 5) & 0x1f);
+                int blue = expand(key & 0x1f);
+                int best = 0;
+                int bestDistance = Integer.MAX_VALUE;
+                for(int i = 0; i < COLORS.length; i++) {
+                    Color color = COLORS[i].toColor();
+                    int distance = square(red - color.getRed()) +
+                            square(green - color.getGreen()) +
+                            square(blue - color.getBlue());
+                    if(distance < bestDistance) {
+                        best = i;
+                        bestDistance = distance;
+                    }
+                }
+                TABLE[key] = (byte)best;
+            }
+        }
+    }
+}
@@ -18,7 +18,6 @@
  */
 package com.googlecode.lanterna;
 
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
 
@@ -28,21 +27,40 @@ import java.util.EnumSet;
  * @author Martin
  */
 public class TextCharacter {
-    private static EnumSet<SGR> toEnumSet(SGR... modifiers) {
-        if(modifiers.length == 0) {
-            return EnumSet.noneOf(SGR.class);
-        }
-        else {
-            return EnumSet.copyOf(Arrays.asList(modifiers));
-        }
-    }
-
     public static final TextCharacter DEFAULT_CHARACTER = new TextCharacter(' ', TextColor.ANSI.DEFAULT, TextColor.ANSI.DEFAULT);
 
     private final char character;
-    private final TextColor foregroundColor;
-    private final TextColor backgroundColor;
-    private final EnumSet<SGR> modifiers;  //This isn't immutable, but we should treat it as such and not expose it!
+    private final TextStyle style;
+
+    /**
+     * Returns a {@code TextCharacter} for a character and a style. Characters in the printable ASCII range are cached
+     * by the style, so calling this method repeatedly with the same arguments will return the same object instead of
+     * creating a new one each time.
+     * @param character Physical character to use
+     * @param style Colors and modifiers of the character
+     * @return {@code TextCharacter} with the specified character and style
+     */
+    public static TextCharacter of(char character, TextStyle style) {
+        TextCharacter cached = style.getCachedCharacter(character);
+        if(cached != null) {
+            return cached;
+        }
+        return new TextCharacter(character, style);
+    }
+
+    /**
+     * Returns a {@code TextCharacter} for a character, color information and optional modifiers. Characters in the
+     * printable ASCII range are cached, so calling this method repeatedly with the same arguments will normally return
+     * the same object instead of creating a new one each time.
+     * @param character Physical character to use
+     * @param foregroundColor Foreground color the character has
+     * @param backgroundColor Background color the character has
+     * @param modifiers Optional list of modifiers to apply when drawing the character
+     * @return {@code TextCharacter} with the specified character, colors and modifiers
+     */
+    public static TextCharacter of(char character, TextColor foregroundColor, TextColor backgroundColor, SGR... modifiers) {
+        return of(character, TextStyle.of(foregroundColor, backgroundColor, modifiers));
+    }
 
     /**
      * Creates a {@code ScreenCharacter} based on a supplied character, with default colors and no extra modifiers.
@@ -57,10 +75,7 @@ public class TextCharacter {
      * @param character screenCharacter to copy from
      */
     public TextCharacter(TextCharacter character) {
-        this(character.getCharacter(),
-                character.getForegroundColor(), 
-                character.getBackgroundColor(),
-                character.getModifiers().toArray(new SGR[character.getModifiers().size()]));
+        this(character.character, character.style);
     }
 
     /**
@@ -77,10 +92,7 @@ public class TextCharacter {
             TextColor backgroundColor,
             SGR... styles) {
         
-        this(character, 
-                foregroundColor, 
-                backgroundColor, 
-                toEnumSet(styles));
+        this(character, TextStyle.of(foregroundColor, backgroundColor, styles));
     }
 
     /**
@@ -96,6 +108,15 @@ public class TextCharacter {
             TextColor backgroundColor,
             EnumSet<SGR> modifiers) {
 
+        this(character, TextStyle.of(foregroundColor, backgroundColor, modifiers));
+    }
+
+    /**
+     * Creates a new {@code ScreenCharacter} based on a physical character and a style.
+     * @param character Physical character to refer to
+     * @param style Colors and modifiers of the character
+     */
+    public TextCharacter(char character, TextStyle style) {
         // Don't allow creating a TextCharacter containing a control character
         // For backward-compatibility, do allow tab for now
         // TODO: In lanterna 3.1, don't allow tab
@@ -103,17 +124,12 @@ public class TextCharacter {
             throw new IllegalArgumentException("Cannot create a TextCharacter from a control character (0x" + Integer.toHexString(character) + ")");
         }
 
-        if(foregroundColor == null) {
-            foregroundColor = TextColor.ANSI.DEFAULT;
-        }
-        if(backgroundColor == null) {
-            backgroundColor = TextColor.ANSI.DEFAULT;
+        if(style == null) {
+            style = TextStyle.DEFAULT;
         }
 
         this.character = character;
-        this.foregroundColor = foregroundColor;
-        this.backgroundColor = backgroundColor;
-        this.modifiers = EnumSet.copyOf(modifiers);
+        this.style = style;
     }
 
     /**
@@ -129,7 +145,7 @@ public class TextCharacter {
      * @return Foreground color of this TextCharacter
      */
     public TextColor getForegroundColor() {
-        return foregroundColor;
+        return style.getForegroundColor();
     }
 
     /**
@@ -137,7 +153,7 @@ public class TextCharacter {
      * @return Background color of this TextCharacter
      */
     public TextColor getBackgroundColor() {
-        return backgroundColor;
+        return style.getBackgroundColor();
     }
 
     /**
@@ -145,7 +161,36 @@ public class TextCharacter {
      * @return Set of active SGR codes
      */
     public EnumSet<SGR> getModifiers() {
-        return EnumSet.copyOf(modifiers);
+        return style.getModifiers();
+    }
+
+    /**
+     * Returns the active modifiers on this TextCharacter as a bitmask, where each SGR is represented by the bit
+     * {@code 1 << sgr.ordinal()}. Unlike {@link #getModifiers()}, this method doesn't create any objects.
+     * @return Bitmask of active SGR codes
+     * @see TextStyle#maskOf(SGR)
+     */
+    public int getModifierMask() {
+        return style.getModifierMask();
+    }
+
+    /**
+     * Returns the style (colors and modifiers) of this TextCharacter. Styles are interned, so two characters with the
+     * same colors and modifiers will normally share the same style object.
+     * @return Style of this TextCharacter
+     */
+    public TextStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * Returns true if this TextCharacter has a particular modifier active. Unlike {@link #getModifiers()}, this method
+     * doesn't create a copy of the modifier set so it's suitable for use in tight loops.
+     * @param modifier Modifier to check for
+     * @return {@code true} if this TextCharacter has the specified modifier active
+     */
+    public boolean hasModifier(SGR modifier) {
+        return style.hasModifier(modifier);
     }
 
     /**
@@ -153,7 +198,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the bold modifier active
      */
     public boolean isBold() {
-        return modifiers.contains(SGR.BOLD);
+        return style.hasModifier(SGR.BOLD);
     }
 
     /**
@@ -161,7 +206,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the reverse modifier active
      */
     public boolean isReversed() {
-        return modifiers.contains(SGR.REVERSE);
+        return style.hasModifier(SGR.REVERSE);
     }
 
     /**
@@ -169,7 +214,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the underline modifier active
      */
     public boolean isUnderlined() {
-        return modifiers.contains(SGR.UNDERLINE);
+        return style.hasModifier(SGR.UNDERLINE);
     }
 
     /**
@@ -177,7 +222,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the blink modifier active
      */
     public boolean isBlinking() {
-        return modifiers.contains(SGR.BLINK);
+        return style.hasModifier(SGR.BLINK);
     }
 
     /**
@@ -185,7 +230,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the bordered modifier active
      */
     public boolean isBordered() {
-        return modifiers.contains(SGR.BORDERED);
+        return style.hasModifier(SGR.BORDERED);
     }
 
     /**
@@ -193,7 +238,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the crossed-out modifier active
      */
     public boolean isCrossedOut() {
-        return modifiers.contains(SGR.CROSSED_OUT);
+        return style.hasModifier(SGR.CROSSED_OUT);
     }
 
     /**
@@ -201,7 +246,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the italic modifier active
      */
     public boolean isItalic() {
-        return modifiers.contains(SGR.ITALIC);
+        return style.hasModifier(SGR.ITALIC);
     }
 
     /**
@@ -214,7 +259,7 @@ public class TextCharacter {
         if(this.character == character) {
             return this;
         }
-        return new TextCharacter(character, foregroundColor, backgroundColor, modifiers);
+        return of(character, style);
     }
 
     /**
@@ -223,10 +268,11 @@ public class TextCharacter {
      * @return Copy of the TextCharacter with a different foreground color
      */
     public TextCharacter withForegroundColor(TextColor foregroundColor) {
-        if(this.foregroundColor == foregroundColor || this.foregroundColor.equals(foregroundColor)) {
+        TextStyle newStyle = style.withForegroundColor(foregroundColor);
+        if(newStyle == style) {
             return this;
         }
-        return new TextCharacter(character, foregroundColor, backgroundColor, modifiers);
+        return of(character, newStyle);
     }
 
     /**
@@ -235,10 +281,11 @@ public class TextCharacter {
      * @return Copy of the TextCharacter with a different background color
      */
     public TextCharacter withBackgroundColor(TextColor backgroundColor) {
-        if(this.backgroundColor == backgroundColor || this.backgroundColor.equals(backgroundColor)) {
+        TextStyle newStyle = style.withBackgroundColor(backgroundColor);
+        if(newStyle == style) {
             return this;
         }
-        return new TextCharacter(character, foregroundColor, backgroundColor, modifiers);
+        return of(character, newStyle);
     }
 
     /**
@@ -248,11 +295,11 @@ public class TextCharacter {
      * @return Copy of the TextCharacter with a different set of SGR modifiers
      */
     public TextCharacter withModifiers(Collection<SGR> modifiers) {
-        EnumSet<SGR> newSet = EnumSet.copyOf(modifiers);
-        if(modifiers.equals(newSet)) {
+        int newMask = TextStyle.toMask(modifiers);
+        if(newMask == style.getModifierMask()) {
             return this;
         }
-        return new TextCharacter(character, foregroundColor, backgroundColor, newSet);
+        return of(character, style.withModifierMask(newMask));
     }
 
     /**
@@ -262,12 +309,10 @@ public class TextCharacter {
      * @return Copy of the TextCharacter with a new SGR modifier
      */
     public TextCharacter withModifier(SGR modifier) {
-        if(modifiers.contains(modifier)) {
+        if(style.hasModifier(modifier)) {
             return this;
         }
-        EnumSet<SGR> newSet = EnumSet.copyOf(this.modifiers);
-        newSet.add(modifier);
-        return new TextCharacter(character, foregroundColor, backgroundColor, newSet);
+        return of(character, style.withModifierMask(style.getModifierMask() | TextStyle.maskOf(modifier)));
     }
 
     /**
@@ -278,12 +323,10 @@ public class TextCharacter {
      * @return Copy of the TextCharacter without the SGR modifier
      */
     public TextCharacter withoutModifier(SGR modifier) {
-        if(!modifiers.contains(modifier)) {
+        if(!style.hasModifier(modifier)) {
             return this;
         }
-        EnumSet<SGR> newSet = EnumSet.copyOf(this.modifiers);
-        newSet.remove(modifier);
-        return new TextCharacter(character, foregroundColor, backgroundColor, newSet);
+        return of(character, style.withModifierMask(style.getModifierMask() & ~TextStyle.maskOf(modifier)));
     }
 
     public boolean isDoubleWidth() {
@@ -293,6 +336,9 @@ public class TextCharacter {
     @SuppressWarnings("SimplifiableIfStatement")
     @Override
     public boolean equals(Object obj) {
+        if(obj == this) {
+            return true;
+        }
         if(obj == null) {
             return false;
         }
@@ -303,27 +349,19 @@ public class TextCharacter {
         if(this.character != other.character) {
             return false;
         }
-        if(this.foregroundColor != other.foregroundColor && (this.foregroundColor == null || !this.foregroundColor.equals(other.foregroundColor))) {
-            return false;
-        }
-        if(this.backgroundColor != other.backgroundColor && (this.backgroundColor == null || !this.backgroundColor.equals(other.backgroundColor))) {
-            return false;
-        }
-        return !(this.modifiers != other.modifiers && (this.modifiers == null || !this.modifiers.equals(other.modifiers)));
+        return this.style == other.style || this.style.equals(other.style);
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
         hash = 37 * hash + this.character;
-        hash = 37 * hash + (this.foregroundColor != null ? this.foregroundColor.hashCode() : 0);
-        hash = 37 * hash + (this.backgroundColor != null ? this.backgroundColor.hashCode() : 0);
-        hash = 37 * hash + (this.modifiers != null ? this.modifiers.hashCode() : 0);
+        hash = 37 * hash + this.style.hashCode();
         return hash;
     }
 
     @Override
     public String toString() {
-        return "TextCharacter{" + "character=" + character + ", foregroundColor=" + foregroundColor + ", backgroundColor=" + backgroundColor + ", modifiers=" + modifiers + '}';
+        return "TextCharacter{" + "character=" + character + ", foregroundColor=" + getForegroundColor() + ", backgroundColor=" + getBackgroundColor() + ", modifiers=" + getModifiers() + '}';
     }
 }
@@ -70,28 +70,42 @@ public interface TextColor {
         WHITE((byte)7, 170, 170, 170),
         DEFAULT((byte)9, 0, 0, 0);
 
-        private final byte index;
         private final Color color;
+        private final byte[] foregroundSGRSequence;
+        private final byte[] backgroundSGRSequence;
 
         ANSI(byte index, int red, int green, int blue) {
-            this.index = index;
             this.color = new Color(red, green, blue);
+            this.foregroundSGRSequence = new byte[] { (byte)'3', (byte)(48 + index)}; //48 is ascii code for '0'
+            this.backgroundSGRSequence = new byte[] { (byte)'4', (byte)(48 + index)};
         }
 
         @Override
         public byte[] getForegroundSGRSequence() {
-            return new byte[] { (byte)'3', (byte)(48 + index)}; //48 is ascii code for '0'
+            return foregroundSGRSequence.clone();
         }
 
         @Override
         public byte[] getBackgroundSGRSequence() {
-            return new byte[] { (byte)'4', (byte)(48 + index)}; //48 is ascii code for '0'
+            return backgroundSGRSequence.clone();
         }
 
         @Override
         public Color toColor() {
             return color;
         }
+
+        /**
+         * Picks out the ANSI color closest to the supplied RGB components, using a precomputed lookup table
+         * @param red Red intensity, from 0 to 255
+         * @param green Green intensity, from 0 to 255
+         * @param blue Blue intensity, from 0 to 255
+         * @return Nearest ANSI color, never {@code DEFAULT}
+         */
+        public static ANSI fromRGB(int red, int green, int blue) {
+            ColorLookupTables.checkRGB(red, green, blue);
+            return ColorLookupTables.nearestANSI(red, green, blue);
+        }
     }
 
     /**
@@ -376,6 +390,24 @@ public interface TextColor {
             {(byte)0xee,(byte)0xee,(byte)0xee }
         };
 
+        // The SGR sequences of all 256 colors are prepared up front, since they are needed on every color change
+        private static final byte[][] FOREGROUND_SGR_SEQUENCES = new byte[256][];
+        private static final byte[][] BACKGROUND_SGR_SEQUENCES = new byte[256][];
+        static {
+            for(int i = 0; i < 256; i++) {
+                FOREGROUND_SGR_SEQUENCES[i] = ("38;5;" + i).getBytes();
+                BACKGROUND_SGR_SEQUENCES[i] = ("48;5;" + i).getBytes();
+            }
+        }
+
+        // Shared instances handed out by fromRGB
+        private static final Indexed[] INSTANCES = new Indexed[256];
+        static {
+            for(int i = 0; i < 256; i++) {
+                INSTANCES[i] = new Indexed(i);
+            }
+        }
+
         private final int colorIndex;
         private final Color awtColor;
 
@@ -395,14 +427,22 @@ public interface TextColor {
                     COLOR_TABLE[colorIndex][2] & 0x000000ff);
         }
 
+        /**
+         * Returns the index of this color in the 256 color palette
+         * @return Index value of this color, 0 - 255
+         */
+        public int getColorIndex() {
+            return colorIndex;
+        }
+
         @Override
         public byte[] getForegroundSGRSequence() {
-            return ("38;5;" + colorIndex).getBytes();
+            return FOREGROUND_SGR_SEQUENCES[colorIndex].clone();
         }
 
         @Override
         public byte[] getBackgroundSGRSequence() {
-            return ("48;5;" + colorIndex).getBytes();
+            return BACKGROUND_SGR_SEQUENCES[colorIndex].clone();
         }
 
         @Override
@@ -435,56 +475,16 @@ public interface TextColor {
         }
 
         /**
-         * Picks out a color approximated from the supplied RGB components
+         * Picks out a color approximated from the supplied RGB components. The nearest color is found through a
+         * precomputed lookup table and the returned objects are shared, so this method is cheap to call repeatedly.
          * @param red Red intensity, from 0 to 255
          * @param green Red intensity, from 0 to 255
          * @param blue Red intensity, from 0 to 255
          * @return Nearest color from the 6x6x6 RGB color cube or from the 24 entries grey-scale ramp (whichever is closest)
          */
         public static Indexed fromRGB(int red, int green, int blue) {
-            if(red < 0 || red > 255) {
-                throw new IllegalArgumentException("fromRGB: red is outside of valid range (0-255)");
-            }
-            if(green < 0 || green > 255) {
-                throw new IllegalArgumentException("fromRGB: green is outside of valid range (0-255)");
-            }
-            if(blue < 0 || blue > 255) {
-                throw new IllegalArgumentException("fromRGB: blue is outside of valid range (0-255)");
-            }
-
-            int rescaledRed = (int)(((double)red / 255.0) * 5.0);
-            int rescaledGreen = (int)(((double)green / 255.0) * 5.0);
-            int rescaledBlue = (int)(((double)blue / 255.0) * 5.0);
-
-            int index = rescaledBlue + (6 * rescaledGreen) + (36 * rescaledRed) + 16;
-            Indexed fromColorCube = new Indexed(index);
-            Indexed fromGreyRamp = fromGreyRamp((red + green + blue) / 3);
-
-            //Now figure out which one is closest
-            Color colored = fromColorCube.toColor();
-            Color grey = fromGreyRamp.toColor();
-            int coloredDistance = ((red - colored.getRed()) * (red - colored.getRed())) +
-                    ((green - colored.getGreen()) * (green - colored.getGreen())) +
-                    ((blue - colored.getBlue()) * (blue - colored.getBlue()));
-            int greyDistance = ((red - grey.getRed()) * (red - grey.getRed())) +
-                    ((green - grey.getGreen()) * (green - grey.getGreen())) +
-                    ((blue - grey.getBlue()) * (blue - grey.getBlue()));
-            if(coloredDistance < greyDistance) {
-                return fromColorCube;
-            }
-            else {
-                return fromGreyRamp;
-            }
-        }
-
-        /**
-         * Picks out a color from the grey-scale ramp area of the color index.
-         * @param intensity Intensity, 0 - 255
-         * @return Indexed color from the grey-scale ramp which is the best match for the supplied intensity
-         */
-        private static Indexed fromGreyRamp(int intensity) {
-            int rescaled = (int)(((double)intensity / 255.0) * 23.0) + 232;
-            return new Indexed(rescaled);
+            ColorLookupTables.checkRGB(red, green, blue);
+            return INSTANCES[ColorLookupTables.nearestIndexed(red, green, blue)];
         }
     }
 
@@ -0,0 +1,384 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable combination of foreground color, background color and SGR modifiers, as used by {@link TextCharacter}.
+ * Styles are interned, so as long as you get them through {@link #of(TextColor, TextColor, int)} (or one of its
+ * overloads) two equal styles will normally be the same object and can be compared by identity. The modifiers are kept
+ * as a bitmask, where each SGR is represented by the bit {@code 1 << sgr.ordinal()}. The intern table is bounded; once
+ * it is full, new combinations are still returned as styles but not interned, so they are equal to other instances of
+ * the same style without being identical to them.
+ * <p>
+ * Each style also keeps a cache of {@link TextCharacter}s for the printable ASCII range, which is what
+ * {@link TextCharacter#of(char, TextStyle)} uses to avoid creating new objects for the most common characters.
+ * @author Martin
+ */
+public final class TextStyle {
+    private static final SGR[] ALL_SGR = SGR.values();
+    private static final int ALL_MODIFIERS_MASK = (1 << ALL_SGR.length) - 1;
+
+    // Don't let the intern tables grow without bounds, if someone is using a large number of RGB colors for example
+    private static final int MAX_INTERNED_STYLES = 4096;
+    // Styles with the built-in color types are looked up by a key packed into a long, so that finding an interned style
+    // doesn't create any objects; the table is copied on write and replaced as a whole
+    private static final Object KEYED_STYLES_LOCK = new Object();
+    private static volatile KeyedStyles keyedStyles = new KeyedStyles(16);
+    // Styles with other TextColor implementations, which can't be packed into a key
+    private static final ConcurrentMap<TextStyle, TextStyle> INTERNED_STYLES = new ConcurrentHashMap<TextStyle, TextStyle>();
+    private static final int COLOR_KEY_BITS = 26;
+    private static final long NO_KEY = -1;
+
+    private static final char FIRST_CACHED_CHARACTER = ' ';
+    private static final char LAST_CACHED_CHARACTER = '~';
+
+    /**
+     * Style with default foreground and background color and no modifiers
+     */
+    public static final TextStyle DEFAULT = of(TextColor.ANSI.DEFAULT, TextColor.ANSI.DEFAULT, 0);
+
+    private final TextColor foregroundColor;
+    private final TextColor backgroundColor;
+    private final int modifierMask;
+    private final int hashCode;
+    private volatile TextCharacter[] characterCache;
+
+    private TextStyle(TextColor foregroundColor, TextColor backgroundColor, int modifierMask) {
+        this.foregroundColor = foregroundColor;
+        this.backgroundColor = backgroundColor;
+        this.modifierMask = modifierMask;
+        this.hashCode = 31 * (31 * foregroundColor.hashCode() + backgroundColor.hashCode()) + modifierMask;
+        this.characterCache = null;
+    }
+
+    /**
+     * Returns the style for a particular combination of colors and modifiers. If the combination has been seen before,
+     * the same instance as last time will be returned, unless the intern table was already full when it was first
+     * seen.
+     * @param foregroundColor Foreground color of the style, {@code null} means {@code TextColor.ANSI.DEFAULT}
+     * @param backgroundColor Background color of the style, {@code null} means {@code TextColor.ANSI.DEFAULT}
+     * @param modifierMask SGR modifiers of the style, as a bitmask
+     * @return Style with the specified colors and modifiers
+     */
+    public static TextStyle of(TextColor foregroundColor, TextColor backgroundColor, int modifierMask) {
+        if(foregroundColor == null) {
+            foregroundColor = TextColor.ANSI.DEFAULT;
+        }
+        if(backgroundColor == null) {
+            backgroundColor = TextColor.ANSI.DEFAULT;
+        }
+        modifierMask &= ALL_MODIFIERS_MASK;
+        long foregroundKey = getColorKey(foregroundColor);
+        long backgroundKey = getColorKey(backgroundColor);
+        if(foregroundKey != NO_KEY && backgroundKey != NO_KEY) {
+            long key = (((foregroundKey << COLOR_KEY_BITS) | backgroundKey) << ALL_SGR.length) | modifierMask;
+            TextStyle keyed = keyedStyles.get(key);
+            if(keyed != null) {
+                return keyed;
+            }
+            return internKeyed(key, new TextStyle(foregroundColor, backgroundColor, modifierMask));
+        }
+        TextStyle style = new TextStyle(foregroundColor, backgroundColor, modifierMask);
+        TextStyle interned = INTERNED_STYLES.get(style);
+        if(interned != null) {
+            return interned;
+        }
+        if(INTERNED_STYLES.size() >= MAX_INTERNED_STYLES) {
+            return style;
+        }
+        interned = INTERNED_STYLES.putIfAbsent(style, style);
+        return interned != null ? interned : style;
+    }
+
+    private static TextStyle internKeyed(long key, TextStyle style) {
+        synchronized(KEYED_STYLES_LOCK) {
+            TextStyle keyed = keyedStyles.get(key);
+            if(keyed != null) {
+                return keyed;
+            }
+            if(keyedStyles.size >= MAX_INTERNED_STYLES) {
+                return style;
+            }
+            keyedStyles = keyedStyles.with(key, style);
+            return style;
+        }
+    }
+
+    /**
+     * Packs the built-in color types into 26 bits, the top two telling the type apart
+     * @return Key of the color, or {@code NO_KEY} if it's of another type
+     */
+    private static long getColorKey(TextColor color) {
+        if(color instanceof TextColor.ANSI) {
+            return ((TextColor.ANSI)color).ordinal();
+        }
+        else if(color.getClass() == TextColor.Indexed.class) {
+            return (1L << 24) | ((TextColor.Indexed)color).getColorIndex();
+        }
+        else if(color.getClass() == TextColor.RGB.class) {
+            TextColor.RGB rgb = (TextColor.RGB)color;
+            return (2L << 24) | (rgb.getRed() << 16) | (rgb.getGreen() << 8) | rgb.getBlue();
+        }
+        return NO_KEY;
+    }
+
+    /**
+     * Returns the style for a particular combination of colors and modifiers. If the combination has been seen before,
+     * the same instance as last time will be returned.
+     * @param foregroundColor Foreground color of the style, {@code null} means {@code TextColor.ANSI.DEFAULT}
+     * @param backgroundColor Background color of the style, {@code null} means {@code TextColor.ANSI.DEFAULT}
+     * @param modifiers SGR modifiers of the style
+     * @return Style with the specified colors and modifiers
+     */
+    public static TextStyle of(TextColor foregroundColor, TextColor backgroundColor, Collection<SGR> modifiers) {
+        return of(foregroundColor, backgroundColor, toMask(modifiers));
+    }
+
+    /**
+     * Returns the style for a particular combination of colors and modifiers. If the combination has been seen before,
+     * the same instance as last time will be returned.
+     * @param foregroundColor Foreground color of the style, {@code null} means {@code TextColor.ANSI.DEFAULT}
+     * @param backgroundColor Background color of the style, {@code null} means {@code TextColor.ANSI.DEFAULT}
+     * @param modifiers SGR modifiers of the style
+     * @return Style with the specified colors and modifiers
+     */
+    public static TextStyle of(TextColor foregroundColor, TextColor backgroundColor, SGR... modifiers) {
+        int mask = 0;
+        for(SGR modifier: modifiers) {
+            mask |= maskOf(modifier);
+        }
+        return of(foregroundColor, backgroundColor, mask);
+    }
+
+    /**
+     * Returns the bit used to represent an SGR in a modifier bitmask
+     * @param sgr SGR to get the bit for
+     * @return Bit representing the SGR in a bitmask
+     */
+    public static int maskOf(SGR sgr) {
+        return 1 << sgr.ordinal();
+    }
+
+    /**
+     * Converts a collection of SGR modifiers to a bitmask
+     * @param modifiers Modifiers to convert
+     * @return Bitmask with the bits for all the modifiers set
+     */
+    public static int toMask(Collection<SGR> modifiers) {
+        int mask = 0;
+        for(SGR modifier: modifiers) {
+            mask |= maskOf(modifier);
+        }
+        return mask;
+    }
+
+    /**
+     * Foreground color of this style
+     * @return Foreground color of this style
+     */
+    public TextColor getForegroundColor() {
+        return foregroundColor;
+    }
+
+    /**
+     * Background color of this style
+     * @return Background color of this style
+     */
+    public TextColor getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    /**
+     * Returns the SGR modifiers of this style as a bitmask. This doesn't create any objects.
+     * @return Bitmask of active SGR modifiers
+     */
+    public int getModifierMask() {
+        return modifierMask;
+    }
+
+    /**
+     * Returns a copy of the set of SGR modifiers in this style
+     * @return Set of active SGR codes
+     */
+    public EnumSet<SGR> getModifiers() {
+        EnumSet<SGR> set = EnumSet.noneOf(SGR.class);
+        for(SGR sgr: ALL_SGR) {
+            if((modifierMask & maskOf(sgr)) != 0) {
+                set.add(sgr);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Returns true if this style has a particular modifier active
+     * @param modifier Modifier to check for
+     * @return {@code true} if this style has the specified modifier active
+     */
+    public boolean hasModifier(SGR modifier) {
+        return (modifierMask & maskOf(modifier)) != 0;
+    }
+
+    /**
+     * Returns a style with the same background color and modifiers as this one, but a different foreground color
+     * @param foregroundColor Foreground color of the new style
+     * @return Style with a different foreground color
+     */
+    public TextStyle withForegroundColor(TextColor foregroundColor) {
+        if(this.foregroundColor.equals(foregroundColor)) {
+            return this;
+        }
+        return of(foregroundColor, backgroundColor, modifierMask);
+    }
+
+    /**
+     * Returns a style with the same foreground color and modifiers as this one, but a different background color
+     * @param backgroundColor Background color of the new style
+     * @return Style with a different background color
+     */
+    public TextStyle withBackgroundColor(TextColor backgroundColor) {
+        if(this.backgroundColor.equals(backgroundColor)) {
+            return this;
+        }
+        return of(foregroundColor, backgroundColor, modifierMask);
+    }
+
+    /**
+     * Returns a style with the same colors as this one, but a different set of modifiers
+     * @param modifierMask Bitmask of the modifiers the new style should have
+     * @return Style with different modifiers
+     */
+    public TextStyle withModifierMask(int modifierMask) {
+        if(this.modifierMask == modifierMask) {
+            return this;
+        }
+        return of(foregroundColor, backgroundColor, modifierMask);
+    }
+
+    /**
+     * Returns a cached TextCharacter with this style for characters in the printable ASCII range, creating and caching
+     * it on first use. Returns {@code null} for characters outside of the range.
+     */
+    TextCharacter getCachedCharacter(char character) {
+        if(character < FIRST_CACHED_CHARACTER || character > LAST_CACHED_CHARACTER) {
+            return null;
+        }
+        TextCharacter[] cache = characterCache;
+        if(cache == null) {
+            // Racing threads may both create a cache, that's fine since they are all equal
+            cache = new TextCharacter[LAST_CACHED_CHARACTER - FIRST_CACHED_CHARACTER + 1];
+            characterCache = cache;
+        }
+        int index = character - FIRST_CACHED_CHARACTER;
+        TextCharacter cached = cache[index];
+        if(cached == null) {
+            cached = new TextCharacter(character, this);
+            cache[index] = cached;
+        }
+        return cached;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        TextStyle other = (TextStyle)obj;
+        return modifierMask == other.modifierMask &&
+                foregroundColor.equals(other.foregroundColor) &&
+                backgroundColor.equals(other.backgroundColor);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "TextStyle{" + "foregroundColor=" + foregroundColor + ", backgroundColor=" + backgroundColor + ", modifiers=" + getModifiers() + '}';
+    }
+
+    /**
+     * Open addressing hash table from style keys to styles. It is never modified once published, adding a style
+     * creates a new table.
+     */
+    private static final class KeyedStyles {
+        private final long[] keys;
+        private final TextStyle[] styles;
+        private final int size;
+
+        KeyedStyles(int capacity) {
+            this.keys = new long[capacity];
+            this.styles = new TextStyle[capacity];
+            this.size = 0;
+        }
+
+        private KeyedStyles(KeyedStyles source, int capacity, long key, TextStyle style) {
+            this.keys = new long[capacity];
+            this.styles = new TextStyle[capacity];
+            for(int i = 0; i < source.styles.length; i++) {
+                if(source.styles[i] != null) {
+                    put(source.keys[i], source.styles[i]);
+                }
+            }
+            put(key, style);
+            this.size = source.size + 1;
+        }
+
+        TextStyle get(long key) {
+            int mask = keys.length - 1;
+            for(int i = indexOf(key, mask); styles[i] != null; i = (i + 1) & mask) {
+                if(keys[i] == key) {
+                    return styles[i];
+                }
+            }
+            return null;
+        }
+
+        KeyedStyles with(long key, TextStyle style) {
+            // Keep the table at most half full
+            int capacity = (size + 1) * 2 > keys.length ? keys.length * 2 : keys.length;
+            return new KeyedStyles(this, capacity, key, style);
+        }
+
+        private void put(long key, TextStyle style) {
+            int mask = keys.length - 1;
+            int i = indexOf(key, mask);
+            while(styles[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            styles[i] = style;
+        }
+
+        private static int indexOf(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int)(hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -37,8 +37,15 @@ public abstract class AbstractTextGraphics implements TextGraphics {
     protected final EnumSet<SGR> activeModifiers;
     private final ShapeRenderer shapeRenderer;
 
+    // Style of the last character created through newTextCharacter(..), re-used as long as the colors and modifiers
+    // stay the same. activeModifiers is exposed to subclasses and callers, so we keep a snapshot to compare against.
+    private final EnumSet<SGR> cachedStyleModifiers;
+    private TextStyle cachedStyle;
+
     protected AbstractTextGraphics() {
         this.activeModifiers = EnumSet.noneOf(SGR.class);
+        this.cachedStyleModifiers = EnumSet.noneOf(SGR.class);
+        this.cachedStyle = TextStyle.DEFAULT;
         this.tabBehaviour = TabBehaviour.ALIGN_TO_COLUMN_4;
         this.foregroundColor = TextColor.ANSI.DEFAULT;
         this.backgroundColor = TextColor.ANSI.DEFAULT;
@@ -351,7 +358,20 @@ public abstract class AbstractTextGraphics implements TextGraphics {
     }
 
     private TextCharacter newTextCharacter(char character) {
-        return new TextCharacter(character, foregroundColor, backgroundColor, activeModifiers);
+        return TextCharacter.of(character, getCurrentStyle());
+    }
+
+    private TextStyle getCurrentStyle() {
+        TextStyle style = cachedStyle;
+        if(style.getForegroundColor() != foregroundColor ||
+                style.getBackgroundColor() != backgroundColor ||
+                !cachedStyleModifiers.equals(activeModifiers)) {
+            style = TextStyle.of(foregroundColor, backgroundColor, activeModifiers);
+            cachedStyleModifiers.clear();
+            cachedStyleModifiers.addAll(activeModifiers);
+            cachedStyle = style;
+        }
+        return style;
     }
 
     private String prepareStringForPut(int column, String string) {
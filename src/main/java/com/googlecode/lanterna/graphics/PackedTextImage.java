@@ -0,0 +1,619 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.graphics;
+
+import com.googlecode.lanterna.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of TextImage that stores the content in primitive arrays instead of as TextCharacter objects. Each cell
+ * takes up one {@code char} for the character and one {@code long} for the style, where the style packs the foreground
+ * color, background color and the SGR modifiers together. This uses a fraction of the memory a
+ * {@link BasicTextImage} of the same size needs and makes comparing and copying cells a matter of comparing and
+ * copying primitive values.
+ * <p>
+ * The drawback is that {@code getCharacterAt(..)} has to look up the TextCharacter from the style cache (or create a
+ * new one, for characters outside of the cached range) each time it's called, so code that only needs to compare cells
+ * should use {@link #getCharAt(int, int)} and {@link #cellEquals(int, int, PackedTextImage)} instead.
+ * @author martin
+ */
+public class PackedTextImage implements TextImage {
+    // Layout of the style value: bits 0-11 are the SGR modifiers (one bit per SGR, using the ordinal), bits 12-37 hold
+    // the foreground color and bits 38-63 hold the background color
+    private static final int SGR_BITS = 12;
+    private static final long SGR_MASK = (1L << SGR_BITS) - 1;
+    private static final int COLOR_BITS = 26;
+    private static final long COLOR_MASK = (1L << COLOR_BITS) - 1;
+    private static final int FOREGROUND_SHIFT = SGR_BITS;
+    private static final int BACKGROUND_SHIFT = SGR_BITS + COLOR_BITS;
+
+    // The two highest bits of a packed color tells what kind of color it is, the rest is the palette index or RGB value
+    private static final int COLOR_KIND_SHIFT = 24;
+    private static final int COLOR_KIND_ANSI = 0;
+    private static final int COLOR_KIND_INDEXED = 1;
+    private static final int COLOR_KIND_RGB = 2;
+    private static final int COLOR_KIND_OTHER = 3;
+    private static final int COLOR_VALUE_MASK = (1 << COLOR_KIND_SHIFT) - 1;
+
+    private static final TextColor.ANSI[] ANSI_COLORS = TextColor.ANSI.values();
+    private static final TextColor.Indexed[] INDEXED_COLORS = new TextColor.Indexed[256];
+    static {
+        for(int i = 0; i < INDEXED_COLORS.length; i++) {
+            INDEXED_COLORS[i] = new TextColor.Indexed(i);
+        }
+    }
+
+    private final TerminalSize size;
+    private final int columns;
+    private final char[] characters;
+    private final long[] styles;
+    // Colors that are neither ANSI, Indexed or RGB (custom TextColor implementations) are kept in a palette of this
+    // image, created when the first such color is stored; guarded by the image
+    private List<TextColor> otherColors;
+    private Map<TextColor, Integer> otherColorIndex;
+    // The style that was unpacked last, so that reading cells of the same style doesn't unpack it again
+    private volatile UnpackedStyle lastUnpackedStyle;
+
+    /**
+     * Creates a new PackedTextImage with the specified size and fills it initially with space characters using the
+     * default foreground and background color
+     * @param size Size to make the image
+     */
+    public PackedTextImage(TerminalSize size) {
+        this(size, TextCharacter.DEFAULT_CHARACTER);
+    }
+
+    /**
+     * Creates a new PackedTextImage with a given size and a TextCharacter to initially fill it with
+     * @param size Size of the image
+     * @param initialContent What character to set as the initial content
+     */
+    public PackedTextImage(TerminalSize size, TextCharacter initialContent) {
+        if(size == null || initialContent == null) {
+            throw new IllegalArgumentException("Cannot create PackedTextImage with null " +
+                    (size == null ? "size" : "filler"));
+        }
+        this.size = size;
+        this.columns = size.getColumns();
+        this.characters = new char[size.getRows() * size.getColumns()];
+        this.styles = new long[characters.length];
+        this.otherColors = null;
+        this.otherColorIndex = null;
+        this.lastUnpackedStyle = null;
+        setAll(initialContent);
+    }
+
+    @Override
+    public TerminalSize getSize() {
+        return size;
+    }
+
+    @Override
+    public void setAll(TextCharacter character) {
+        if(character == null) {
+            throw new IllegalArgumentException("Cannot call PackedTextImage.setAll(..) with null character");
+        }
+        Arrays.fill(characters, character.getCharacter());
+        Arrays.fill(styles, packStyle(character));
+    }
+
+    @Override
+    public PackedTextImage resize(TerminalSize newSize, TextCharacter filler) {
+        if(newSize == null || filler == null) {
+            throw new IllegalArgumentException("Cannot resize PackedTextImage with null " +
+                    (newSize == null ? "newSize" : "filler"));
+        }
+        if(newSize.equals(size)) {
+            return this;
+        }
+        PackedTextImage resized = new PackedTextImage(newSize, filler);
+        copyTo(resized);
+        return resized;
+    }
+
+    @Override
+    public void setCharacterAt(TerminalPosition position, TextCharacter character) {
+        if(position == null) {
+            throw new IllegalArgumentException("Cannot call PackedTextImage.setCharacterAt(..) with null position");
+        }
+        setCharacterAt(position.getColumn(), position.getRow(), character);
+    }
+
+    @Override
+    public void setCharacterAt(int column, int row, TextCharacter character) {
+        if(character == null) {
+            throw new IllegalArgumentException("Cannot call PackedTextImage.setCharacterAt(..) with null character");
+        }
+        if(column < 0 || row < 0 || row >= size.getRows() || column >= columns) {
+            return;
+        }
+        int index = row * columns + column;
+
+        // Double width character adjustments
+        if(column > 0 && TerminalTextUtils.isCharDoubleWidth(characters[index - 1])) {
+            characters[index - 1] = ' ';
+        }
+
+        // Assign the character at location we specified
+        long style = packStyle(character);
+        characters[index] = character.getCharacter();
+        styles[index] = style;
+
+        // Double width character adjustments
+        if(character.isDoubleWidth() && column + 1 < columns) {
+            characters[index + 1] = ' ';
+            styles[index + 1] = style;
+        }
+    }
+
+    @Override
+    public TextCharacter getCharacterAt(TerminalPosition position) {
+        if(position == null) {
+            throw new IllegalArgumentException("Cannot call PackedTextImage.getCharacterAt(..) with null position");
+        }
+        return getCharacterAt(position.getColumn(), position.getRow());
+    }
+
+    @Override
+    public TextCharacter getCharacterAt(int column, int row) {
+        if(column < 0 || row < 0 || row >= size.getRows() || column >= columns) {
+            return null;
+        }
+        int index = row * columns + column;
+        return unpack(characters[index], styles[index]);
+    }
+
+    /**
+     * Returns only the character stored at a particular position, without colors and modifiers. Unlike
+     * {@code getCharacterAt(..)}, this method doesn't create any objects.
+     * @param column Column coordinate of the character
+     * @param row Row coordinate of the character
+     * @return Character stored at the specified position, or {@code 0} if the position is outside of the image
+     */
+    public char getCharAt(int column, int row) {
+        if(column < 0 || row < 0 || row >= size.getRows() || column >= columns) {
+            return 0;
+        }
+        return characters[row * columns + column];
+    }
+
+    /**
+     * Returns the colors and modifiers stored at a particular position, packed into a single value. Two cells of the
+     * same image have the same style if and only if their packed styles are equal. Custom colors are numbered by the
+     * image they're stored in, so this doesn't hold for cells of different images that use such colors. Unlike
+     * {@code getCharacterAt(..)}, this method doesn't create any objects.
+     * @param column Column coordinate of the cell
+     * @param row Row coordinate of the cell
+     * @return Packed style of the cell, or the packed default style if the position is outside of the image
+     */
+    public long getPackedStyleAt(int column, int row) {
+        if(column < 0 || row < 0 || row >= size.getRows() || column >= columns) {
+            return packStyle(TextStyle.DEFAULT);
+        }
+        return styles[row * columns + column];
+    }
+
+    /**
+     * Packs the colors and modifiers of a style the same way an image stores them, see
+     * {@link #getPackedStyleAt(int, int)}. Custom colors, which an image keeps in a palette of its own, are packed
+     * using their hash code instead, so for styles with such colors the result is only good for estimates like
+     * {@link #getStyleChangeCost(long, long)}.
+     * @param style Style to pack
+     * @return Packed style
+     */
+    public static long packStyle(TextStyle style) {
+        return packStyle(style,
+                packBuiltInColor(style.getForegroundColor()),
+                packBuiltInColor(style.getBackgroundColor()));
+    }
+
+    private static long packStyle(TextStyle style, int packedForegroundColor, int packedBackgroundColor) {
+        long packed = style.getModifierMask() & SGR_MASK;
+        packed |= ((long)packedForegroundColor) << FOREGROUND_SHIFT;
+        packed |= ((long)packedBackgroundColor) << BACKGROUND_SHIFT;
+        return packed;
+    }
+
+    /**
+     * Estimates how many bytes an ANSI terminal needs to switch from one packed style to another, counting the
+     * {@code ESC [ ... m} sequence with one parameter for each changed color and modifier
+     * @param fromStyle Packed style currently active
+     * @param toStyle Packed style to switch to
+     * @return Estimated length of the SGR sequence, 0 if the styles are the same
+     */
+    public static int getStyleChangeCost(long fromStyle, long toStyle) {
+        if(fromStyle == toStyle) {
+            return 0;
+        }
+        int parameters = 0;
+        int length = 0;
+        int foreground = (int)((toStyle >>> FOREGROUND_SHIFT) & COLOR_MASK);
+        if(foreground != (int)((fromStyle >>> FOREGROUND_SHIFT) & COLOR_MASK)) {
+            length += getColorParameterLength(foreground);
+            parameters++;
+        }
+        int background = (int)((toStyle >>> BACKGROUND_SHIFT) & COLOR_MASK);
+        if(background != (int)((fromStyle >>> BACKGROUND_SHIFT) & COLOR_MASK)) {
+            length += getColorParameterLength(background);
+            parameters++;
+        }
+        // Turning a modifier on is a one digit code and turning it off mostly two digits
+        int changedModifiers = Long.bitCount((fromStyle ^ toStyle) & SGR_MASK);
+        length += changedModifiers * 2;
+        parameters += changedModifiers;
+        // "ESC [", the separators and the final 'm'
+        return 2 + length + (parameters - 1) + 1;
+    }
+
+    private static int getColorParameterLength(int packedColor) {
+        int value = packedColor & COLOR_VALUE_MASK;
+        switch(packedColor >>> COLOR_KIND_SHIFT) {
+            case COLOR_KIND_INDEXED:
+                // "38;5;n"
+                return 5 + getDecimalLength(value);
+            case COLOR_KIND_RGB:
+                // "38;2;r;g;b"
+                return 7 + getDecimalLength((value >>> 16) & 0xff) + getDecimalLength((value >>> 8) & 0xff) +
+                        getDecimalLength(value & 0xff);
+            default:
+                // "3n" or "9n"
+                return 2;
+        }
+    }
+
+    private static int getDecimalLength(int value) {
+        return value < 10 ? 1 : value < 100 ? 2 : 3;
+    }
+
+    /**
+     * Checks if a cell in this image has the same character, colors and modifiers as the cell in the same position of
+     * another PackedTextImage. This is the same as comparing the result of {@code getCharacterAt(..)} from both images
+     * but doesn't create any objects.
+     * @param column Column coordinate of the cell
+     * @param row Row coordinate of the cell
+     * @param other Image to compare with
+     * @return {@code true} if the cells are identical
+     */
+    public boolean cellEquals(int column, int row, PackedTextImage other) {
+        if(column < 0 || row < 0 || row >= size.getRows() || column >= columns ||
+                row >= other.size.getRows() || column >= other.columns) {
+            return false;
+        }
+        int index = row * columns + column;
+        int otherIndex = row * other.columns + column;
+        if(characters[index] != other.characters[otherIndex]) {
+            return false;
+        }
+        long style = styles[index];
+        long otherStyle = other.styles[otherIndex];
+        if(other == this || (!hasOtherColor(style) && !hasOtherColor(otherStyle))) {
+            return style == otherStyle;
+        }
+        // Custom colors are numbered by each image's own palette
+        return (style & SGR_MASK) == (otherStyle & SGR_MASK) &&
+                unpackColor(getForeground(style)).equals(other.unpackColor(getForeground(otherStyle))) &&
+                unpackColor(getBackground(style)).equals(other.unpackColor(getBackground(otherStyle)));
+    }
+
+    /**
+     * Checks if two cells of this image have the same character, colors and modifiers, without creating any objects
+     * @param column Column coordinate of the first cell
+     * @param row Row coordinate of the first cell
+     * @param otherColumn Column coordinate of the second cell
+     * @param otherRow Row coordinate of the second cell
+     * @return {@code true} if the cells are identical, {@code false} if they aren't or either is outside of the image
+     */
+    public boolean cellEquals(int column, int row, int otherColumn, int otherRow) {
+        return getCharAt(column, row) == getCharAt(otherColumn, otherRow) && styleEquals(column, row, otherColumn, otherRow);
+    }
+
+    /**
+     * Checks if two cells of this image have the same colors and modifiers, without creating any objects
+     * @param column Column coordinate of the first cell
+     * @param row Row coordinate of the first cell
+     * @param otherColumn Column coordinate of the second cell
+     * @param otherRow Row coordinate of the second cell
+     * @return {@code true} if the cells have the same style, {@code false} if they don't or either is outside of the
+     * image
+     */
+    public boolean styleEquals(int column, int row, int otherColumn, int otherRow) {
+        if(column < 0 || row < 0 || row >= size.getRows() || column >= columns ||
+                otherColumn < 0 || otherRow < 0 || otherRow >= size.getRows() || otherColumn >= columns) {
+            return false;
+        }
+        return styles[row * columns + column] == styles[otherRow * columns + otherColumn];
+    }
+
+    /**
+     * Calculates a hash of the content of a row in this image
+     * @param row Index of the row
+     * @return Hash of the characters and styles in the row
+     */
+    public int getRowHash(int row) {
+        int hash = 1;
+        int offset = row * columns;
+        for(int index = offset; index < offset + columns; index++) {
+            long style = styles[index];
+            hash = 31 * hash + characters[index];
+            if(hasOtherColor(style)) {
+                // Hash custom colors by value, so that equal rows of different images have the same hash
+                hash = 31 * hash + (int)(style & SGR_MASK);
+                hash = 31 * hash + unpackColor(getForeground(style)).hashCode();
+                hash = 31 * hash + unpackColor(getBackground(style)).hashCode();
+            }
+            else {
+                hash = 31 * hash + (int)(style ^ (style >>> 32));
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public void copyTo(TextImage destination) {
+        copyTo(destination, 0, size.getRows(), 0, columns, 0, 0);
+    }
+
+    @Override
+    public void copyTo(
+            TextImage destination,
+            int startRowIndex,
+            int rows,
+            int startColumnIndex,
+            int columns,
+            int destinationRowOffset,
+            int destinationColumnOffset) {
+
+        // If the source image position is negative, offset the whole image
+        if(startColumnIndex < 0) {
+            destinationColumnOffset += -startColumnIndex;
+            columns += startColumnIndex;
+            startColumnIndex = 0;
+        }
+        if(startRowIndex < 0) {
+            destinationRowOffset += -startRowIndex;
+            rows += startRowIndex;
+            startRowIndex = 0;
+        }
+
+        // If the destination offset is negative, adjust the source start indexes
+        if(destinationColumnOffset < 0) {
+            startColumnIndex -= destinationColumnOffset;
+            columns += destinationColumnOffset;
+            destinationColumnOffset = 0;
+        }
+        if(destinationRowOffset < 0) {
+            startRowIndex -= destinationRowOffset;
+            rows += destinationRowOffset;
+            destinationRowOffset = 0;
+        }
+
+        //Make sure we can't copy more than is available
+        columns = Math.min(this.columns - startColumnIndex, columns);
+        rows = Math.min(size.getRows() - startRowIndex, rows);
+
+        //Adjust target lengths as well
+        columns = Math.min(destination.getSize().getColumns() - destinationColumnOffset, columns);
+        rows = Math.min(destination.getSize().getRows() - destinationRowOffset, rows);
+
+        if(columns <= 0 || rows <= 0) {
+            return;
+        }
+
+        if(destination instanceof PackedTextImage) {
+            PackedTextImage packedDestination = (PackedTextImage)destination;
+            for(int y = 0; y < rows; y++) {
+                int sourceIndex = (startRowIndex + y) * this.columns + startColumnIndex;
+                int targetIndex = (destinationRowOffset + y) * packedDestination.columns + destinationColumnOffset;
+                System.arraycopy(characters, sourceIndex, packedDestination.characters, targetIndex, columns);
+                System.arraycopy(styles, sourceIndex, packedDestination.styles, targetIndex, columns);
+                if(packedDestination != this && hasOtherColors()) {
+                    // The destination numbers custom colors by its own palette
+                    for(int x = 0; x < columns; x++) {
+                        long style = styles[sourceIndex + x];
+                        if(hasOtherColor(style)) {
+                            packedDestination.styles[targetIndex + x] = (style & SGR_MASK) |
+                                    ((long)packedDestination.packColor(unpackColor(getForeground(style))) << FOREGROUND_SHIFT) |
+                                    ((long)packedDestination.packColor(unpackColor(getBackground(style))) << BACKGROUND_SHIFT);
+                        }
+                    }
+                }
+            }
+        }
+        else {
+            //Manually copy character by character
+            for(int y = startRowIndex; y < startRowIndex + rows; y++) {
+                for(int x = startColumnIndex; x < startColumnIndex + columns; x++) {
+                    destination.setCharacterAt(
+                            x - startColumnIndex + destinationColumnOffset,
+                            y - startRowIndex + destinationRowOffset,
+                            getCharacterAt(x, y));
+                }
+            }
+        }
+    }
+
+    @Override
+    public TextGraphics newTextGraphics() {
+        return new AbstractTextGraphics() {
+            @Override
+            public TextGraphics setCharacter(int columnIndex, int rowIndex, TextCharacter textCharacter) {
+                PackedTextImage.this.setCharacterAt(columnIndex, rowIndex, textCharacter);
+                return this;
+            }
+
+            @Override
+            public TextCharacter getCharacter(int column, int row) {
+                return PackedTextImage.this.getCharacterAt(column, row);
+            }
+
+            @Override
+            public TerminalSize getSize() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public void scrollLines(int firstLine, int lastLine, int distance) {
+        if (firstLine < 0) { firstLine = 0; }
+        if (lastLine >= size.getRows()) { lastLine = size.getRows() - 1; }
+        if (firstLine >= lastLine || distance == 0) {
+            return;
+        }
+        int linesInRange = lastLine - firstLine + 1;
+        int linesToMove = Math.max(linesInRange - Math.abs(distance), 0);
+        if (distance > 0) {
+            // scrolling up: move the lines further "below" up and blank out the remaining lines at the bottom
+            moveLines(firstLine + distance, firstLine, linesToMove);
+            blankLines(firstLine + linesToMove, lastLine);
+        }
+        else {
+            // scrolling down: move the lines further "above" down and blank out the remaining lines at the top
+            moveLines(firstLine, lastLine - linesToMove + 1, linesToMove);
+            blankLines(firstLine, lastLine - linesToMove);
+        }
+    }
+
+    private void moveLines(int fromLine, int toLine, int lineCount) {
+        if(lineCount > 0) {
+            System.arraycopy(characters, fromLine * columns, characters, toLine * columns, lineCount * columns);
+            System.arraycopy(styles, fromLine * columns, styles, toLine * columns, lineCount * columns);
+        }
+    }
+
+    private void blankLines(int firstLine, int lastLine) {
+        if(firstLine <= lastLine) {
+            Arrays.fill(characters, firstLine * columns, (lastLine + 1) * columns, TextCharacter.DEFAULT_CHARACTER.getCharacter());
+            Arrays.fill(styles, firstLine * columns, (lastLine + 1) * columns, packStyle(TextCharacter.DEFAULT_CHARACTER));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size.getRows()*(columns+1)+50);
+        sb.append('{').append(columns).append('x').append(size.getRows()).append('}').append('\n');
+        for(int row = 0; row < size.getRows(); row++) {
+            sb.append(characters, row * columns, columns);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private long packStyle(TextCharacter character) {
+        // The modifier mask of TextStyle uses the same one-bit-per-ordinal layout as we do
+        TextStyle style = character.getStyle();
+        return packStyle(style, packColor(style.getForegroundColor()), packColor(style.getBackgroundColor()));
+    }
+
+    private static int packBuiltInColor(TextColor color) {
+        if(color instanceof TextColor.ANSI) {
+            return (COLOR_KIND_ANSI << COLOR_KIND_SHIFT) | ((TextColor.ANSI)color).ordinal();
+        }
+        else if(color instanceof TextColor.Indexed) {
+            return (COLOR_KIND_INDEXED << COLOR_KIND_SHIFT) | ((TextColor.Indexed)color).getColorIndex();
+        }
+        else if(color instanceof TextColor.RGB) {
+            TextColor.RGB rgb = (TextColor.RGB)color;
+            return (COLOR_KIND_RGB << COLOR_KIND_SHIFT) | (rgb.getRed() << 16) | (rgb.getGreen() << 8) | rgb.getBlue();
+        }
+        return (COLOR_KIND_OTHER << COLOR_KIND_SHIFT) | (color.hashCode() & COLOR_VALUE_MASK);
+    }
+
+    private int packColor(TextColor color) {
+        if(color instanceof TextColor.ANSI || color instanceof TextColor.Indexed || color instanceof TextColor.RGB) {
+            return packBuiltInColor(color);
+        }
+        synchronized(this) {
+            if(otherColors == null) {
+                otherColors = new ArrayList<TextColor>();
+                otherColorIndex = new HashMap<TextColor, Integer>();
+            }
+            Integer index = otherColorIndex.get(color);
+            if(index == null) {
+                if(otherColors.size() > COLOR_VALUE_MASK) {
+                    throw new IllegalStateException("Too many different custom TextColor values in one PackedTextImage");
+                }
+                index = otherColors.size();
+                otherColors.add(color);
+                otherColorIndex.put(color, index);
+            }
+            return (COLOR_KIND_OTHER << COLOR_KIND_SHIFT) | index;
+        }
+    }
+
+    private synchronized boolean hasOtherColors() {
+        return otherColors != null;
+    }
+
+    private static boolean hasOtherColor(long style) {
+        return getForeground(style) >>> COLOR_KIND_SHIFT == COLOR_KIND_OTHER ||
+                getBackground(style) >>> COLOR_KIND_SHIFT == COLOR_KIND_OTHER;
+    }
+
+    private static int getForeground(long style) {
+        return (int)((style >>> FOREGROUND_SHIFT) & COLOR_MASK);
+    }
+
+    private static int getBackground(long style) {
+        return (int)((style >>> BACKGROUND_SHIFT) & COLOR_MASK);
+    }
+
+    private TextColor unpackColor(int packedColor) {
+        int value = packedColor & COLOR_VALUE_MASK;
+        switch(packedColor >>> COLOR_KIND_SHIFT) {
+            case COLOR_KIND_ANSI:
+                return ANSI_COLORS[value];
+            case COLOR_KIND_INDEXED:
+                return INDEXED_COLORS[value];
+            case COLOR_KIND_RGB:
+                return new TextColor.RGB((value >>> 16) & 0xff, (value >>> 8) & 0xff, value & 0xff);
+            default:
+                synchronized(this) {
+                    return otherColors.get(value);
+                }
+        }
+    }
+
+    private TextCharacter unpack(char character, long style) {
+        UnpackedStyle unpacked = lastUnpackedStyle;
+        if(unpacked == null || unpacked.packedStyle != style) {
+            unpacked = new UnpackedStyle(style, TextStyle.of(
+                    unpackColor(getForeground(style)),
+                    unpackColor(getBackground(style)),
+                    (int)(style & SGR_MASK)));
+            lastUnpackedStyle = unpacked;
+        }
+        return TextCharacter.of(character, unpacked.style);
+    }
+
+    private static final class UnpackedStyle {
+        private final long packedStyle;
+        private final TextStyle style;
+
+        UnpackedStyle(long packedStyle, TextStyle style) {
+            this.packedStyle = packedStyle;
+            this.style = style;
+        }
+    }
+}
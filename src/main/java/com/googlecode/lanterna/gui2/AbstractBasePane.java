@@ -24,6 +24,7 @@ import com.googlecode.lanterna.graphics.Theme;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
 import com.googlecode.lanterna.input.MouseAction;
+import com.googlecode.lanterna.input.PasteEvent;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -104,6 +105,12 @@ public abstract class AbstractBasePane<T extends BasePane> implements BasePane {
             }
             handled = hasBeenHandled.get();
         }
+        if(!handled && key instanceof PasteEvent) {
+            // Components that don't know about pasted text get it typed out, as if bracketed paste mode was off
+            for(KeyStroke keyStroke: ((PasteEvent)key).toKeyStrokes()) {
+                handled |= handleInput(keyStroke);
+            }
+        }
         return handled;
     }
 
@@ -27,6 +27,7 @@ import com.googlecode.lanterna.screen.Screen;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -36,9 +37,12 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * @author Martin
  */
 public abstract class AbstractTextGUI implements TextGUI {
+    // How many key strokes to take off the input queue at a time when a burst of input arrives
+    private static final int INPUT_BATCH_SIZE = 64;
 
     private final Screen screen;
     private final List<Listener> listeners;
+    private final List<KeyStroke> inputBatch;
     private boolean blockingIO;
     private boolean dirty;
     private TextGUIThread textGUIThread;
@@ -55,6 +59,7 @@ public abstract class AbstractTextGUI implements TextGUI {
         }
         this.screen = screen;
         this.listeners = new CopyOnWriteArrayList<Listener>();
+        this.inputBatch = new ArrayList<KeyStroke>(INPUT_BATCH_SIZE);
         this.blockingIO = false;
         this.dirty = false;
         this.guiTheme = LanternaThemes.getDefaultTheme();
@@ -81,25 +86,49 @@ public abstract class AbstractTextGUI implements TextGUI {
         return screen.pollInput();
     }
 
+    /**
+     * Takes all user input that is available right now, up to a maximum number of key strokes, off the underlying
+     * input queue and adds it to a list, without blocking
+     * @param keyStrokes List to add the {@code KeyStroke}s to
+     * @param maxKeyStrokes Maximum number of key strokes to read
+     * @return Number of key strokes added to the list
+     * @throws IOException In case of an I/O error while reading input
+     */
+    protected int pollInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) throws IOException {
+        return screen.readInputBatch(keyStrokes, maxKeyStrokes);
+    }
+
     @Override
     public synchronized boolean processInput() throws IOException {
-        boolean gotInput = false;
         KeyStroke keyStroke = readKeyStroke();
-        if(keyStroke != null) {
-            gotInput = true;
-            do {
-                if (keyStroke.getKeyType() == KeyType.EOF) {
-                    throw new EOFException();
-                }
-                boolean handled = handleInput(keyStroke);
-                if(!handled) {
-                    handled = fireUnhandledKeyStroke(keyStroke);
+        if(keyStroke == null) {
+            return false;
+        }
+        dispatchKeyStroke(keyStroke);
+        // Anything else that has arrived, such as a held down key or a paste, is handled in batches before the GUI is
+        // redrawn, instead of going back to the input queue once for every key stroke
+        while(pollInputBatch(inputBatch, INPUT_BATCH_SIZE) > 0) {
+            try {
+                for(KeyStroke batchedKeyStroke: inputBatch) {
+                    dispatchKeyStroke(batchedKeyStroke);
                 }
-                dirty = handled || dirty;
-                keyStroke = pollInput();
-            } while(keyStroke != null);
+            }
+            finally {
+                inputBatch.clear();
+            }
+        }
+        return true;
+    }
+
+    private void dispatchKeyStroke(KeyStroke keyStroke) throws EOFException {
+        if (keyStroke.getKeyType() == KeyType.EOF) {
+            throw new EOFException();
+        }
+        boolean handled = handleInput(keyStroke);
+        if(!handled) {
+            handled = fireUnhandledKeyStroke(keyStroke);
         }
-        return gotInput;
+        dirty = handled || dirty;
     }
 
     @Override
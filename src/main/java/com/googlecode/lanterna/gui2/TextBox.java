@@ -23,6 +23,7 @@ import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.graphics.ThemeDefinition;
 import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.PasteEvent;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -586,11 +587,63 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                     caretPosition = caretPosition.withColumn(lines.get(caretPosition.getRow()).length());
                 }
                 return Result.HANDLED;
+            case Paste:
+                if(keyStroke instanceof PasteEvent) {
+                    insertPastedText(((PasteEvent)keyStroke).getText());
+                    return Result.HANDLED;
+                }
+                break;
             default:
         }
         return super.handleKeyStroke(keyStroke);
     }
 
+    /**
+     * Inserts pasted text at the caret in one go and moves the caret to the end of it. Line breaks split the line in
+     * multi-line mode, in single-line mode only the first line of the text is used. Like in {@code addLine(..)},
+     * other control characters are left out. If any of the resulting lines wouldn't validate, nothing is inserted.
+     */
+    private void insertPastedText(String text) {
+        String line = lines.get(caretPosition.getRow());
+        List<String> newLines = new ArrayList<String>();
+        StringBuilder bob = new StringBuilder(line.length() + text.length());
+        bob.append(line, 0, caretPosition.getColumn());
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '\r' || c == '\n') {
+                if(style == Style.SINGLE_LINE) {
+                    break;
+                }
+                if(c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                newLines.add(bob.toString());
+                bob.setLength(0);
+            }
+            else if(!Character.isISOControl(c)) {
+                bob.append(c);
+            }
+        }
+        int caretColumn = bob.length();
+        bob.append(line, caretPosition.getColumn(), line.length());
+        newLines.add(bob.toString());
+
+        for(String newLine: newLines) {
+            if((maxLineLength != -1 && maxLineLength <= newLine.length()) || !validated(newLine)) {
+                return;
+            }
+        }
+        lines.set(caretPosition.getRow(), newLines.get(0));
+        lines.addAll(caretPosition.getRow() + 1, newLines.subList(1, newLines.size()));
+        for(String newLine: newLines) {
+            int lineWidth = TerminalTextUtils.getColumnWidth(newLine);
+            if(longestRow < lineWidth + 1) {
+                longestRow = lineWidth + 1;
+            }
+        }
+        caretPosition = new TerminalPosition(caretColumn, caretPosition.getRow() + newLines.size() - 1);
+    }
+
     private boolean validated(String line) {
         return validationPattern == null || line.isEmpty() || validationPattern.matcher(line).matches();
     }
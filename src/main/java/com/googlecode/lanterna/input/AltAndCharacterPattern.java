@@ -36,10 +36,17 @@ public class AltAndCharacterPattern implements CharacterPattern {
         if (size == 1) {
             return Matching.NOT_YET; // maybe later
         }
-        if ( Character.isISOControl(seq.get(1)) ) {
+        KeyStroke ks = decode(seq.get(1));
+        return ks != null ? new Matching( ks ) : null;
+    }
+
+    /**
+     * Returns the key stroke for the character following Esc, or {@code null} if there is none
+     */
+    static KeyStroke decode(char ch) {
+        if ( Character.isISOControl(ch) ) {
             return null; // nope
         }
-        KeyStroke ks = new KeyStroke(seq.get(1), false, true);
-        return new Matching( ks ); // yep
+        return KeyStroke.of(ch, false, true); // yep
     }
 }
@@ -0,0 +1,464 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.input;
+
+import java.lang.reflect.Method;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The character patterns of an {@link InputDecoder} compiled into matchers that are fed one character at a time. All
+ * {@link BasicCharacterPattern}s are merged into a single prefix trie and the other patterns that come with lanterna
+ * keep their parsing state between characters, so decoding a character doesn't look at the earlier characters of the
+ * sequence again, doesn't box characters and doesn't allocate anything apart from the resulting {@link KeyStroke}.
+ * Patterns this class doesn't know about, including subclasses overriding {@code match(..)}, are asked through
+ * {@link CharacterPattern#match(List)} as before.
+ * <p>
+ * Just like when matching the patterns one by one, a sequence matches partially if any pattern matches it partially
+ * and if several patterns match it fully, the one registered last wins.
+ *
+ * @author martin
+ */
+class CompiledPatterns {
+    static final int NO_MATCH = 0;
+    static final int PARTIAL_MATCH = 1;
+    static final int FULL_MATCH = 2;
+
+    private final Matcher[] matchers;
+    private final boolean[] alive;
+    private KeyStroke fullMatch;
+
+    CompiledPatterns(List<CharacterPattern> patterns) {
+        TrieMatcher trie = new TrieMatcher();
+        Matcher[] compiled = new Matcher[patterns.size() + 1];
+        int count = 0;
+        compiled[count++] = trie;
+        for(int priority = 0; priority < patterns.size(); priority++) {
+            CharacterPattern pattern = patterns.get(priority);
+            if(pattern instanceof BasicCharacterPattern && isMatchedByLanterna(pattern)) {
+                trie.add((BasicCharacterPattern)pattern, priority);
+            }
+            else {
+                compiled[count++] = compile(pattern, priority);
+            }
+        }
+        this.matchers = Arrays.copyOf(compiled, count);
+        this.alive = new boolean[count];
+        reset();
+    }
+
+    /**
+     * Starts matching a new sequence
+     */
+    void reset() {
+        for(int i = 0; i < matchers.length; i++) {
+            matchers[i].reset();
+            alive[i] = true;
+        }
+        fullMatch = null;
+    }
+
+    /**
+     * Adds the next character to the sequence being matched
+     * @param ch Next character of the sequence
+     * @return Bitmask of {@code PARTIAL_MATCH} and {@code FULL_MATCH}, or {@code NO_MATCH}
+     */
+    int next(char ch) {
+        int result = NO_MATCH;
+        int bestPriority = -1;
+        fullMatch = null;
+        for(int i = 0; i < matchers.length; i++) {
+            if(!alive[i]) {
+                continue;
+            }
+            Matcher matcher = matchers[i];
+            int matching = matcher.next(ch);
+            if(matching == NO_MATCH) {
+                alive[i] = !matcher.isPrefixClosed();
+                continue;
+            }
+            result |= matching & PARTIAL_MATCH;
+            if((matching & FULL_MATCH) != 0 && matcher.getPriority() > bestPriority) {
+                KeyStroke keyStroke = matcher.getFullMatch();
+                if(keyStroke != null) {
+                    bestPriority = matcher.getPriority();
+                    fullMatch = keyStroke;
+                    result |= FULL_MATCH;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Key stroke of the full match found by the last call to {@link #next(char)}, if any
+     */
+    KeyStroke getFullMatch() {
+        return fullMatch;
+    }
+
+    private static Matcher compile(CharacterPattern pattern, int priority) {
+        if(isMatchedByLanterna(pattern)) {
+            if(pattern instanceof EscapeSequenceCharacterPattern) {
+                return new EscapeSequenceMatcher((EscapeSequenceCharacterPattern)pattern, priority);
+            }
+            if(pattern instanceof MouseCharacterPattern) {
+                return new MouseMatcher(priority);
+            }
+            if(pattern instanceof SGRMouseCharacterPattern) {
+                return new SGRMouseMatcher(priority);
+            }
+            if(pattern instanceof NormalCharacterPattern) {
+                return new SingleCharacterMatcher(false, false, priority);
+            }
+            if(pattern instanceof CtrlAndCharacterPattern) {
+                return new SingleCharacterMatcher(false, true, priority);
+            }
+            if(pattern instanceof AltAndCharacterPattern) {
+                return new SingleCharacterMatcher(true, false, priority);
+            }
+            if(pattern instanceof CtrlAltAndCharacterPattern) {
+                return new SingleCharacterMatcher(true, true, priority);
+            }
+        }
+        return new GenericMatcher(pattern, priority);
+    }
+
+    // The compiled matchers replicate the match(..) methods of this package, so they can only be used if the pattern
+    // doesn't have its own match(..)
+    private static boolean isMatchedByLanterna(CharacterPattern pattern) {
+        try {
+            Method match = pattern.getClass().getMethod("match", List.class);
+            return match.getDeclaringClass().getPackage() == CharacterPattern.class.getPackage();
+        }
+        catch(NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static abstract class Matcher {
+        private final int priority;
+
+        Matcher(int priority) {
+            this.priority = priority;
+        }
+
+        int getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return {@code true} if a sequence that doesn't match can't match again when more characters are added
+         */
+        boolean isPrefixClosed() {
+            return true;
+        }
+
+        abstract void reset();
+
+        abstract int next(char ch);
+
+        abstract KeyStroke getFullMatch();
+    }
+
+    private static class TrieMatcher extends Matcher {
+        private final TrieNode root;
+        private TrieNode current;
+        private int currentPriority;
+
+        TrieMatcher() {
+            super(-1);
+            this.root = new TrieNode();
+        }
+
+        void add(BasicCharacterPattern pattern, int priority) {
+            TrieNode node = root;
+            for(char ch: pattern.getPattern()) {
+                node = node.getOrAddChild(ch);
+            }
+            node.pattern = pattern;
+            node.priority = priority;
+        }
+
+        @Override
+        int getPriority() {
+            return currentPriority;
+        }
+
+        @Override
+        void reset() {
+            current = root;
+        }
+
+        @Override
+        int next(char ch) {
+            current = current.getChild(ch);
+            if(current == null) {
+                return NO_MATCH;
+            }
+            currentPriority = current.priority;
+            int result = current.childCount > 0 ? PARTIAL_MATCH : NO_MATCH;
+            return current.pattern != null ? result | FULL_MATCH : result;
+        }
+
+        @Override
+        KeyStroke getFullMatch() {
+            return current.pattern.getResult();
+        }
+    }
+
+    private static class TrieNode {
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        private int childCount;
+        private BasicCharacterPattern pattern;
+        private int priority;
+
+        TrieNode getChild(char ch) {
+            for(int i = 0; i < childCount; i++) {
+                if(keys[i] == ch) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        TrieNode getOrAddChild(char ch) {
+            TrieNode child = getChild(ch);
+            if(child == null) {
+                child = new TrieNode();
+                keys = Arrays.copyOf(keys, childCount + 1);
+                children = Arrays.copyOf(children, childCount + 1);
+                keys[childCount] = ch;
+                children[childCount] = child;
+                childCount++;
+            }
+            return child;
+        }
+    }
+
+    private static class EscapeSequenceMatcher extends Matcher {
+        private final EscapeSequenceCharacterPattern.Parser parser;
+
+        EscapeSequenceMatcher(EscapeSequenceCharacterPattern pattern, int priority) {
+            super(priority);
+            this.parser = pattern.new Parser();
+        }
+
+        @Override
+        void reset() {
+            parser.reset();
+        }
+
+        @Override
+        int next(char ch) {
+            switch(parser.next(ch)) {
+                case EscapeSequenceCharacterPattern.Parser.MATCH:
+                    return FULL_MATCH;
+                case EscapeSequenceCharacterPattern.Parser.NOT_YET:
+                    return PARTIAL_MATCH;
+                default:
+                    return NO_MATCH;
+            }
+        }
+
+        @Override
+        KeyStroke getFullMatch() {
+            return parser.getKeyStroke();
+        }
+    }
+
+    private static class MouseMatcher extends Matcher {
+        private final char[] sequence;
+        private int length;
+
+        MouseMatcher(int priority) {
+            super(priority);
+            this.sequence = new char[6];
+        }
+
+        @Override
+        void reset() {
+            length = 0;
+        }
+
+        @Override
+        int next(char ch) {
+            if(length == sequence.length ||
+                    (length < MouseCharacterPattern.PATTERN.length && ch != MouseCharacterPattern.PATTERN[length])) {
+                length = sequence.length;
+                return NO_MATCH;
+            }
+            sequence[length++] = ch;
+            return length == sequence.length ? FULL_MATCH : PARTIAL_MATCH;
+        }
+
+        @Override
+        KeyStroke getFullMatch() {
+            return MouseCharacterPattern.decode(sequence[3], sequence[4], sequence[5]);
+        }
+    }
+
+    private static class SGRMouseMatcher extends Matcher {
+        private final SGRMouseCharacterPattern.Parser parser;
+
+        SGRMouseMatcher(int priority) {
+            super(priority);
+            this.parser = new SGRMouseCharacterPattern.Parser();
+        }
+
+        @Override
+        void reset() {
+            parser.reset();
+        }
+
+        @Override
+        int next(char ch) {
+            switch(parser.next(ch)) {
+                case SGRMouseCharacterPattern.Parser.MATCH:
+                    return FULL_MATCH;
+                case SGRMouseCharacterPattern.Parser.NOT_YET:
+                    return PARTIAL_MATCH;
+                default:
+                    return NO_MATCH;
+            }
+        }
+
+        @Override
+        KeyStroke getFullMatch() {
+            return parser.getMouseAction();
+        }
+    }
+
+    // Normal, Ctrl, Alt and Ctrl+Alt characters: one character, optionally after Esc
+    private static class SingleCharacterMatcher extends Matcher {
+        private final boolean escapePrefix;
+        private final boolean ctrl;
+        private int length;
+        private KeyStroke keyStroke;
+
+        SingleCharacterMatcher(boolean escapePrefix, boolean ctrl, int priority) {
+            super(priority);
+            this.escapePrefix = escapePrefix;
+            this.ctrl = ctrl;
+        }
+
+        @Override
+        void reset() {
+            length = 0;
+            keyStroke = null;
+        }
+
+        @Override
+        int next(char ch) {
+            length++;
+            if(escapePrefix && length == 1) {
+                return ch == KeyDecodingProfile.ESC_CODE ? PARTIAL_MATCH : NO_MATCH;
+            }
+            if(length > (escapePrefix ? 2 : 1)) {
+                return NO_MATCH;
+            }
+            if(escapePrefix) {
+                keyStroke = ctrl ? CtrlAltAndCharacterPattern.decode(ch) : AltAndCharacterPattern.decode(ch);
+            }
+            else {
+                keyStroke = ctrl ? CtrlAndCharacterPattern.decode(ch) : NormalCharacterPattern.decode(ch);
+            }
+            return keyStroke != null ? FULL_MATCH : NO_MATCH;
+        }
+
+        @Override
+        KeyStroke getFullMatch() {
+            return keyStroke;
+        }
+    }
+
+    // Patterns from outside of lanterna are matched against the whole sequence each time, through a reused list view
+    private static class GenericMatcher extends Matcher {
+        private final CharacterPattern pattern;
+        private final CharacterSequence sequence;
+        private KeyStroke keyStroke;
+
+        GenericMatcher(CharacterPattern pattern, int priority) {
+            super(priority);
+            this.pattern = pattern;
+            this.sequence = new CharacterSequence();
+        }
+
+        @Override
+        boolean isPrefixClosed() {
+            // Nothing is known about the pattern, so it has to see every sequence like before
+            return false;
+        }
+
+        @Override
+        void reset() {
+            sequence.clear();
+            keyStroke = null;
+        }
+
+        @Override
+        int next(char ch) {
+            sequence.add(ch);
+            CharacterPattern.Matching matching = pattern.match(sequence);
+            if(matching == null) {
+                return NO_MATCH;
+            }
+            keyStroke = matching.fullMatch;
+            int result = matching.partialMatch ? PARTIAL_MATCH : NO_MATCH;
+            return keyStroke != null ? result | FULL_MATCH : result;
+        }
+
+        @Override
+        KeyStroke getFullMatch() {
+            return keyStroke;
+        }
+    }
+
+    private static class CharacterSequence extends AbstractList<Character> {
+        private char[] characters = new char[16];
+        private int size;
+
+        void add(char ch) {
+            if(size == characters.length) {
+                characters = Arrays.copyOf(characters, size * 2);
+            }
+            characters[size++] = ch;
+        }
+
+        @Override
+        public void clear() {
+            size = 0;
+        }
+
+        @Override
+        public Character get(int index) {
+            if(index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+            }
+            return characters[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -36,7 +36,14 @@ public class CtrlAltAndCharacterPattern implements CharacterPattern {
         if (size == 1) {
             return Matching.NOT_YET; // maybe later
         }
-        char ch = seq.get(1);
+        KeyStroke ks = decode(seq.get(1));
+        return ks != null ? new Matching( ks ) : null;
+    }
+
+    /**
+     * Returns the key stroke for the control character following Esc, or {@code null} if there is none
+     */
+    static KeyStroke decode(char ch) {
         if (ch < 32 && ch != 0x08) {
             // Control-chars: exclude Esc(^[), but still include ^\, ^], ^^ and ^_
             char ctrlCode;
@@ -49,11 +56,9 @@ public class CtrlAltAndCharacterPattern implements CharacterPattern {
             case 31: /* ^_ */ ctrlCode = '_'; break;
             default: ctrlCode = (char)('a' - 1 + ch);
             }
-            KeyStroke ks = new KeyStroke( ctrlCode, true, true);
-            return new Matching( ks ); // yep
+            return KeyStroke.of(ctrlCode, true, true); // yep
         } else if (ch == 0x7f || ch == 0x08) {
-            KeyStroke ks = new KeyStroke( KeyType.Backspace, false, true);
-            return new Matching( ks ); // yep
+            return KeyStroke.of(KeyType.Backspace, false, true, false); // yep
         } else {
             return null; // nope
         }
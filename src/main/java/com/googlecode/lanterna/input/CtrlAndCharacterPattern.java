@@ -32,6 +32,14 @@ public class CtrlAndCharacterPattern implements CharacterPattern {
         if (size != 1) {
             return null; // nope
         }
+        KeyStroke ks = decode(ch);
+        return ks != null ? new Matching( ks ) : null;
+    }
+
+    /**
+     * Returns the key stroke for a single control character, or {@code null} if there is none
+     */
+    static KeyStroke decode(char ch) {
         if (ch < 32) {
             // Control-chars: exclude lf,cr,Tab,Esc(^[), but still include ^\, ^], ^^ and ^_
             char ctrlCode;
@@ -45,8 +53,7 @@ public class CtrlAndCharacterPattern implements CharacterPattern {
             case 31: /* ^_ */ ctrlCode = '_'; break;
             default: ctrlCode = (char)('a' - 1 + ch);
             }
-            KeyStroke ks = new KeyStroke( ctrlCode, true, false);
-            return new Matching( ks ); // yep
+            return KeyStroke.of(ctrlCode, true, false); // yep
         } else {
             return null; // nope
         }
@@ -53,7 +53,8 @@ public class DefaultKeyDecodingProfile implements KeyDecodingProfile {
                                 new CtrlAndCharacterPattern(),
                                 new CtrlAltAndCharacterPattern(),
                                 new ScreenInfoCharacterPattern(),
-                                new MouseCharacterPattern()
+                                new MouseCharacterPattern(),
+                                new SGRMouseCharacterPattern()
                             }));
 
     @Override
@@ -145,7 +145,7 @@ public class EscapeSequenceCharacterPattern implements CharacterPattern {
             bAlt   = (mods & ALT)   != 0;
             bCtrl  = (mods & CTRL)  != 0;
         }
-        return new KeyStroke( key , bCtrl, bAlt, bShift);
+        return KeyStroke.of(key, bCtrl, bAlt, bShift);
     }
 
     /**
@@ -187,58 +187,112 @@ public class EscapeSequenceCharacterPattern implements CharacterPattern {
 
     @Override
     public Matching match(List<Character> cur) {
-        State state = State.START;
-        int num1 = 0, num2 = 0;
-        char first = '\0', last = '\0';
-        boolean bEsc = false;
-
+        Parser parser = new Parser();
         for (char ch : cur) {
+            if (parser.next(ch) == Parser.NO_MATCH) {
+                return null; // nope
+            }
+        }
+        if (parser.isDone()) {
+            return new Matching( parser.getKeyStroke() ); // yep
+        } else {
+            return Matching.NOT_YET; // maybe later
+        }
+    }
+
+    /**
+     * Parses a sequence one character at a time, without looking at the earlier characters again. Used both by
+     * {@link #match(List)} and by the input decoder, which feeds it characters as they arrive.
+     */
+    class Parser {
+        static final int NO_MATCH = 0;
+        static final int NOT_YET = 1;
+        static final int MATCH = 2;
+
+        private State state;
+        private int num1, num2;
+        private char first;
+        private boolean bEsc;
+        private KeyStroke keyStroke;
+
+        Parser() {
+            reset();
+        }
+
+        void reset() {
+            state = State.START;
+            num1 = 0;
+            num2 = 0;
+            first = '\0';
+            bEsc = false;
+            keyStroke = null;
+        }
+
+        boolean isDone() {
+            return state == State.DONE;
+        }
+
+        /**
+         * @return The key stroke of the sequence, once {@link #next(char)} has returned {@code MATCH}
+         */
+        KeyStroke getKeyStroke() {
+            return keyStroke;
+        }
+
+        /**
+         * Adds the next character of the sequence
+         * @param ch Next character
+         * @return {@code NO_MATCH} if the sequence can't match anymore, {@code MATCH} if it's a complete match,
+         * otherwise {@code NOT_YET}
+         */
+        int next(char ch) {
             switch (state) {
             case START:
                 if (ch != ESC_CODE) {
-                    return null; // nope
+                    return NO_MATCH; // nope
                 }
                 state = State.INTRO;
-                continue;
+                return NOT_YET;
             case INTRO:
                 // Recognize a second Escape to mean "Alt is pressed".
                 // (at least putty sends it that way)
                 if (useEscEsc && ch == ESC_CODE && ! bEsc) {
-                    bEsc = true; continue;
+                    bEsc = true;
+                    return NOT_YET;
                 }
 
                 // Key sequences supported by this class must
                 //    start either with Esc-[ or Esc-O
                 if (ch != '[' && ch != 'O') {
-                    return null; // nope
+                    return NO_MATCH; // nope
                 }
                 first = ch; state = State.NUM1;
-                continue;
+                return NOT_YET;
             case NUM1:
                 if (ch == ';') {
                     state = State.NUM2;
                 } else if (Character.isDigit(ch)) {
                     num1 = num1 * 10 + Character.digit(ch, 10);
                 } else {
-                    last = ch; state = State.DONE;
+                    return finish(ch);
                 }
-                continue;
+                return NOT_YET;
             case NUM2:
                 if (Character.isDigit(ch)) {
                     num2 = num2 * 10 + Character.digit(ch, 10);
                 } else {
-                    last = ch; state = State.DONE;
+                    return finish(ch);
                 }
-                continue;
-            case DONE: // once done, extra characters spoil it
-                return null; // nope
+                return NOT_YET;
+            default: // once done, extra characters spoil it
+                return NO_MATCH; // nope
             }
         }
-        if (state == State.DONE) {
-            KeyStroke ks = getKeyStrokeRaw(first,num1,num2,last,bEsc);
-            return ks != null ? new Matching( ks ) : null; // depends
-        } else {
-            return Matching.NOT_YET; // maybe later
+
+        private int finish(char last) {
+            state = State.DONE;
+            keyStroke = getKeyStrokeRaw(first, num1, num2, last, bEsc);
+            return keyStroke != null ? MATCH : NO_MATCH;
         }
     }
 }
@@ -18,12 +18,12 @@
  */
 package com.googlecode.lanterna.input;
 
-import com.googlecode.lanterna.input.CharacterPattern.Matching;
-
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Used to read the input stream character by character and generate {@code Key} objects to be put in the input queue.
@@ -31,11 +31,37 @@ import java.util.*;
  * @author Martin, Andreas
  */
 public class InputDecoder {
+    private static final long NANOS_PER_TIMEOUT_UNIT = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long MAX_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+    // Bounds for how long to park between readiness checks while waiting for the rest of an escape sequence
+    private static final long MIN_POLL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Markers terminals put around pasted text when bracketed paste mode is enabled
+    private static final char[] PASTE_START = { KeyDecodingProfile.ESC_CODE, '[', '2', '0', '0', '~' };
+    private static final char[] PASTE_END = { KeyDecodingProfile.ESC_CODE, '[', '2', '0', '1', '~' };
+    private static final int DEFAULT_MAX_PASTE_LENGTH = 1024 * 1024;
+    private static final long DEFAULT_PASTE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
     private final Reader source;
     private final List<CharacterPattern> bytePatterns;
-    private final List<Character> currentMatching;
+    // Characters read but not yet turned into a key stroke
+    private char[] currentMatching;
+    private int currentMatchingLength;
+    // Built from bytePatterns when needed and discarded whenever the patterns change, guarded by bytePatterns
+    private CompiledPatterns compiledPatterns;
+    // Text of a bracketed paste that has started but not yet ended, otherwise null
+    private StringBuilder pasteBuffer;
+    private char[] pasteReadBuffer;
+    private boolean pasteEndFound;
+    // Set when part of the current paste has already been delivered because it reached the maximum length
+    private boolean pasteContinued;
+    // Set while a paste is waiting for input that hasn't arrived, with the time it started waiting
+    private boolean pasteIdle;
+    private long pasteIdleSinceNanos;
     private boolean seenEOF;
-    private int timeoutUnits;
+    private volatile long timeoutNanos;
+    private volatile int maxPasteLength;
+    private volatile long pasteTimeoutNanos;
 
     /**
      * Creates a new input decoder using a specified Reader as the source to read characters from
@@ -44,9 +70,19 @@ public class InputDecoder {
     public InputDecoder(final Reader source) {
         this.source = new BufferedReader(source);
         this.bytePatterns = new ArrayList<CharacterPattern>();
-        this.currentMatching = new ArrayList<Character>();
+        this.currentMatching = new char[32];
+        this.currentMatchingLength = 0;
+        this.compiledPatterns = null;
+        this.pasteBuffer = null;
+        this.pasteReadBuffer = null;
+        this.pasteEndFound = false;
+        this.pasteContinued = false;
+        this.pasteIdle = false;
+        this.pasteIdleSinceNanos = 0;
         this.seenEOF = false;
-        this.timeoutUnits = 0; // default is no wait at all
+        this.timeoutNanos = 0; // default is no wait at all
+        this.maxPasteLength = DEFAULT_MAX_PASTE_LENGTH;
+        this.pasteTimeoutNanos = DEFAULT_PASTE_TIMEOUT_NANOS;
     }
 
     /**
@@ -60,6 +96,7 @@ public class InputDecoder {
                 //If an equivalent pattern already exists, remove it first
                 bytePatterns.remove(pattern);
                 bytePatterns.add(pattern);
+                compiledPatterns = null;
             }
         }
     }
@@ -81,6 +118,7 @@ public class InputDecoder {
      */
     public boolean removePattern(CharacterPattern pattern) {
         synchronized(bytePatterns) {
+            compiledPatterns = null;
             return bytePatterns.remove(pattern);
         }
     }
@@ -92,18 +130,97 @@ public class InputDecoder {
      * Negative numbers are mapped to 0 (no wait at all), and unreasonably high
      * values are mapped to a maximum of 240 (1 minute).
      * @param units New timeout to use, in 250ms units
+     * @see #setTimeout(long, TimeUnit)
      */
     public void setTimeoutUnits(int units) {
-        timeoutUnits = (units < 0) ? 0 :
-                       (units > 240) ? 240 :
-                        units;
+        setTimeout(Math.max(0, units) * NANOS_PER_TIMEOUT_UNIT, TimeUnit.NANOSECONDS);
     }
     /**
-     * queries the current timeoutUnits value. One unit is 1/4 second.
+     * queries the current timeoutUnits value. One unit is 1/4 second. If the timeout was set to something that isn't a
+     * whole number of units with {@link #setTimeout(long, TimeUnit)}, the value is rounded down.
      * @return The timeout this InputDecoder will use when waiting for additional input, in units of 1/4 seconds
      */
     public int getTimeoutUnits() {
-        return timeoutUnits;
+        return (int)(timeoutNanos / NANOS_PER_TIMEOUT_UNIT);
+    }
+
+    /**
+     * Sets for how long to wait for further input when what has been read so far is a complete key stroke but could
+     * also be the start of a longer escape-sequence, such as a lone ESC. The wait ends as soon as more input arrives,
+     * so a larger value only delays key strokes that really are ambiguous, like the Escape key itself.
+     * <p>
+     * A {@code Reader} can't be read with a deadline, so this isn't a true blocking wait: the decoder polls the source
+     * for readiness, parking for 50 microseconds at first and backing off to 1 millisecond between checks. The rest of
+     * a sequence is therefore picked up within about a millisecond of arriving, at the cost of some wake-ups while
+     * waiting.
+     * <p>
+     * The default is 0, which means a sequence like {@code ESC x} (Alt+x) is decoded as Escape followed by x if the two
+     * characters arrive in separate reads. {@link com.googlecode.lanterna.terminal.ansi.StreamBasedTerminal} sets a
+     * small timeout on its decoder to avoid this.
+     * <p>
+     * Negative values are mapped to 0 (no wait at all), and unreasonably high values are mapped to a maximum of 1
+     * minute.
+     * @param timeout New timeout to use
+     * @param unit Unit of the {@code timeout} value
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        timeoutNanos = (nanos < 0) ? 0 :
+                       (nanos > MAX_TIMEOUT_NANOS) ? MAX_TIMEOUT_NANOS :
+                        nanos;
+    }
+
+    /**
+     * Returns for how long this InputDecoder waits for further input to complete an ambiguous escape-sequence
+     * @param unit Unit to return the timeout in
+     * @return The timeout this InputDecoder will use when waiting for additional input, in the specified unit
+     */
+    public long getTimeout(TimeUnit unit) {
+        return unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets how many characters of a bracketed paste are collected at most before they are delivered. A longer paste is
+     * delivered as several {@link PasteEvent}s, so that a paste which never ends can't use up all memory. The default
+     * is 1M characters.
+     * @param maxPasteLength Maximum number of characters in one {@link PasteEvent}
+     */
+    public void setMaxPasteLength(int maxPasteLength) {
+        if(maxPasteLength < PASTE_END.length) {
+            throw new IllegalArgumentException("Maximum paste length must be at least " + PASTE_END.length + ", was " + maxPasteLength);
+        }
+        this.maxPasteLength = maxPasteLength;
+    }
+
+    /**
+     * Returns how many characters of a bracketed paste are collected at most before they are delivered
+     * @return Maximum number of characters in one {@link PasteEvent}
+     */
+    public int getMaxPasteLength() {
+        return maxPasteLength;
+    }
+
+    /**
+     * Sets for how long a bracketed paste may go without input before the text collected so far is delivered and the
+     * paste is considered to be over. This stops a lost end marker from swallowing all input that follows. The default
+     * is 1 second.
+     * @param timeout New paste timeout to use
+     * @param unit Unit of the {@code timeout} value
+     */
+    public void setPasteTimeout(long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        pasteTimeoutNanos = (nanos < 0) ? 0 :
+                            (nanos > MAX_TIMEOUT_NANOS) ? MAX_TIMEOUT_NANOS :
+                             nanos;
+    }
+
+    /**
+     * Returns for how long a bracketed paste may go without input before it is delivered as it is
+     * @param unit Unit to return the timeout in
+     * @return The paste timeout, in the specified unit
+     */
+    public long getPasteTimeout(TimeUnit unit) {
+        return unit.convert(pasteTimeoutNanos, TimeUnit.NANOSECONDS);
     }
 
     /**
@@ -114,28 +231,27 @@ public class InputDecoder {
      */
     public synchronized KeyStroke getNextCharacter(boolean blockingIO) throws IOException {
 
+        if(pasteBuffer != null) {
+            return readPaste(blockingIO);
+        }
+        CompiledPatterns patterns = getCompiledPatterns();
+        patterns.reset();
+        boolean pasteStartPrefix = true;
         KeyStroke bestMatch = null;
         int bestLen = 0;
         int curLen = 0;
 
         while(true) {
 
-            if ( curLen < currentMatching.size() ) {
+            if ( curLen < currentMatchingLength ) {
                 // (re-)consume characters previously read:
                 curLen++;
             }
             else {
                 // If we already have a bestMatch but a chance for a longer match
-                //   then we poll for the configured number of timeout units:
-                // It would be much better, if we could just read with a timeout,
-                //   but lacking that, we wait 1/4s units and check for readiness.
+                //   then we wait until more input arrives or the deadline passes:
                 if (bestMatch != null) {
-                    int timeout = getTimeoutUnits();
-                    while (timeout > 0 && ! source.ready() ) {
-                        try {
-                            timeout--; Thread.sleep(250);
-                        } catch (InterruptedException e) { timeout = 0; }
-                    }
+                    awaitInput(timeoutNanos);
                 }
                 // if input is available, we can just read a char without waiting,
                 // otherwise, for readInput() with no bestMatch found yet,
@@ -144,12 +260,12 @@ public class InputDecoder {
                     int readChar = source.read();
                     if (readChar == -1) {
                         seenEOF = true;
-                        if(currentMatching.isEmpty()) {
-                            return new KeyStroke(KeyType.EOF);
+                        if(currentMatchingLength == 0) {
+                            return KeyStroke.of(KeyType.EOF);
                         }
                         break;
                     }
-                    currentMatching.add( (char)readChar );
+                    appendToCurrentMatching((char)readChar);
                     curLen++;
                 } else { // no more available input at this time.
                     // already found something:
@@ -161,15 +277,28 @@ public class InputDecoder {
                 }
             }
 
-            List<Character> curSub = currentMatching.subList(0, curLen);
-            Matching matching = getBestMatch( curSub );
+            // The compiled patterns remember the characters they have seen, so only the new one is passed on
+            int matching = patterns.next(currentMatching[curLen - 1]);
+
+            // The start of a bracketed paste isn't a pattern, the pasted text is collected separately
+            if (pasteStartPrefix) {
+                pasteStartPrefix = currentMatching[curLen - 1] == PASTE_START[curLen - 1];
+                if (pasteStartPrefix && curLen == PASTE_START.length) {
+                    removeFromCurrentMatching(curLen);
+                    pasteBuffer = new StringBuilder();
+                    return readPaste(blockingIO);
+                }
+                else if (pasteStartPrefix) {
+                    matching |= CompiledPatterns.PARTIAL_MATCH;
+                }
+            }
 
             // fullMatch found...
-            if (matching.fullMatch != null) {
-                bestMatch = matching.fullMatch;
+            if ((matching & CompiledPatterns.FULL_MATCH) != 0) {
+                bestMatch = patterns.getFullMatch();
                 bestLen = curLen;
 
-                if (! matching.partialMatch) {
+                if ((matching & CompiledPatterns.PARTIAL_MATCH) == 0) {
                     // that match and no more
                     break;
                 } else {
@@ -180,7 +309,7 @@ public class InputDecoder {
                 }
             }
             // No match found yet, but there's still potential...
-            else if ( matching.partialMatch ) {
+            else if ((matching & CompiledPatterns.PARTIAL_MATCH) != 0) {
                 //noinspection UnnecessaryContinue
                 continue;
             }
@@ -191,8 +320,10 @@ public class InputDecoder {
                     break;
                 } else { // invalid input!
                     // remove the whole fail and re-try finding a KeyStroke...
-                    curSub.clear(); // or just 1 char?  currentMatching.remove(0);
+                    removeFromCurrentMatching(curLen); // or just 1 char?
                     curLen = 0;
+                    patterns.reset();
+                    pasteStartPrefix = true;
                     //noinspection UnnecessaryContinue
                     continue;
                 }
@@ -202,29 +333,181 @@ public class InputDecoder {
         //Did we find anything? Otherwise return null
         if(bestMatch == null) {
             if(seenEOF) {
-                currentMatching.clear();
-                return new KeyStroke(KeyType.EOF);
+                currentMatchingLength = 0;
+                return KeyStroke.of(KeyType.EOF);
             }
             return null;
         }
 
-        List<Character> bestSub = currentMatching.subList(0, bestLen );
-        bestSub.clear(); // remove matched characters from input
+        removeFromCurrentMatching(bestLen); // remove matched characters from input
         return bestMatch;
     }
 
-    private Matching getBestMatch(List<Character> characterSequence) {
-        boolean partialMatch = false;
-        KeyStroke bestMatch = null;
-        synchronized(bytePatterns) {
-            for(CharacterPattern pattern : bytePatterns) {
-                Matching res = pattern.match(characterSequence);
-                if (res != null) {
-                    if (res.partialMatch) { partialMatch = true; }
-                    if (res.fullMatch != null) { bestMatch = res.fullMatch; }
+    /**
+     * Collects the text of a bracketed paste until the end marker has been read, then returns all of it as one
+     * {@link PasteEvent}. If the rest of the paste hasn't arrived yet and we are not blocking, returns {@code null} and
+     * carries on from where it left off on the next call. A paste that reaches the maximum length is delivered in
+     * parts, and one that goes without input for longer than the paste timeout is delivered as it is.
+     */
+    private KeyStroke readPaste(boolean blockingIO) throws IOException {
+        pasteEndFound = false;
+        // Characters already read after the start marker are part of the paste
+        int end = appendToPaste(currentMatching, currentMatchingLength);
+        removeFromCurrentMatching(end < 0 ? currentMatchingLength : end);
+        if(pasteReadBuffer == null) {
+            pasteReadBuffer = new char[4096];
+        }
+        boolean pasteOver = false;
+        while(end < 0) {
+            if(!source.ready()) {
+                if(blockingIO) {
+                    awaitInput(pasteTimeoutNanos);
+                }
+                else {
+                    long now = System.nanoTime();
+                    if(!pasteIdle) {
+                        pasteIdle = true;
+                        pasteIdleSinceNanos = now;
+                    }
+                    if(now - pasteIdleSinceNanos < pasteTimeoutNanos) {
+                        return null;
+                    }
+                }
+                if(!source.ready()) {
+                    // The end marker is late or got lost, don't hold up the input after it any longer
+                    pasteOver = true;
+                    break;
                 }
             }
+            pasteIdle = false;
+            int count = source.read(pasteReadBuffer, 0, pasteReadBuffer.length);
+            if(count == -1) {
+                // Deliver what we got, the EOF is reported on the next read
+                seenEOF = true;
+                pasteOver = true;
+                break;
+            }
+            end = appendToPaste(pasteReadBuffer, count);
+            // Whatever wasn't added to the paste is kept, either as ordinary input after the end marker or as the
+            // continuation of a paste that has reached the maximum length
+            for(int i = (end < 0 ? count : end); i < count; i++) {
+                appendToCurrentMatching(pasteReadBuffer[i]);
+            }
+        }
+        pasteIdle = false;
+        String text;
+        if(pasteEndFound || pasteOver) {
+            text = pasteBuffer.toString();
+            pasteBuffer = null;
+            if(text.length() == 0 && pasteContinued) {
+                // All of the paste has been delivered already, there's no need for an empty event at the end
+                pasteContinued = false;
+                return getNextCharacter(blockingIO);
+            }
+            pasteContinued = false;
+        }
+        else {
+            // Keep a partial end marker in the buffer, so that it's still recognized when the rest of it arrives
+            int split = pasteBuffer.length() - getPartialPasteEndLength();
+            text = pasteBuffer.substring(0, split);
+            pasteBuffer.delete(0, split);
+            pasteContinued = true;
+        }
+        return new PasteEvent(text);
+    }
+
+    /**
+     * Adds characters to the paste being collected, stopping at the end marker or when the paste has reached the
+     * maximum length
+     * @return Index right after the last character added, or -1 if all characters were added
+     */
+    private int appendToPaste(char[] characters, int count) {
+        for(int i = 0; i < count; i++) {
+            char c = characters[i];
+            pasteBuffer.append(c);
+            if(c == PASTE_END[PASTE_END.length - 1] && endsWithPasteEnd()) {
+                pasteBuffer.setLength(pasteBuffer.length() - PASTE_END.length);
+                pasteEndFound = true;
+                return i + 1;
+            }
+            if(pasteBuffer.length() >= maxPasteLength) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Length of the longest end of the paste buffer that is the start of the end marker
+     */
+    private int getPartialPasteEndLength() {
+        for(int length = Math.min(PASTE_END.length - 1, pasteBuffer.length()); length > 0; length--) {
+            int offset = pasteBuffer.length() - length;
+            int i = 0;
+            while(i < length && pasteBuffer.charAt(offset + i) == PASTE_END[i]) {
+                i++;
+            }
+            if(i == length) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    private boolean endsWithPasteEnd() {
+        int offset = pasteBuffer.length() - PASTE_END.length;
+        if(offset < 0) {
+            return false;
+        }
+        for(int i = 0; i < PASTE_END.length; i++) {
+            if(pasteBuffer.charAt(offset + i) != PASTE_END[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the source has input ready or the timeout has elapsed, whichever comes first. A Reader can't be
+     * read with a deadline, so this checks for readiness with short parks in between, starting small so that the rest
+     * of a sequence which is already on its way is picked up right away and backing off towards
+     * {@code MAX_POLL_INTERVAL_NANOS} for slow links. An interrupt ends the wait early and is left set on the thread.
+     */
+    private void awaitInput(long timeout) throws IOException {
+        if(timeout <= 0 || source.ready()) {
+            return;
+        }
+        final long deadline = System.nanoTime() + timeout;
+        long interval = MIN_POLL_INTERVAL_NANOS;
+        long remaining = timeout;
+        while(remaining > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(this, Math.min(interval, remaining));
+            if(source.ready()) {
+                return;
+            }
+            interval = Math.min(interval * 2, MAX_POLL_INTERVAL_NANOS);
+            remaining = deadline - System.nanoTime();
         }
-        return new Matching(partialMatch, bestMatch);
+    }
+
+    private CompiledPatterns getCompiledPatterns() {
+        synchronized(bytePatterns) {
+            if(compiledPatterns == null) {
+                compiledPatterns = new CompiledPatterns(bytePatterns);
+            }
+            return compiledPatterns;
+        }
+    }
+
+    private void appendToCurrentMatching(char c) {
+        if(currentMatchingLength == currentMatching.length) {
+            currentMatching = Arrays.copyOf(currentMatching, currentMatchingLength * 2);
+        }
+        currentMatching[currentMatchingLength++] = c;
+    }
+
+    private void removeFromCurrentMatching(int count) {
+        System.arraycopy(currentMatching, count, currentMatching, 0, currentMatchingLength - count);
+        currentMatchingLength -= count;
     }
 }
@@ -19,6 +19,7 @@
 package com.googlecode.lanterna.input;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Objects implementing this interface can read character streams and transform them into {@code Key} objects which can
@@ -44,5 +45,18 @@ public interface InputProvider {
      */
     KeyStroke readInput() throws IOException;
 
+    /**
+     * Takes all {@code KeyStroke}s that are available right now off the input queue, up to a maximum number, and adds
+     * them in order to the end of the supplied list. Like {@code pollInput()}, this method is <b>not</b> blocking; it
+     * returns 0 immediately if there is nothing on the input stream. Reading a burst of input, such as a held down key
+     * or pasted text, this way is cheaper than calling {@code pollInput()} once per key stroke. Reading stops after an
+     * {@code EOF} key stroke, which will be the last one added.
+     * @param keyStrokes List to add the key strokes that were read to
+     * @param maxKeyStrokes Maximum number of key strokes to read
+     * @return Number of key strokes added to the list
+     * @throws java.io.IOException Propagated error if the underlying stream gave errors
+     */
+    int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) throws IOException;
+
     //TODO: Add a version of readInput() that takes a timeout specification, in a future version of lanterna
 }
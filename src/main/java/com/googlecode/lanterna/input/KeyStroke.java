@@ -36,6 +36,70 @@ import java.util.Arrays;
  * @author martin
  */
 public class KeyStroke {
+    // Shared instances handed out by the of(..) factory methods, indexed by key and modifiers
+    private static final char FIRST_CACHED_CHARACTER = ' ';
+    private static final char LAST_CACHED_CHARACTER = '~';
+    private static final KeyStroke[] CHARACTER_CACHE = new KeyStroke[(LAST_CACHED_CHARACTER - FIRST_CACHED_CHARACTER + 1) * 4];
+    private static final KeyStroke[] KEY_TYPE_CACHE = new KeyStroke[KeyType.values().length * 8];
+    static {
+        for(char c = FIRST_CACHED_CHARACTER; c <= LAST_CACHED_CHARACTER; c++) {
+            for(int modifiers = 0; modifiers < 4; modifiers++) {
+                CHARACTER_CACHE[(c - FIRST_CACHED_CHARACTER) * 4 + modifiers] =
+                        new KeyStroke(KeyType.Character, c, (modifiers & 1) != 0, (modifiers & 2) != 0, false, 0);
+            }
+        }
+        for(KeyType keyType: KeyType.values()) {
+            if(keyType == KeyType.Character) {
+                continue;
+            }
+            for(int modifiers = 0; modifiers < 8; modifiers++) {
+                KEY_TYPE_CACHE[keyType.ordinal() * 8 + modifiers] =
+                        new KeyStroke(keyType, null, (modifiers & 1) != 0, (modifiers & 2) != 0, (modifiers & 4) != 0, 0);
+            }
+        }
+    }
+
+    /**
+     * Returns a shared {@code KeyStroke} for a key type without any modifiers. Unlike the constructors, this doesn't
+     * create a new object, but the returned key stroke doesn't have an event time either.
+     * @param keyType Type of the key pressed, can't be {@code KeyType.Character}
+     * @return Shared {@code KeyStroke} for the key
+     */
+    public static KeyStroke of(KeyType keyType) {
+        return of(keyType, false, false, false);
+    }
+
+    /**
+     * Returns a shared {@code KeyStroke} for a key type and combination of modifiers. Unlike the constructors, this
+     * doesn't create a new object, but the returned key stroke doesn't have an event time either.
+     * @param keyType Type of the key pressed, can't be {@code KeyType.Character}
+     * @param ctrlDown Was ctrl held down when the main key was pressed?
+     * @param altDown Was alt held down when the main key was pressed?
+     * @param shiftDown Was shift held down when the main key was pressed?
+     * @return Shared {@code KeyStroke} for the key and modifiers
+     */
+    public static KeyStroke of(KeyType keyType, boolean ctrlDown, boolean altDown, boolean shiftDown) {
+        if(keyType == KeyType.Character) {
+            throw new IllegalArgumentException("Cannot get a KeyStroke with type KeyType.Character but no character information");
+        }
+        return KEY_TYPE_CACHE[keyType.ordinal() * 8 + (ctrlDown ? 1 : 0) + (altDown ? 2 : 0) + (shiftDown ? 4 : 0)];
+    }
+
+    /**
+     * Returns a {@code KeyStroke} for a typed character. For printable ASCII characters a shared instance without an
+     * event time is returned instead of creating a new object, other characters get a new {@code KeyStroke}.
+     * @param character Character that was typed on the keyboard
+     * @param ctrlDown Was ctrl held down when the main key was pressed?
+     * @param altDown Was alt held down when the main key was pressed?
+     * @return {@code KeyStroke} for the character and modifiers
+     */
+    public static KeyStroke of(char character, boolean ctrlDown, boolean altDown) {
+        if(character < FIRST_CACHED_CHARACTER || character > LAST_CACHED_CHARACTER) {
+            return new KeyStroke(character, ctrlDown, altDown);
+        }
+        return CHARACTER_CACHE[(character - FIRST_CACHED_CHARACTER) * 4 + (ctrlDown ? 1 : 0) + (altDown ? 2 : 0)];
+    }
+
     private final KeyType keyType;
     private final Character character;
     private final boolean ctrlDown;
@@ -106,6 +170,10 @@ public class KeyStroke {
     }
     
     private KeyStroke(KeyType keyType, Character character, boolean ctrlDown, boolean altDown, boolean shiftDown) {
+        this(keyType, character, ctrlDown, altDown, shiftDown, System.currentTimeMillis());
+    }
+
+    private KeyStroke(KeyType keyType, Character character, boolean ctrlDown, boolean altDown, boolean shiftDown, long eventTime) {
         if(keyType == KeyType.Character && character == null) {
             throw new IllegalArgumentException("Cannot construct a KeyStroke with type KeyType.Character but no character information");
         }
@@ -127,7 +195,7 @@ public class KeyStroke {
         this.shiftDown = shiftDown;
         this.ctrlDown = ctrlDown;
         this.altDown = altDown;
-        this.eventTime = System.currentTimeMillis();
+        this.eventTime = eventTime;
     }
 
     /**
@@ -172,8 +240,9 @@ public class KeyStroke {
 
     /**
      * Gets the time when the keystroke was recorded. This isn't necessarily the time the keystroke happened, but when
-     * Lanterna received the event, so it may not be accurate down to the millisecond.
-     * @return The unix time of when the keystroke happened, in milliseconds
+     * Lanterna received the event, so it may not be accurate down to the millisecond. Shared key strokes, from the
+     * {@code of(..)} methods, aren't tied to a single event and don't have an event time.
+     * @return The unix time of when the keystroke happened, in milliseconds, or 0 if there is no event time
      */
     public long getEventTime() {
         return eventTime;
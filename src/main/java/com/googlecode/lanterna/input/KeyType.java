@@ -83,6 +83,12 @@ public enum KeyType {
      * event capturing must first be enabled and many terminals don't suppose this extension at all.
      */
     MouseEvent,
+    /**
+     * This type is not really a key stroke but text that was pasted into the terminal, delivered all at once as a
+     * {@link PasteEvent}. Terminals only mark up pasted text like this if bracketed paste mode has been enabled, which
+     * it isn't by default.
+     */
+    Paste,
     /**
      * This value is returned when you try to read input and the input stream has been closed.
      */
@@ -29,7 +29,7 @@ import java.util.List;
  * @author Martin, Andreas
  */
 public class MouseCharacterPattern implements CharacterPattern {
-    private static final char[] PATTERN = { KeyDecodingProfile.ESC_CODE, '[', 'M' };
+    static final char[] PATTERN = { KeyDecodingProfile.ESC_CODE, '[', 'M' };
 
     @Override
     public Matching match(List<Character> seq) {
@@ -49,13 +49,20 @@ public class MouseCharacterPattern implements CharacterPattern {
         if (size < 6) {
             return Matching.NOT_YET; // maybe later
         }
+        return new Matching( decode(seq.get(3), seq.get(4), seq.get(5)) ); // yep
+    }
+
+    /**
+     * Returns the mouse action encoded by the three characters following {@code Esc [ M}
+     */
+    static MouseAction decode(char buttonCode, char column, char row) {
         MouseActionType actionType = null;
-        int button = (seq.get(3) & 0x3) + 1;
+        int button = (buttonCode & 0x3) + 1;
         if(button == 4) {
             //If last two bits are both set, it means button click release
             button = 0;
         }
-        int actionCode = (seq.get(3) & 0x60) >> 5;
+        int actionCode = (buttonCode & 0x60) >> 5;
         switch(actionCode) {
             case(1):
                 if(button > 0) {
@@ -84,9 +91,7 @@ public class MouseCharacterPattern implements CharacterPattern {
                 }
                 break;
         }
-        TerminalPosition pos = new TerminalPosition( seq.get(4) - 33, seq.get(5) - 33 );
-
-        MouseAction ma = new MouseAction(actionType, button, pos );
-        return new Matching( ma ); // yep
+        TerminalPosition pos = new TerminalPosition( column - 33, row - 33 );
+        return new MouseAction(actionType, button, pos );
     }
 }
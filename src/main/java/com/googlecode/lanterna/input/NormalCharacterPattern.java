@@ -31,10 +31,16 @@ public class NormalCharacterPattern implements CharacterPattern {
         if (seq.size() != 1) {
             return null; // nope
         }
-        char ch = seq.get(0);
+        KeyStroke ks = decode(seq.get(0));
+        return ks != null ? new Matching( ks ) : null;
+    }
+
+    /**
+     * Returns the key stroke for a single character, or {@code null} if it isn't a printable character
+     */
+    static KeyStroke decode(char ch) {
         if (isPrintableChar(ch)) {
-            KeyStroke ks = new KeyStroke(ch, false, false);
-            return new Matching( ks );
+            return KeyStroke.of(ch, false, false); // yep
         } else {
             return null; // nope
         }
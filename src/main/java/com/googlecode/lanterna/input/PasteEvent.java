@@ -0,0 +1,96 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.input;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PasteEvent, a KeyStroke in disguise, this class contains a piece of text that was pasted into the terminal. Terminals
+ * with bracketed paste mode enabled surround pasted text with special markers, which lets the whole paste be delivered
+ * as one event instead of one key stroke per character. Bracketed paste mode is off unless it's turned on, for example
+ * with {@link com.googlecode.lanterna.terminal.ansi.ANSITerminal#setBracketedPasteMode(boolean)}, so code reading input
+ * only gets these events if it asked for them. The GUI system hands a PasteEvent that the focused component doesn't
+ * handle back to it as ordinary key strokes, see {@link #toKeyStrokes()}.
+ * @author martin
+ */
+public class PasteEvent extends KeyStroke {
+    private final String text;
+
+    /**
+     * Constructs a PasteEvent carrying the text that was pasted
+     * @param text Text that was pasted, exactly as the terminal sent it
+     */
+    public PasteEvent(String text) {
+        super(KeyType.Paste, false, false);
+        if(text == null) {
+            throw new IllegalArgumentException("Cannot create a PasteEvent without text");
+        }
+        this.text = text;
+    }
+
+    /**
+     * Returns the text that was pasted. Line breaks are as the terminal sent them, which usually means {@code '\r'}.
+     * @return Text that was pasted
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the pasted text as the key strokes it would have been read as without bracketed paste mode. Line breaks
+     * become {@link KeyType#Enter}, with {@code "\r\n"} counted as one, tabs become {@link KeyType#Tab} and other
+     * control characters are left out.
+     * @return Key strokes typing out the pasted text
+     */
+    public List<KeyStroke> toKeyStrokes() {
+        List<KeyStroke> keyStrokes = new ArrayList<KeyStroke>(text.length());
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '\r' || c == '\n') {
+                if(c == '\n' && i > 0 && text.charAt(i - 1) == '\r') {
+                    continue;
+                }
+                keyStrokes.add(KeyStroke.of(KeyType.Enter));
+            }
+            else if(c == '\t') {
+                keyStrokes.add(KeyStroke.of(KeyType.Tab));
+            }
+            else if(!Character.isISOControl(c)) {
+                keyStrokes.add(KeyStroke.of(c, false, false));
+            }
+        }
+        return keyStrokes;
+    }
+
+    @Override
+    public int hashCode() {
+        return 41 * super.hashCode() + text.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return super.equals(obj) && text.equals(((PasteEvent)obj).text);
+    }
+
+    @Override
+    public String toString() {
+        return "PasteEvent{length=" + text.length() + '}';
+    }
+}
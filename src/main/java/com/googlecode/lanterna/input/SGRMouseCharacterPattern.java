@@ -0,0 +1,178 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.input;
+
+import com.googlecode.lanterna.TerminalPosition;
+
+import java.util.List;
+
+/**
+ * Pattern used to detect mouse events in the SGR extended format ({@code Esc [ < button ; column ; row M}, or a
+ * trailing {@code m} for button releases), which terminals send when mode 1006 is enabled. Unlike the legacy format
+ * decoded by {@link MouseCharacterPattern}, the coordinates are sent as decimal numbers so they are not limited to 223
+ * columns and rows, and releases tell which button was released.
+ *
+ * @author martin
+ */
+public class SGRMouseCharacterPattern implements CharacterPattern {
+    private static final char[] PREFIX = { KeyDecodingProfile.ESC_CODE, '[', '<' };
+    // Enough for any realistic coordinate, and keeps the numbers from overflowing on garbage input
+    private static final int MAX_DIGITS = 5;
+
+    @Override
+    public Matching match(List<Character> seq) {
+        Parser parser = new Parser();
+        for (char ch : seq) {
+            if (parser.next(ch) == Parser.NO_MATCH) {
+                return null; // nope
+            }
+        }
+        if (parser.isDone()) {
+            return new Matching( parser.getMouseAction() ); // yep
+        } else {
+            return Matching.NOT_YET; // maybe later
+        }
+    }
+
+    /**
+     * Returns the mouse action encoded by the numbers of a SGR mouse report
+     */
+    static MouseAction decode(int buttonCode, int column, int row, boolean pressed) {
+        MouseActionType actionType;
+        int button = (buttonCode & 0x3) + 1;
+        if((buttonCode & 0x40) != 0) {
+            if(button == 1) {
+                actionType = MouseActionType.SCROLL_UP;
+                button = 4;
+            }
+            else {
+                actionType = MouseActionType.SCROLL_DOWN;
+                button = 5;
+            }
+        }
+        else if((buttonCode & 0x20) != 0) {
+            if(button == 4) {
+                actionType = MouseActionType.MOVE;
+                button = 0;
+            }
+            else {
+                actionType = MouseActionType.DRAG;
+            }
+        }
+        else if(pressed && button != 4) {
+            actionType = MouseActionType.CLICK_DOWN;
+        }
+        else {
+            actionType = MouseActionType.CLICK_RELEASE;
+            if(button == 4) {
+                button = 0;
+            }
+        }
+        TerminalPosition pos = new TerminalPosition( Math.max(0, column - 1), Math.max(0, row - 1) );
+        return new MouseAction(actionType, button, pos );
+    }
+
+    /**
+     * Parses a sequence one character at a time, without looking at the earlier characters again. Used both by
+     * {@link #match(List)} and by the input decoder, which feeds it characters as they arrive.
+     */
+    static class Parser {
+        static final int NO_MATCH = 0;
+        static final int NOT_YET = 1;
+        static final int MATCH = 2;
+
+        private final int[] values;
+        private int prefixLength;
+        private int field;
+        private int digits;
+        private boolean failed;
+        private MouseAction mouseAction;
+
+        Parser() {
+            this.values = new int[3];
+            reset();
+        }
+
+        void reset() {
+            values[0] = values[1] = values[2] = 0;
+            prefixLength = 0;
+            field = 0;
+            digits = 0;
+            failed = false;
+            mouseAction = null;
+        }
+
+        boolean isDone() {
+            return mouseAction != null;
+        }
+
+        /**
+         * @return The mouse action of the sequence, once {@link #next(char)} has returned {@code MATCH}
+         */
+        MouseAction getMouseAction() {
+            return mouseAction;
+        }
+
+        /**
+         * Adds the next character of the sequence
+         * @param ch Next character
+         * @return {@code NO_MATCH} if the sequence can't match anymore, {@code MATCH} if it's a complete match,
+         * otherwise {@code NOT_YET}
+         */
+        int next(char ch) {
+            if (failed || isDone()) {
+                return fail();
+            }
+            if (prefixLength < PREFIX.length) {
+                if (ch != PREFIX[prefixLength]) {
+                    return fail();
+                }
+                prefixLength++;
+                return NOT_YET;
+            }
+            if (ch >= '0' && ch <= '9') {
+                if (digits == MAX_DIGITS) {
+                    return fail();
+                }
+                values[field] = values[field] * 10 + (ch - '0');
+                digits++;
+                return NOT_YET;
+            }
+            if (digits == 0) {
+                return fail();
+            }
+            if (ch == ';' && field < 2) {
+                field++;
+                digits = 0;
+                return NOT_YET;
+            }
+            if ((ch == 'M' || ch == 'm') && field == 2) {
+                mouseAction = decode(values[0], values[1], values[2], ch == 'M');
+                return MATCH;
+            }
+            return fail();
+        }
+
+        private int fail() {
+            failed = true;
+            mouseAction = null;
+            return NO_MATCH;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package com.googlecode.lanterna.screen;
 import com.googlecode.lanterna.TerminalTextUtils;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.graphics.PackedTextImage;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.graphics.TextImage;
@@ -48,6 +49,9 @@ public abstract class AbstractScreen implements Screen {
     //Pending resize of the screen
     private TerminalSize latestResizeRequest;
 
+    //Performs refreshes on a separate thread, if started
+    private volatile RefreshScheduler refreshScheduler;
+
     public AbstractScreen(TerminalSize initialSize) {
         this(initialSize, DEFAULT_CHARACTER);
     }
@@ -62,8 +66,31 @@ public abstract class AbstractScreen implements Screen {
      */
     @SuppressWarnings({"SameParameterValue", "WeakerAccess"})
     public AbstractScreen(TerminalSize initialSize, TextCharacter defaultCharacter) {
-        this.frontBuffer = new ScreenBuffer(initialSize, defaultCharacter);
-        this.backBuffer = new ScreenBuffer(initialSize, defaultCharacter);
+        this(initialSize, defaultCharacter, false);
+    }
+
+    /**
+     * Creates a new Screen on top of a supplied terminal, will query the terminal for its size. The screen is initially
+     * blank. You can specify which character you wish to be used to fill the screen initially; this will also be the
+     * character used if the terminal is enlarged and you don't set anything on the new areas.
+     * <p>
+     * If {@code packedBuffers} is {@code true}, the front- and back buffers will keep their content in
+     * {@link PackedTextImage}s, which uses much less memory and makes the buffers faster to compare, at the cost of
+     * creating a new {@link TextCharacter} every time a character is read back from the screen.
+     *
+     * @param initialSize Size to initially create the Screen with (can be resized later)
+     * @param defaultCharacter What character to use for the initial state of the screen and expanded areas
+     * @param packedBuffers Whether to store the screen buffers in primitive arrays instead of as TextCharacter objects
+     */
+    protected AbstractScreen(TerminalSize initialSize, TextCharacter defaultCharacter, boolean packedBuffers) {
+        if(packedBuffers) {
+            this.frontBuffer = new ScreenBuffer(new PackedTextImage(initialSize, defaultCharacter));
+            this.backBuffer = new ScreenBuffer(new PackedTextImage(initialSize, defaultCharacter));
+        }
+        else {
+            this.frontBuffer = new ScreenBuffer(initialSize, defaultCharacter);
+            this.backBuffer = new ScreenBuffer(initialSize, defaultCharacter);
+        }
         this.defaultCharacter = defaultCharacter;
         this.cursorPosition = new TerminalPosition(0, 0);
         this.tabBehaviour = TabBehaviour.ALIGN_TO_COLUMN_4;
@@ -181,9 +208,73 @@ public abstract class AbstractScreen implements Screen {
 
     @Override
     public void close() throws IOException {
+        stopRefreshScheduler();
         stopScreen();
     }
 
+    /**
+     * Starts a {@link RefreshScheduler} for this screen. While the scheduler is running, calling {@code refresh(..)}
+     * on the screen from any other thread than the render thread will return immediately and the actual refresh is
+     * performed by the scheduler, coalescing requests so that the screen is refreshed at most
+     * {@code maxFramesPerSecond} times per second.
+     * @param maxFramesPerSecond Maximum number of times per second to refresh the screen
+     * @return The scheduler that was started, which can be used to get frame timing statistics
+     * @throws IllegalStateException If a refresh scheduler is already running for this screen
+     */
+    public synchronized RefreshScheduler startRefreshScheduler(int maxFramesPerSecond) {
+        if(refreshScheduler != null) {
+            throw new IllegalStateException("A refresh scheduler is already running for this screen");
+        }
+        RefreshScheduler scheduler = new RefreshScheduler(this, maxFramesPerSecond);
+        scheduler.start();
+        refreshScheduler = scheduler;
+        return scheduler;
+    }
+
+    /**
+     * Stops the refresh scheduler of this screen, if there is one running. Any pending refresh is performed before
+     * this method returns and after that, calls to {@code refresh(..)} will be performed directly again.
+     */
+    public void stopRefreshScheduler() {
+        // Not synchronized on the screen, since the render thread may need the screen lock to finish its last frame
+        RefreshScheduler scheduler = refreshScheduler;
+        refreshScheduler = null;
+        if(scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    /**
+     * Returns the refresh scheduler currently running for this screen
+     * @return Refresh scheduler of this screen, or {@code null} if there isn't one running
+     */
+    public RefreshScheduler getRefreshScheduler() {
+        return refreshScheduler;
+    }
+
+    /**
+     * Makes the front buffer identical to the back buffer, which a screen implementation should do after having
+     * applied the back buffer to the output. Only rows modified in either buffer since the last time this method was
+     * called are copied, so the cost depends on how much has changed rather than on the size of the screen.
+     */
+    protected void syncFrontBuffer() {
+        backBuffer.copyDirtyRowsTo(frontBuffer);
+        backBuffer.clearDirtyRows();
+        frontBuffer.clearDirtyRows();
+    }
+
+    /**
+     * Hands a refresh over to the refresh scheduler, if there is one running and the calling thread isn't the render
+     * thread. Implementations of {@code refresh(RefreshType)} should call this first and return without refreshing if
+     * it returns {@code true}.
+     * @param refreshType Type of refresh that was requested
+     * @return {@code true} if the refresh scheduler will perform the refresh
+     */
+    protected boolean scheduleRefresh(RefreshType refreshType) {
+        RefreshScheduler scheduler = refreshScheduler;
+        return scheduler != null && !scheduler.isRenderThread() && scheduler.requestRefresh(refreshType);
+    }
+
     @Override
     public synchronized void clear() {
         backBuffer.setAll(defaultCharacter);
@@ -0,0 +1,74 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+/**
+ * Decides how {@link TerminalScreen} should move the text cursor between the cells it updates during a refresh. When
+ * the number of bytes sent to the terminal matters, for example over a slow network connection, picking the cheapest
+ * way of getting the cursor from one place to the next can save a good amount of output compared to always sending an
+ * absolute position.
+ *
+ * @see DefaultCursorMovementPlanner
+ * @see TerminalScreen#setCursorMovementPlanner(CursorMovementPlanner)
+ * @author martin
+ */
+public interface CursorMovementPlanner {
+    /**
+     * The different ways the screen can move the cursor
+     */
+    enum Movement {
+        /**
+         * Set the cursor position with absolute coordinates. This is always possible.
+         */
+        ABSOLUTE,
+        /**
+         * Move the cursor relative to where it is now, horizontally and/or vertically. Only possible if the terminal is
+         * an {@link com.googlecode.lanterna.terminal.ExtendedTerminal}.
+         */
+        RELATIVE,
+        /**
+         * Move the cursor to the start of the line (carriage return), then relative vertically if the target is on a
+         * different row. Only possible if the target is in the first column and the terminal is an
+         * {@link com.googlecode.lanterna.terminal.ExtendedTerminal}.
+         */
+        LINE_START,
+        /**
+         * Move the cursor forward by printing the characters between the current position and the target again. Only
+         * possible if the target is on the same row and all the cells in between can be re-printed.
+         */
+        REPRINT,
+        ;
+    }
+
+    /**
+     * Picks how to move the cursor from one position to another. If the method returns a movement that isn't possible
+     * for this particular move, the screen will fall back to {@link Movement#ABSOLUTE}.
+     *
+     * @param fromColumn Column the cursor is currently in
+     * @param fromRow Row the cursor is currently in
+     * @param toColumn Column to move the cursor to
+     * @param toRow Row to move the cursor to
+     * @param reprintableCells How many cells, starting at the current cursor position and going right, that can be
+     *                         re-printed with a single byte each and without changing the current style
+     * @param relativeMovementSupported {@code true} if the terminal supports {@link Movement#RELATIVE} and
+     *                                  {@link Movement#LINE_START}
+     * @return How the screen should move the cursor
+     */
+    Movement planMovement(int fromColumn, int fromRow, int toColumn, int toRow, int reprintableCells, boolean relativeMovementSupported);
+}
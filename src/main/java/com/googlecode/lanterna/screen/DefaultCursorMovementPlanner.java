@@ -0,0 +1,93 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+/**
+ * Default {@link CursorMovementPlanner}, which picks the movement that requires the fewest bytes to be sent, assuming the
+ * terminal understands ANSI escape sequences. When two movements cost the same, the absolute movement is preferred
+ * since it doesn't depend on where the terminal thinks the cursor is.
+ *
+ * @author martin
+ */
+public class DefaultCursorMovementPlanner implements CursorMovementPlanner {
+    @Override
+    public Movement planMovement(int fromColumn, int fromRow, int toColumn, int toRow, int reprintableCells, boolean relativeMovementSupported) {
+        Movement movement = Movement.ABSOLUTE;
+        int lowestCost = getAbsoluteMovementCost(toColumn, toRow);
+        if(relativeMovementSupported) {
+            int cost = getRelativeMovementCost(toColumn - fromColumn, toRow - fromRow);
+            if(cost < lowestCost) {
+                movement = Movement.RELATIVE;
+                lowestCost = cost;
+            }
+            if(toColumn == 0) {
+                // Carriage return is a single byte
+                cost = 1 + getRelativeMovementCost(0, toRow - fromRow);
+                if(cost < lowestCost) {
+                    movement = Movement.LINE_START;
+                    lowestCost = cost;
+                }
+            }
+        }
+        if(fromRow == toRow && toColumn > fromColumn && toColumn - fromColumn <= reprintableCells) {
+            if(toColumn - fromColumn < lowestCost) {
+                movement = Movement.REPRINT;
+            }
+        }
+        return movement;
+    }
+
+    /**
+     * Returns the number of bytes needed to send an absolute cursor position (CUP), {@code ESC [ row ; column H}
+     * @param column Column to move to (0-indexed)
+     * @param row Row to move to (0-indexed)
+     * @return Number of bytes in the escape sequence
+     */
+    static int getAbsoluteMovementCost(int column, int row) {
+        return 4 + countDigits(row + 1) + countDigits(column + 1);
+    }
+
+    /**
+     * Returns the number of bytes needed to move the cursor relative to its current position, using CUU/CUD for the
+     * vertical movement and CUF/CUB for the horizontal movement
+     * @param columns Horizontal distance
+     * @param rows Vertical distance
+     * @return Number of bytes in the escape sequences
+     */
+    static int getRelativeMovementCost(int columns, int rows) {
+        return getSingleAxisMovementCost(Math.abs(columns)) + getSingleAxisMovementCost(Math.abs(rows));
+    }
+
+    private static int getSingleAxisMovementCost(int distance) {
+        if(distance == 0) {
+            return 0;
+        }
+        // ESC [ n X, where n can be omitted if it's 1
+        return 3 + (distance == 1 ? 0 : countDigits(distance));
+    }
+
+    private static int countDigits(int value) {
+        int digits = 1;
+        while(value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+/**
+ * Selects which algorithm {@link TerminalScreen} uses when it needs to do a delta refresh, i.e. only updating the parts
+ * of the terminal that differs between the back buffer and the front buffer.
+ *
+ * @author martin
+ */
+public enum DeltaRefreshMode {
+    /**
+     * Scans the buffers row by row and writes each contiguous run of changed cells to the terminal directly as it is
+     * found, moving the cursor only once per run. This doesn't allocate any objects per changed cell and is the default.
+     */
+    RUNS,
+    /**
+     * The original algorithm, which first collects all changed cells into a map sorted on position and then writes
+     * them out one by one. This creates a number of objects per changed cell and is kept mainly for comparison.
+     */
+    POSITION_MAP,
+    ;
+}
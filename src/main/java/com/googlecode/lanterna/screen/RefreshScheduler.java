@@ -0,0 +1,346 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Performs refreshes of a {@link Screen} on a dedicated render thread, coalescing refresh requests so that the screen is
+ * refreshed at most a set number of times per second. When several threads ask for a refresh at about the same time,
+ * or one thread asks for a refresh many times in a short burst, only one frame is drawn for all of them. A request is
+ * never delayed by more than one frame interval plus the time it takes to draw the frame in progress.
+ * <p>
+ * You normally don't create this class directly but start it through
+ * {@link AbstractScreen#startRefreshScheduler(int)}, which makes {@code refresh()} on the screen go through the
+ * scheduler.
+ *
+ * @author martin
+ */
+public class RefreshScheduler {
+    private final Screen screen;
+    private final long frameIntervalNanos;
+    private final Thread renderThread;
+    private final Object lock;
+
+    // All of these are guarded by lock
+    private boolean running;
+    private Screen.RefreshType pendingRefreshType;
+    private long pendingSinceNanos;
+    private long lastFrameStartNanos;
+    private long requestCount;
+    private long frameCount;
+    private long totalFrameTimeNanos;
+    private long maxFrameTimeNanos;
+    private long lastFrameTimeNanos;
+    private long maxLatencyNanos;
+    private Exception lastException;
+
+    /**
+     * Creates a new scheduler for a screen. The scheduler won't do anything until {@link #start()} is called.
+     * @param screen Screen to refresh
+     * @param maxFramesPerSecond Maximum number of times per second the screen will be refreshed
+     */
+    public RefreshScheduler(Screen screen, int maxFramesPerSecond) {
+        if(maxFramesPerSecond <= 0) {
+            throw new IllegalArgumentException("Maximum frames per second must be positive, was " + maxFramesPerSecond);
+        }
+        this.screen = screen;
+        this.frameIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond;
+        this.lock = new Object();
+        this.running = false;
+        this.pendingRefreshType = null;
+        this.renderThread = new Thread("LanternaScreenRefresh") {
+            @Override
+            public void run() {
+                renderLoop();
+            }
+        };
+        this.renderThread.setDaemon(true);
+    }
+
+    /**
+     * Starts the render thread
+     */
+    public void start() {
+        synchronized(lock) {
+            if(running) {
+                return;
+            }
+            running = true;
+        }
+        renderThread.start();
+    }
+
+    /**
+     * Stops the render thread. If there is a refresh pending, it will be performed before the thread exits. Unless
+     * called from the render thread itself, this method waits until the thread has finished.
+     */
+    public void stop() {
+        synchronized(lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        if(Thread.currentThread() != renderThread && renderThread.isAlive()) {
+            try {
+                renderThread.join();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the scheduler has been started and not yet stopped
+     * @return {@code true} if the scheduler is accepting refresh requests
+     */
+    public boolean isRunning() {
+        synchronized(lock) {
+            return running;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the calling thread is the render thread of this scheduler
+     * @return {@code true} if called from the render thread
+     */
+    public boolean isRenderThread() {
+        return Thread.currentThread() == renderThread;
+    }
+
+    /**
+     * Asks for the screen to be refreshed. The refresh will be performed on the render thread as soon as the frame
+     * rate allows it, together with any other requests arriving before then. If requests with different refresh types
+     * are coalesced, the most thorough one wins: {@code COMPLETE} before {@code AUTOMATIC} before {@code DELTA}.
+     * @param refreshType What type of refresh to do
+     * @return {@code true} if the request was accepted, {@code false} if the scheduler isn't running
+     */
+    public boolean requestRefresh(Screen.RefreshType refreshType) {
+        synchronized(lock) {
+            if(!running) {
+                return false;
+            }
+            requestCount++;
+            if(pendingRefreshType == null) {
+                pendingRefreshType = refreshType;
+                pendingSinceNanos = System.nanoTime();
+                lock.notifyAll();
+            }
+            else {
+                pendingRefreshType = merge(pendingRefreshType, refreshType);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the last exception thrown by the screen when refreshing from the render thread, or {@code null} if there
+     * hasn't been any. This is either an {@code IOException} or a {@code RuntimeException}; the render thread keeps
+     * running after both.
+     * @return Last exception thrown while refreshing
+     */
+    public Exception getLastException() {
+        synchronized(lock) {
+            return lastException;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the frame timing statistics of this scheduler
+     * @return Statistics collected since the scheduler was created
+     */
+    public Statistics getStatistics() {
+        synchronized(lock) {
+            return new Statistics(
+                    requestCount,
+                    frameCount,
+                    frameCount == 0 ? 0 : totalFrameTimeNanos / frameCount,
+                    maxFrameTimeNanos,
+                    lastFrameTimeNanos,
+                    maxLatencyNanos);
+        }
+    }
+
+    private static Screen.RefreshType merge(Screen.RefreshType pending, Screen.RefreshType requested) {
+        if(pending == Screen.RefreshType.COMPLETE || requested == Screen.RefreshType.COMPLETE) {
+            return Screen.RefreshType.COMPLETE;
+        }
+        else if(pending == Screen.RefreshType.AUTOMATIC || requested == Screen.RefreshType.AUTOMATIC) {
+            return Screen.RefreshType.AUTOMATIC;
+        }
+        return Screen.RefreshType.DELTA;
+    }
+
+    private void renderLoop() {
+        while(true) {
+            Screen.RefreshType refreshType;
+            long latencyNanos;
+            synchronized(lock) {
+                while(running && pendingRefreshType == null) {
+                    waitOnLock(0);
+                }
+                if(pendingRefreshType == null) {
+                    return;
+                }
+                // Hold back until the frame interval has passed, any requests arriving meanwhile are coalesced
+                long now = System.nanoTime();
+                while(running && frameCount > 0 && now - lastFrameStartNanos < frameIntervalNanos) {
+                    waitOnLock(frameIntervalNanos - (now - lastFrameStartNanos));
+                    now = System.nanoTime();
+                }
+                refreshType = pendingRefreshType;
+                pendingRefreshType = null;
+                latencyNanos = now - pendingSinceNanos;
+                lastFrameStartNanos = now;
+            }
+
+            Exception exception = null;
+            long frameStart = System.nanoTime();
+            try {
+                screen.refresh(refreshType);
+            }
+            catch(IOException e) {
+                exception = e;
+            }
+            catch(RuntimeException e) {
+                // Keep the render thread alive, otherwise every later refresh request would be handed to a dead thread
+                exception = e;
+            }
+            catch(Error e) {
+                // Let refresh requests fall back to refreshing directly from now on
+                synchronized(lock) {
+                    running = false;
+                }
+                throw e;
+            }
+            finally {
+                recordFrame(System.nanoTime() - frameStart, latencyNanos, exception);
+            }
+        }
+    }
+
+    private void recordFrame(long frameTime, long latencyNanos, Exception exception) {
+        synchronized(lock) {
+            frameCount++;
+            totalFrameTimeNanos += frameTime;
+            lastFrameTimeNanos = frameTime;
+            maxFrameTimeNanos = Math.max(maxFrameTimeNanos, frameTime);
+            maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+            if(exception != null) {
+                lastException = exception;
+            }
+        }
+    }
+
+    private void waitOnLock(long nanos) {
+        try {
+            if(nanos <= 0) {
+                lock.wait();
+            }
+            else {
+                lock.wait(nanos / 1000000, (int)(nanos % 1000000));
+            }
+        }
+        catch(InterruptedException ignored) {}
+    }
+
+    /**
+     * Frame timing statistics collected by a {@link RefreshScheduler}. All times are in nanoseconds.
+     */
+    public static final class Statistics {
+        private final long requestCount;
+        private final long frameCount;
+        private final long averageFrameTimeNanos;
+        private final long maxFrameTimeNanos;
+        private final long lastFrameTimeNanos;
+        private final long maxLatencyNanos;
+
+        private Statistics(long requestCount, long frameCount, long averageFrameTimeNanos, long maxFrameTimeNanos, long lastFrameTimeNanos, long maxLatencyNanos) {
+            this.requestCount = requestCount;
+            this.frameCount = frameCount;
+            this.averageFrameTimeNanos = averageFrameTimeNanos;
+            this.maxFrameTimeNanos = maxFrameTimeNanos;
+            this.lastFrameTimeNanos = lastFrameTimeNanos;
+            this.maxLatencyNanos = maxLatencyNanos;
+        }
+
+        /**
+         * @return Number of refresh requests received
+         */
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        /**
+         * @return Number of frames drawn, i.e. how many times the screen was actually refreshed
+         */
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        /**
+         * @return Number of refresh requests that were merged into another request instead of getting a frame of
+         * their own
+         */
+        public long getCoalescedRequestCount() {
+            return requestCount - frameCount;
+        }
+
+        /**
+         * @return Average time spent refreshing the screen per frame
+         */
+        public long getAverageFrameTimeNanos() {
+            return averageFrameTimeNanos;
+        }
+
+        /**
+         * @return Longest time spent refreshing the screen for a single frame
+         */
+        public long getMaxFrameTimeNanos() {
+            return maxFrameTimeNanos;
+        }
+
+        /**
+         * @return Time spent refreshing the screen for the latest frame
+         */
+        public long getLastFrameTimeNanos() {
+            return lastFrameTimeNanos;
+        }
+
+        /**
+         * @return Longest time a refresh request has been waiting before its frame started
+         */
+        public long getMaxLatencyNanos() {
+            return maxLatencyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "RefreshScheduler.Statistics{" +
+                    "requests=" + requestCount +
+                    ", frames=" + frameCount +
+                    ", averageFrameTimeNanos=" + averageFrameTimeNanos +
+                    ", maxFrameTimeNanos=" + maxFrameTimeNanos +
+                    ", lastFrameTimeNanos=" + lastFrameTimeNanos +
+                    ", maxLatencyNanos=" + maxLatencyNanos +
+                    '}';
+        }
+    }
+}
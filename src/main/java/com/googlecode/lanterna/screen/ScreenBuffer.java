@@ -21,18 +21,34 @@ package com.googlecode.lanterna.screen;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.graphics.AbstractTextGraphics;
 import com.googlecode.lanterna.graphics.BasicTextImage;
+import com.googlecode.lanterna.graphics.PackedTextImage;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.graphics.TextImage;
 
+import java.util.BitSet;
+
 /**
  * Defines a buffer used by AbstractScreen and its subclasses to keep its state of what's currently displayed and what 
  * the edit buffer looks like. A ScreenBuffer is essentially a two-dimensional array of TextCharacter with some utility
  * methods to inspect and manipulate it in a safe way.
+ * <p>
+ * The buffer keeps track of which rows have been modified since the last call to {@code clearDirtyRows()}, which lets
+ * the screen skip rows that can't have changed when refreshing. It can also compute a hash of the content of each row;
+ * these are calculated on demand and cached until the row is modified again.
+ * <p>
+ * By default the content is stored in a {@link BasicTextImage}, but any {@link TextImage} can be used as the storage. If
+ * a {@link PackedTextImage} is used, comparisons between two buffers will work directly on the primitive arrays.
  * @author martin
  */
 public class ScreenBuffer implements TextImage {    
-    private final BasicTextImage backend;
+    private final TextImage backend;
+    private final BitSet dirtyRows;
+    private final BitSet validRowHashes;
+    private final int[] rowHashes;
+    // Incremented on every change to the content, lets a copy of the buffer tell if it's still up to date
+    private long modificationCount;
     
     /**
      * Creates a new ScreenBuffer with a given size and a TextCharacter to initially fill it with
@@ -43,13 +59,24 @@ public class ScreenBuffer implements TextImage {
         this(new BasicTextImage(size, filler));
     }
     
-    private ScreenBuffer(BasicTextImage backend) {
+    /**
+     * Creates a new ScreenBuffer that stores its content in the supplied TextImage. The ScreenBuffer will take ownership
+     * of the image, it shouldn't be modified directly afterwards.
+     * @param backend TextImage to use as storage for the buffer
+     */
+    public ScreenBuffer(TextImage backend) {
+        int rows = backend.getSize().getRows();
         this.backend = backend;
+        this.dirtyRows = new BitSet(rows);
+        this.validRowHashes = new BitSet(rows);
+        this.rowHashes = new int[rows];
+        this.dirtyRows.set(0, rows);
+        this.modificationCount = 0;
     }
     
     @Override
     public ScreenBuffer resize(TerminalSize newSize, TextCharacter filler) {
-        BasicTextImage resizedBackend = backend.resize(newSize, filler);
+        TextImage resizedBackend = backend.resize(newSize, filler);
         return new ScreenBuffer(resizedBackend);
     }
     
@@ -59,9 +86,9 @@ public class ScreenBuffer implements TextImage {
                     + " This is probably a bug in Lanterna.");
         }
         int differences = 0;
-        for(int y = 0; y < getSize().getRows(); y++) {
+        for(int y = nextDirtyRow(other, 0); y >= 0; y = nextDirtyRow(other, y + 1)) {
             for(int x = 0; x < getSize().getColumns(); x++) {
-                if(!getCharacterAt(x, y).equals(other.getCharacterAt(x, y))) {
+                if(!isCellEqual(other, x, y)) {
                     if(++differences >= threshold) {
                         return true;
                     }
@@ -71,8 +98,176 @@ public class ScreenBuffer implements TextImage {
         return false;
     }
 
+    /**
+     * Returns the index of the next row, starting from {@code fromRow}, that is dirty in either this buffer or the other
+     * buffer. Rows that are clean in both buffers haven't been touched since they were last synchronized.
+     * @param other Buffer to consider the dirty rows of, in addition to this buffer's
+     * @param fromRow Row index to start searching from
+     * @return Index of the next row that is dirty in either buffer or -1 if there are no more dirty rows
+     */
+    int nextDirtyRow(ScreenBuffer other, int fromRow) {
+        int row = dirtyRows.nextSetBit(fromRow);
+        int otherRow = other.dirtyRows.nextSetBit(fromRow);
+        if(row == -1 || (otherRow != -1 && otherRow < row)) {
+            return otherRow;
+        }
+        return row;
+    }
+
+    /**
+     * Checks if a cell in this buffer is identical to the cell at the same position in another buffer. If both buffers
+     * are backed by {@link PackedTextImage}, this doesn't create any objects.
+     * @param other Buffer to compare with
+     * @param column Column of the cell
+     * @param row Row of the cell
+     * @return {@code true} if the two cells have the same character, colors and modifiers
+     */
+    boolean isCellEqual(ScreenBuffer other, int column, int row) {
+        if(backend instanceof PackedTextImage && other.backend instanceof PackedTextImage) {
+            return ((PackedTextImage)backend).cellEquals(column, row, (PackedTextImage)other.backend);
+        }
+        return backend.getCharacterAt(column, row).equals(other.backend.getCharacterAt(column, row));
+    }
+
+    /**
+     * Checks if two cells of this buffer are identical. If the buffer is backed by a {@link PackedTextImage}, this
+     * doesn't create any objects.
+     * @return {@code true} if the two cells have the same character, colors and modifiers
+     */
+    boolean isCellEqual(int column, int row, int otherColumn, int otherRow) {
+        if(backend instanceof PackedTextImage) {
+            return ((PackedTextImage)backend).cellEquals(column, row, otherColumn, otherRow);
+        }
+        return backend.getCharacterAt(column, row).equals(backend.getCharacterAt(otherColumn, otherRow));
+    }
+
+    /**
+     * Checks if two cells of this buffer have the same colors and modifiers. If the buffer is backed by a
+     * {@link PackedTextImage}, this doesn't create any objects.
+     * @return {@code true} if the two cells have the same style
+     */
+    boolean isStyleEqual(int column, int row, int otherColumn, int otherRow) {
+        if(backend instanceof PackedTextImage) {
+            return ((PackedTextImage)backend).styleEquals(column, row, otherColumn, otherRow);
+        }
+        return backend.getCharacterAt(column, row).getStyle().equals(backend.getCharacterAt(otherColumn, otherRow).getStyle());
+    }
+
+    /**
+     * Returns the character at a position in the buffer, without any color or modifier information. If the buffer is
+     * backed by a {@link PackedTextImage}, this doesn't create any objects.
+     * @param column Column of the cell
+     * @param row Row of the cell
+     * @return Character in the cell
+     */
+    char getCharAt(int column, int row) {
+        if(backend instanceof PackedTextImage) {
+            return ((PackedTextImage)backend).getCharAt(column, row);
+        }
+        return backend.getCharacterAt(column, row).getCharacter();
+    }
+
+    /**
+     * Returns the colors and modifiers of a cell, packed like {@link PackedTextImage#getPackedStyleAt(int, int)} does.
+     * If the buffer is backed by a {@link PackedTextImage}, this doesn't create any objects.
+     * @param column Column of the cell
+     * @param row Row of the cell
+     * @return Packed style of the cell
+     */
+    long getPackedStyleAt(int column, int row) {
+        if(backend instanceof PackedTextImage) {
+            return ((PackedTextImage)backend).getPackedStyleAt(column, row);
+        }
+        return PackedTextImage.packStyle(backend.getCharacterAt(column, row).getStyle());
+    }
+
+    /**
+     * Returns {@code true} if the row has been modified since the last call to {@code clearDirtyRows()}. A dirty row
+     * may still have the same content as before, if it was overwritten with the same characters.
+     * @param row Index of the row to check
+     * @return {@code true} if the row has been modified
+     */
+    boolean isRowDirty(int row) {
+        return dirtyRows.get(row);
+    }
+
+    /**
+     * Returns the index of the first dirty row that is on or after {@code fromRow}
+     * @param fromRow Row index to start searching from
+     * @return Index of the next dirty row or -1 if there are no more dirty rows
+     */
+    int nextDirtyRow(int fromRow) {
+        return dirtyRows.nextSetBit(fromRow);
+    }
+
+    /**
+     * Returns {@code true} if any row in the buffer has been modified since the last call to {@code clearDirtyRows()}
+     * @return {@code true} if there is at least one dirty row
+     */
+    boolean hasDirtyRows() {
+        return !dirtyRows.isEmpty();
+    }
+
+    /**
+     * Marks all rows in the buffer as clean, this is normally done after the screen has synchronized the front buffer
+     * with the back buffer.
+     */
+    void clearDirtyRows() {
+        dirtyRows.clear();
+    }
+
+    /**
+     * Returns a counter that is increased whenever the content of the buffer is modified. Unlike the dirty rows, this
+     * isn't reset when the screen is refreshed, so it can tell if anything at all has changed since it was last read.
+     * @return Modification counter of the buffer
+     */
+    long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Returns a hash of the content of a row, including the colors and modifiers of each character. The hash is
+     * computed when first requested and then kept until the row is modified.
+     * @param row Index of the row to get the hash for
+     * @return Hash of the content in the row
+     */
+    int getRowHash(int row) {
+        if(!validRowHashes.get(row)) {
+            int hash = 1;
+            if(backend instanceof PackedTextImage) {
+                hash = ((PackedTextImage)backend).getRowHash(row);
+            }
+            else {
+                for(int column = 0; column < getSize().getColumns(); column++) {
+                    hash = 31 * hash + backend.getCharacterAt(column, row).hashCode();
+                }
+            }
+            rowHashes[row] = hash;
+            validRowHashes.set(row);
+        }
+        return rowHashes[row];
+    }
+
+    private void markRowDirty(int row) {
+        if(row >= 0 && row < rowHashes.length) {
+            dirtyRows.set(row);
+            validRowHashes.clear(row);
+            modificationCount++;
+        }
+    }
+
+    private void markRowsDirty(int firstRow, int lastRow) {
+        firstRow = Math.max(firstRow, 0);
+        lastRow = Math.min(lastRow, rowHashes.length - 1);
+        if(firstRow <= lastRow) {
+            dirtyRows.set(firstRow, lastRow + 1);
+            validRowHashes.clear(firstRow, lastRow + 1);
+            modificationCount++;
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////////
-    //  Delegate all TextImage calls (except resize) to the backend BasicTextImage
+    //  Delegate all TextImage calls (except resize) to the backend TextImage
     @Override
     public TerminalSize getSize() {
         return backend.getSize();
@@ -90,38 +285,100 @@ public class ScreenBuffer implements TextImage {
 
     @Override
     public void setCharacterAt(TerminalPosition position, TextCharacter character) {
-        backend.setCharacterAt(position, character);
+        setCharacterAt(position.getColumn(), position.getRow(), character);
     }
 
     @Override
     public void setCharacterAt(int column, int row, TextCharacter character) {
         backend.setCharacterAt(column, row, character);
+        markRowDirty(row);
     }
 
     @Override
     public void setAll(TextCharacter character) {
         backend.setAll(character);
+        markRowsDirty(0, rowHashes.length - 1);
     }
 
     @Override
     public TextGraphics newTextGraphics() {
-        return backend.newTextGraphics();
+        return new AbstractTextGraphics() {
+            @Override
+            public TextGraphics setCharacter(int columnIndex, int rowIndex, TextCharacter textCharacter) {
+                ScreenBuffer.this.setCharacterAt(columnIndex, rowIndex, textCharacter);
+                return this;
+            }
+
+            @Override
+            public TextCharacter getCharacter(int column, int row) {
+                return ScreenBuffer.this.getCharacterAt(column, row);
+            }
+
+            @Override
+            public TerminalSize getSize() {
+                return ScreenBuffer.this.getSize();
+            }
+        };
     }
 
     @Override
     public void copyTo(TextImage destination) {
         if(destination instanceof ScreenBuffer) {
-            //This will allow the BasicTextImage's copy method to use System.arraycopy (micro-optimization?)
-            destination = ((ScreenBuffer)destination).backend;
+            //This will allow the backend's copy method to use System.arraycopy (micro-optimization?)
+            ScreenBuffer destinationBuffer = (ScreenBuffer)destination;
+            backend.copyTo(destinationBuffer.backend);
+            if(getSize().equals(destinationBuffer.getSize()) &&
+                    backend.getClass() == destinationBuffer.backend.getClass()) {
+                //The destination is now an exact copy, so it can have our row hashes as well
+                destinationBuffer.dirtyRows.set(0, rowHashes.length);
+                destinationBuffer.modificationCount++;
+                System.arraycopy(rowHashes, 0, destinationBuffer.rowHashes, 0, rowHashes.length);
+                destinationBuffer.validRowHashes.clear();
+                destinationBuffer.validRowHashes.or(validRowHashes);
+            }
+            else {
+                destinationBuffer.markRowsDirty(0, rowHashes.length - 1);
+            }
+            return;
         }
         backend.copyTo(destination);
     }
 
+    /**
+     * Makes {@code destination} identical to this buffer by copying only the rows that are dirty in either of the two
+     * buffers. This assumes the buffers were identical the last time their dirty rows were cleared, which is how a
+     * screen keeps its front- and back buffers. If the buffers are of different size or use different kinds of
+     * storage, everything is copied. The dirty rows are left as they are.
+     * @param destination Buffer to synchronize with the content of this buffer
+     */
+    void copyDirtyRowsTo(ScreenBuffer destination) {
+        if(!getSize().equals(destination.getSize()) || backend.getClass() != destination.backend.getClass()) {
+            copyTo(destination);
+            return;
+        }
+        int columns = getSize().getColumns();
+        for(int row = nextDirtyRow(destination, 0); row >= 0 && row < rowHashes.length; row = nextDirtyRow(destination, row + 1)) {
+            backend.copyTo(destination.backend, row, 1, 0, columns, row, 0);
+            destination.dirtyRows.set(row);
+            destination.modificationCount++;
+            if(validRowHashes.get(row)) {
+                destination.rowHashes[row] = rowHashes[row];
+                destination.validRowHashes.set(row);
+            }
+            else {
+                destination.validRowHashes.clear(row);
+            }
+        }
+    }
+
     @Override
     public void copyTo(TextImage destination, int startRowIndex, int rows, int startColumnIndex, int columns, int destinationRowOffset, int destinationColumnOffset) {
         if(destination instanceof ScreenBuffer) {
-            //This will allow the BasicTextImage's copy method to use System.arraycopy (micro-optimization?)
-            destination = ((ScreenBuffer)destination).backend;
+            //This will allow the backend's copy method to use System.arraycopy (micro-optimization?)
+            ScreenBuffer destinationBuffer = (ScreenBuffer)destination;
+            backend.copyTo(destinationBuffer.backend, startRowIndex, rows, startColumnIndex, columns, destinationRowOffset, destinationColumnOffset);
+            destinationBuffer.markRowsDirty(destinationRowOffset, destinationRowOffset + rows - 1);
+            return;
         }
         backend.copyTo(destination, startRowIndex, rows, startColumnIndex, columns, destinationRowOffset, destinationColumnOffset);
     }
@@ -138,11 +395,13 @@ public class ScreenBuffer implements TextImage {
      */
     public void copyFrom(TextImage source, int startRowIndex, int rows, int startColumnIndex, int columns, int destinationRowOffset, int destinationColumnOffset) {
         source.copyTo(backend, startRowIndex, rows, startColumnIndex, columns, destinationRowOffset, destinationColumnOffset);
+        markRowsDirty(destinationRowOffset, destinationRowOffset + rows - 1);
     }
 
     @Override
     public void scrollLines(int firstLine, int lastLine, int distance) {
         backend.scrollLines(firstLine, lastLine, distance);
+        markRowsDirty(firstLine, lastLine);
     }
     
     @Override
@@ -0,0 +1,268 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+import com.googlecode.lanterna.TerminalTextUtils;
+import com.googlecode.lanterna.TextStyle;
+import com.googlecode.lanterna.graphics.PackedTextImage;
+
+import java.util.Arrays;
+
+/**
+ * The differences between a back buffer and a front buffer, as a list of spans of changed cells. The change set is
+ * computed in a single pass over the rows that are dirty in either buffer and is then used both to decide if the
+ * terminal is cheaper to redraw completely or incrementally, and to drive the incremental update. The decision is made
+ * by estimating how many bytes each of the two alternatives would send to the terminal, including the SGR sequences
+ * for switching colors and modifiers.
+ * <p>
+ * A change set is meant to be re-used between refreshes, so that the span arrays only need to be allocated again when
+ * the number of spans grows.
+ * @author martin
+ */
+class ScreenChangeSet {
+    // "ESC [ 2 J"
+    private static final int CLEAR_SCREEN_COST = 4;
+    private static final long DEFAULT_STYLE = PackedTextImage.packStyle(TextStyle.DEFAULT);
+
+    private ScreenBuffer backBuffer;
+    private int rows;
+    private int columns;
+    private int spanCount;
+    private int[] spanRows;
+    private int[] spanStarts;
+    private int[] spanEnds;
+    private int changedCells;
+    private int deltaCost;
+    // Style the terminal is left in after the spans counted so far have been drawn
+    private long deltaStyle;
+    private int fullCost;
+    private boolean[] rowsCounted;
+    private final FullRowCost fullRowCost;
+
+    ScreenChangeSet() {
+        this.spanRows = new int[16];
+        this.spanStarts = new int[16];
+        this.spanEnds = new int[16];
+        this.rowsCounted = new boolean[0];
+        this.fullRowCost = new FullRowCost();
+    }
+
+    /**
+     * Compares the back buffer with the front buffer and records all spans of changed cells, replacing the previous
+     * content of this change set. Rows that are not dirty in either buffer are assumed to be identical and are skipped.
+     * The cost of redrawing the compared rows from scratch is counted in the same pass.
+     * @param backBuffer Buffer with the content that should be on the terminal
+     * @param frontBuffer Buffer with the content currently on the terminal
+     */
+    void compute(ScreenBuffer backBuffer, ScreenBuffer frontBuffer) {
+        this.backBuffer = backBuffer;
+        this.rows = Math.min(backBuffer.getSize().getRows(), frontBuffer.getSize().getRows());
+        this.columns = Math.min(backBuffer.getSize().getColumns(), frontBuffer.getSize().getColumns());
+        this.spanCount = 0;
+        this.changedCells = 0;
+        this.deltaCost = 0;
+        this.deltaStyle = DEFAULT_STYLE;
+        this.fullCost = CLEAR_SCREEN_COST;
+        this.fullRowCost.reset();
+        if(rowsCounted.length != rows) {
+            rowsCounted = new boolean[rows];
+        }
+        else {
+            Arrays.fill(rowsCounted, false);
+        }
+
+        for(int row = backBuffer.nextDirtyRow(frontBuffer, 0);
+                row >= 0 && row < rows;
+                row = backBuffer.nextDirtyRow(frontBuffer, row + 1)) {
+            int spanStart = -1;
+            int column = 0;
+            fullRowCost.startRow();
+            while(column < columns) {
+                char character = backBuffer.getCharAt(column, row);
+                long style = backBuffer.getPackedStyleAt(column, row);
+                boolean changed = !backBuffer.isCellEqual(frontBuffer, column, row);
+                if(changed) {
+                    if(spanStart == -1) {
+                        spanStart = column;
+                    }
+                    deltaCost += PackedTextImage.getStyleChangeCost(deltaStyle, style) + getCharacterCost(character);
+                    deltaStyle = style;
+                }
+                else if(spanStart != -1) {
+                    addSpan(row, spanStart, column);
+                    spanStart = -1;
+                }
+                fullRowCost.addCell(column, character, style);
+                column += TerminalTextUtils.isCharCJK(character) ? 2 : 1;
+            }
+            if(spanStart != -1) {
+                // May end past the last column if the span ends with a CJK character
+                addSpan(row, spanStart, column);
+            }
+            fullCost += fullRowCost.endRow(row);
+            rowsCounted[row] = true;
+        }
+    }
+
+    private void addSpan(int row, int start, int end) {
+        if(spanCount == spanRows.length) {
+            int newLength = spanRows.length * 2;
+            spanRows = Arrays.copyOf(spanRows, newLength);
+            spanStarts = Arrays.copyOf(spanStarts, newLength);
+            spanEnds = Arrays.copyOf(spanEnds, newLength);
+        }
+        spanRows[spanCount] = row;
+        spanStarts[spanCount] = start;
+        spanEnds[spanCount] = end;
+        spanCount++;
+        changedCells += end - start;
+        // The characters and style changes of the span were counted while comparing
+        deltaCost += DefaultCursorMovementPlanner.getAbsoluteMovementCost(start, row);
+    }
+
+    /**
+     * Estimates the cost of drawing a row, that wasn't part of the diff, onto a cleared screen
+     */
+    private int getFullRowCost(int row) {
+        fullRowCost.startRow();
+        int column = 0;
+        while(column < columns) {
+            char character = backBuffer.getCharAt(column, row);
+            fullRowCost.addCell(column, character, backBuffer.getPackedStyleAt(column, row));
+            column += TerminalTextUtils.isCharCJK(character) ? 2 : 1;
+        }
+        return fullRowCost.endRow(row);
+    }
+
+    /**
+     * Number of bytes a character takes in UTF-8
+     */
+    private static int getCharacterCost(char character) {
+        return character < 0x80 ? 1 : character < 0x800 ? 2 : 3;
+    }
+
+    /**
+     * Decides if clearing the screen and drawing the back buffer from scratch would send fewer bytes than updating
+     * only the changed spans. The rows that weren't part of the diff only need to be looked at if the cost of the
+     * incremental update is higher than the cost of redrawing the changed rows, so when little has changed this doesn't
+     * look at more of the buffer than {@link #compute(ScreenBuffer, ScreenBuffer)} already did.
+     * @return {@code true} if a full redraw is estimated to be cheaper
+     */
+    boolean isFullRedrawCheaper() {
+        if(deltaCost <= fullCost) {
+            return false;
+        }
+        for(int row = 0; row < rows && fullCost < deltaCost; row++) {
+            if(!rowsCounted[row]) {
+                fullCost += getFullRowCost(row);
+                rowsCounted[row] = true;
+            }
+        }
+        return fullCost < deltaCost;
+    }
+
+    int getSpanCount() {
+        return spanCount;
+    }
+
+    int getSpanRow(int index) {
+        return spanRows[index];
+    }
+
+    int getSpanStart(int index) {
+        return spanStarts[index];
+    }
+
+    /**
+     * Returns the column right after the last changed cell of a span. This may be past the end of the row if the span
+     * ends with a CJK character.
+     * @param index Index of the span
+     * @return Exclusive end column of the span
+     */
+    int getSpanEnd(int index) {
+        return spanEnds[index];
+    }
+
+    /**
+     * @return Number of cells covered by the spans in this change set
+     */
+    int getChangedCells() {
+        return changedCells;
+    }
+
+    /**
+     * @return Estimated number of bytes needed to update the terminal incrementally, including style changes
+     */
+    int getDeltaCost() {
+        return deltaCost;
+    }
+
+    /**
+     * Counts what drawing one row onto a cleared screen costs: moving the cursor to the first cell that isn't a default
+     * blank, then printing everything from there to the last such cell, with the style changes along the way. Cells
+     * are fed in order through {@link #addCell(int, char, long)} between {@link #startRow()} and
+     * {@link #endRow(int)}.
+     */
+    private static class FullRowCost {
+        // Style the terminal is left in after the rows counted so far have been drawn
+        private long style;
+        private long rowStyle;
+        private long styleAtLast;
+        private int first;
+        private int cost;
+        private int costAtLast;
+
+        void reset() {
+            style = DEFAULT_STYLE;
+        }
+
+        void startRow() {
+            rowStyle = style;
+            styleAtLast = style;
+            first = -1;
+            cost = 0;
+            costAtLast = 0;
+        }
+
+        void addCell(int column, char character, long cellStyle) {
+            boolean blank = character == ' ' && cellStyle == DEFAULT_STYLE;
+            if(first == -1) {
+                if(blank) {
+                    return;
+                }
+                first = column;
+            }
+            cost += PackedTextImage.getStyleChangeCost(rowStyle, cellStyle) + getCharacterCost(character);
+            rowStyle = cellStyle;
+            if(!blank) {
+                // Trailing blanks don't need to be printed, so only count up to the last cell that does
+                costAtLast = cost;
+                styleAtLast = rowStyle;
+            }
+        }
+
+        int endRow(int row) {
+            if(first == -1) {
+                return 0;
+            }
+            style = styleAtLast;
+            return DefaultCursorMovementPlanner.getAbsoluteMovementCost(first, row) + costAtLast;
+        }
+    }
+}
@@ -19,15 +19,19 @@
 package com.googlecode.lanterna.screen;
 
 import com.googlecode.lanterna.*;
+import com.googlecode.lanterna.graphics.PackedTextImage;
 import com.googlecode.lanterna.graphics.Scrollable;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.terminal.ExtendedTerminal;
+import com.googlecode.lanterna.terminal.OutputBacklogAware;
 import com.googlecode.lanterna.terminal.Terminal;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
 import java.io.IOException;
 import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -39,10 +43,31 @@ import java.util.TreeMap;
  * @author martin
  */
 public class TerminalScreen extends AbstractScreen {
+    private static final SGR[] ALL_SGR = SGR.values();
+    // Don't look further than this for cells that can be re-printed to move the cursor, an absolute move is never
+    // more expensive than this
+    private static final int MAX_REPRINTABLE_CELLS = 12;
+    // Detected scrolls must save re-drawing at least this many rows, otherwise they are ignored
+    private static final int MIN_ROWS_SAVED_BY_SCROLL = 3;
+    // Runs of identical cells shorter than this are always printed character by character
+    private static final int MIN_REPEATED_CELLS = 4;
+    // What a cell left blank by clearing the screen looks like in the back buffer
+    private static final long DEFAULT_PACKED_STYLE = PackedTextImage.packStyle(DEFAULT_CHARACTER.getStyle());
+
     private final Terminal terminal;
+    private final TerminalState terminalState;
     private boolean isStarted;
     private boolean fullRedrawHint;
     private ScrollHint scrollHint;
+    private DeltaRefreshMode deltaRefreshMode;
+    private CursorMovementPlanner cursorMovementPlanner;
+    private boolean scrollDetectionEnabled;
+    private int[] backRowHashes;
+    private int[] frontRowHashes;
+    private final ScreenChangeSet changeSet;
+    // Set when a refresh was skipped because the terminal hadn't caught up with its output yet
+    private boolean refreshDropped;
+    private long droppedRefreshCount;
 
     /**
      * Creates a new Screen on top of a supplied terminal, will query the terminal for its size. The screen is initially
@@ -74,11 +99,112 @@ public class TerminalScreen extends AbstractScreen {
      * @throws java.io.IOException If there was an underlying I/O error when querying the size of the terminal
      */
     public TerminalScreen(Terminal terminal, TextCharacter defaultCharacter) throws IOException {
-        super(terminal.getTerminalSize(), defaultCharacter);
+        this(terminal, defaultCharacter, false);
+    }
+
+    /**
+     * Creates a new Screen on top of a supplied terminal, will query the terminal for its size. The screen is initially
+     * blank. The default character used for unused space (the newly initialized state of the screen and new areas after
+     * expanding the terminal size) will be a blank space in 'default' ANSI front- and background color.
+     * <p>
+     * If {@code packedBuffers} is {@code true}, the screen will store its front- and back buffers in
+     * {@link com.googlecode.lanterna.graphics.PackedTextImage}s instead of as arrays of {@link TextCharacter}. This
+     * reduces the memory used by the screen considerably and makes refreshing faster, but reading characters back from
+     * the screen will create new objects. Consider this if you are running many screens in the same JVM.
+     *
+     * @param terminal Terminal object to create the DefaultScreen on top of.
+     * @param defaultCharacter What character to use for the initial state of the screen and expanded areas
+     * @param packedBuffers Whether to store the screen buffers in primitive arrays instead of as TextCharacter objects
+     * @throws java.io.IOException If there was an underlying I/O error when querying the size of the terminal
+     */
+    public TerminalScreen(Terminal terminal, TextCharacter defaultCharacter, boolean packedBuffers) throws IOException {
+        super(terminal.getTerminalSize(), defaultCharacter, packedBuffers);
         this.terminal = terminal;
         this.terminal.addResizeListener(new TerminalScreenResizeListener());
+        this.terminalState = new TerminalState();
         this.isStarted = false;
         this.fullRedrawHint = true;
+        this.deltaRefreshMode = DeltaRefreshMode.RUNS;
+        this.cursorMovementPlanner = new DefaultCursorMovementPlanner();
+        this.scrollDetectionEnabled = true;
+        this.backRowHashes = new int[0];
+        this.frontRowHashes = new int[0];
+        this.changeSet = new ScreenChangeSet();
+        this.refreshDropped = false;
+        this.droppedRefreshCount = 0;
+        if(terminal instanceof OutputBacklogAware) {
+            ((OutputBacklogAware)terminal).setOutputDrainedListener(new Runnable() {
+                @Override
+                public void run() {
+                    refreshDroppedFrame();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns which algorithm this screen is using when performing a delta refresh
+     * @return Algorithm used for delta refreshes
+     * @see DeltaRefreshMode
+     */
+    public synchronized DeltaRefreshMode getDeltaRefreshMode() {
+        return deltaRefreshMode;
+    }
+
+    /**
+     * Changes which algorithm this screen should use when performing a delta refresh. The default is
+     * {@link DeltaRefreshMode#RUNS}.
+     * @param deltaRefreshMode Algorithm to use for delta refreshes
+     * @see DeltaRefreshMode
+     */
+    public synchronized void setDeltaRefreshMode(DeltaRefreshMode deltaRefreshMode) {
+        if(deltaRefreshMode == null) {
+            throw new IllegalArgumentException("Cannot set delta refresh mode to null");
+        }
+        this.deltaRefreshMode = deltaRefreshMode;
+    }
+
+    /**
+     * Returns the planner this screen is using to decide how to move the cursor between updated cells when refreshing
+     * @return Cursor movement planner of this screen
+     * @see CursorMovementPlanner
+     */
+    public synchronized CursorMovementPlanner getCursorMovementPlanner() {
+        return cursorMovementPlanner;
+    }
+
+    /**
+     * Changes the planner this screen uses to decide how to move the cursor between updated cells when refreshing. The
+     * default is {@link DefaultCursorMovementPlanner}, which picks the movement requiring the fewest bytes.
+     * @param cursorMovementPlanner Cursor movement planner to use
+     * @see CursorMovementPlanner
+     */
+    public synchronized void setCursorMovementPlanner(CursorMovementPlanner cursorMovementPlanner) {
+        if(cursorMovementPlanner == null) {
+            throw new IllegalArgumentException("Cannot set cursor movement planner to null");
+        }
+        this.cursorMovementPlanner = cursorMovementPlanner;
+    }
+
+    /**
+     * Returns {@code true} if this screen tries to detect when the content has been moved up or down since the last
+     * refresh, even if {@link #scrollLines(int, int, int)} wasn't used, so it can scroll the terminal instead of
+     * re-drawing the moved rows.
+     * @return {@code true} if automatic scroll detection is enabled
+     */
+    public synchronized boolean isScrollDetectionEnabled() {
+        return scrollDetectionEnabled;
+    }
+
+    /**
+     * Enables or disables automatic scroll detection. When enabled (the default), the screen compares the hashes of
+     * the rows in the back buffer with those in the front buffer on each refresh and, if a range of rows has moved
+     * up or down, scrolls that range on the terminal and only draws the rows that were exposed. This requires the
+     * terminal to implement {@link Scrollable}.
+     * @param scrollDetectionEnabled {@code true} to enable automatic scroll detection
+     */
+    public synchronized void setScrollDetectionEnabled(boolean scrollDetectionEnabled) {
+        this.scrollDetectionEnabled = scrollDetectionEnabled;
     }
 
     @Override
@@ -125,33 +251,100 @@ public class TerminalScreen extends AbstractScreen {
     }
 
     @Override
-    public synchronized void refresh(RefreshType refreshType) throws IOException {
+    public void refresh(RefreshType refreshType) throws IOException {
+        if(scheduleRefresh(refreshType)) {
+            return;
+        }
+        refreshNow(refreshType);
+    }
+
+    private synchronized void refreshNow(RefreshType refreshType) throws IOException {
         if(!isStarted) {
             return;
         }
+        // If the terminal is still writing earlier output, skip this frame. The front buffer is left as it is, so the
+        // refresh that follows once the output has been written is diffed against what the terminal actually got.
+        if(getTerminal() instanceof OutputBacklogAware && ((OutputBacklogAware)getTerminal()).isOutputBacklogged()) {
+            if(refreshType == RefreshType.COMPLETE) {
+                fullRedrawHint = true;
+            }
+            refreshDropped = true;
+            droppedRefreshCount++;
+            return;
+        }
+        refreshDropped = false;
+        // Let the terminal send the whole refresh at once and, if supported, present it without tearing
+        ExtendedTerminal frameTerminal = getTerminal() instanceof ExtendedTerminal ? (ExtendedTerminal)getTerminal() : null;
+        if(frameTerminal != null) {
+            frameTerminal.beginFrame();
+        }
+        try {
+            updateTerminal(refreshType);
+        }
+        finally {
+            if(frameTerminal != null) {
+                frameTerminal.endFrame();
+            }
+        }
+        getTerminal().flush();
+    }
+
+    private void refreshDroppedFrame() {
+        synchronized(this) {
+            if(!refreshDropped) {
+                return;
+            }
+        }
+        try {
+            refresh(RefreshType.AUTOMATIC);
+        }
+        catch(IOException ignore) {
+            // The next refresh will report the error to whoever called it
+        }
+    }
+
+    /**
+     * Returns how many refreshes have been skipped because the terminal hadn't finished writing the output of an
+     * earlier refresh. This only happens with terminals implementing {@link OutputBacklogAware}.
+     * @return Number of skipped refreshes
+     */
+    public synchronized long getDroppedRefreshCount() {
+        return droppedRefreshCount;
+    }
+
+    private void updateTerminal(RefreshType refreshType) throws IOException {
         if((refreshType == RefreshType.AUTOMATIC && fullRedrawHint) || refreshType == RefreshType.COMPLETE) {
             refreshFull();
             fullRedrawHint = false;
         }
-        else if(refreshType == RefreshType.AUTOMATIC &&
-                (scrollHint == null || scrollHint == ScrollHint.INVALID)) {
-            double threshold = getTerminalSize().getRows() * getTerminalSize().getColumns() * 0.75;
-            if(getBackBuffer().isVeryDifferent(getFrontBuffer(), (int) threshold)) {
-                refreshFull();
+        else {
+            if(scrollHint == null || scrollHint == ScrollHint.INVALID) {
+                ScrollHint detectedScroll = detectScroll();
+                if(detectedScroll != null) {
+                    scrollHint = detectedScroll;
+                }
+            }
+            if(refreshType == RefreshType.AUTOMATIC &&
+                    (scrollHint == null || scrollHint == ScrollHint.INVALID)) {
+                // Without a scroll to apply first, the same diff decides the refresh strategy and drives the update
+                changeSet.compute(getBackBuffer(), getFrontBuffer());
+                if(changeSet.isFullRedrawCheaper()) {
+                    refreshFull();
+                }
+                else {
+                    refreshByDelta(true);
+                }
             }
             else {
-                refreshByDelta();
+                refreshByDelta(false);
             }
         }
-        else {
-            refreshByDelta();
-        }
-        getBackBuffer().copyTo(getFrontBuffer());
+        syncFrontBuffer();
         TerminalPosition cursorPosition = getCursorPosition();
         if(cursorPosition != null) {
             getTerminal().setCursorVisible(true);
             //If we are trying to move the cursor to the padding of a CJK character, put it on the actual character instead
-            if(cursorPosition.getColumn() > 0 && TerminalTextUtils.isCharCJK(getFrontBuffer().getCharacterAt(cursorPosition.withRelativeColumn(-1)).getCharacter())) {
+            if(cursorPosition.getColumn() > 0 && TerminalTextUtils.isCharCJK(getFrontBuffer().getCharAt(cursorPosition.getColumn() - 1, cursorPosition.getRow()))) {
                 getTerminal().setCursorPosition(cursorPosition.getColumn() - 1, cursorPosition.getRow());
             }
             else {
@@ -160,7 +353,72 @@ public class TerminalScreen extends AbstractScreen {
         } else {
             getTerminal().setCursorVisible(false);
         }
-        getTerminal().flush();
+    }
+
+    /**
+     * Compares the row hashes of the back buffer with those of the front buffer, looking for a range of rows that has
+     * moved up or down as a block. The range and distance saving the most rows from being re-drawn is returned as a
+     * scroll hint, or {@code null} if no such range was found.
+     */
+    private ScrollHint detectScroll() {
+        if(!scrollDetectionEnabled || !(getTerminal() instanceof Scrollable)) {
+            return null;
+        }
+        ScreenBuffer backBuffer = getBackBuffer();
+        ScreenBuffer frontBuffer = getFrontBuffer();
+        if(!backBuffer.hasDirtyRows() && !frontBuffer.hasDirtyRows()) {
+            return null;
+        }
+        int rows = Math.min(backBuffer.getSize().getRows(), frontBuffer.getSize().getRows());
+        if(backRowHashes.length != rows) {
+            backRowHashes = new int[rows];
+            frontRowHashes = new int[rows];
+        }
+        for(int row = 0; row < rows; row++) {
+            backRowHashes[row] = backBuffer.getRowHash(row);
+            frontRowHashes[row] = frontBuffer.getRowHash(row);
+        }
+
+        int bestDistance = 0;
+        int bestFirstRow = 0;
+        int bestLastRow = 0;
+        int bestRowsSaved = MIN_ROWS_SAVED_BY_SCROLL - 1;
+        for(int distance = 1 - rows; distance < rows; distance++) {
+            if(distance == 0) {
+                continue;
+            }
+            // Back buffer row 'row' would be filled by front buffer row 'row + distance' after scrolling
+            int runStart = -1;
+            int rowsSaved = 0;
+            int lastRow = Math.min(rows, rows - distance) - 1;
+            for(int row = Math.max(0, -distance); row <= lastRow + 1; row++) {
+                if(row <= lastRow && backRowHashes[row] == frontRowHashes[row + distance]) {
+                    if(runStart == -1) {
+                        runStart = row;
+                        rowsSaved = 0;
+                    }
+                    if(backRowHashes[row] != frontRowHashes[row]) {
+                        rowsSaved++;
+                    }
+                }
+                else if(runStart != -1) {
+                    if(rowsSaved > bestRowsSaved) {
+                        bestRowsSaved = rowsSaved;
+                        bestDistance = distance;
+                        bestFirstRow = runStart;
+                        bestLastRow = row - 1;
+                    }
+                    runStart = -1;
+                }
+            }
+        }
+        if(bestDistance > 0) {
+            return new ScrollHint(bestFirstRow, bestLastRow + bestDistance, bestDistance);
+        }
+        else if(bestDistance < 0) {
+            return new ScrollHint(bestFirstRow + bestDistance, bestLastRow, bestDistance);
+        }
+        return null;
     }
 
     private void useScrollHint() throws IOException {
@@ -170,6 +428,9 @@ public class TerminalScreen extends AbstractScreen {
             if (scrollHint == ScrollHint.INVALID) { return; }
             Terminal term = getTerminal();
             if (term instanceof Scrollable) {
+                // lines scrolled in are cleared using the current colors, make sure they are the defaults
+                term.resetColorAndSGR();
+                terminalState.assumeDefaultStyle();
                 // just try and see if it cares:
                 scrollHint.applyTo( (Scrollable)term );
                 // if that didn't throw, then update front buffer:
@@ -180,7 +441,32 @@ public class TerminalScreen extends AbstractScreen {
         finally { scrollHint = null; }
     }
 
-    private void refreshByDelta() throws IOException {
+    private void refreshByDelta(boolean changeSetComputed) throws IOException {
+        if(deltaRefreshMode == DeltaRefreshMode.POSITION_MAP) {
+            refreshByDeltaPositionMap();
+        }
+        else {
+            refreshByDeltaRuns(changeSetComputed);
+        }
+    }
+
+    private void refreshByDeltaRuns(boolean changeSetComputed) throws IOException {
+        terminalState.reset(getTerminalSize().getColumns());
+        useScrollHint();
+        if(!changeSetComputed) {
+            changeSet.compute(getBackBuffer(), getFrontBuffer());
+        }
+
+        for(int span = 0; span < changeSet.getSpanCount(); span++) {
+            int row = changeSet.getSpanRow(span);
+            int spanEnd = changeSet.getSpanEnd(span);
+            for(int column = changeSet.getSpanStart(span); column < spanEnd; ) {
+                column = terminalState.putCharacterRun(row, column, spanEnd);
+            }
+        }
+    }
+
+    private void refreshByDeltaPositionMap() throws IOException {
         Map<TerminalPosition, TextCharacter> updateMap = new TreeMap<TerminalPosition, TextCharacter>(new ScreenPointComparator());
         TerminalSize terminalSize = getTerminalSize();
 
@@ -188,11 +474,10 @@ public class TerminalScreen extends AbstractScreen {
 
         for(int y = 0; y < terminalSize.getRows(); y++) {
             for(int x = 0; x < terminalSize.getColumns(); x++) {
-                TextCharacter backBufferCharacter = getBackBuffer().getCharacterAt(x, y);
-                if(!backBufferCharacter.equals(getFrontBuffer().getCharacterAt(x, y))) {
-                    updateMap.put(new TerminalPosition(x, y), backBufferCharacter);
+                if(!getBackBuffer().isCellEqual(getFrontBuffer(), x, y)) {
+                    updateMap.put(new TerminalPosition(x, y), getBackBuffer().getCharacterAt(x, y));
                 }
-                if(TerminalTextUtils.isCharCJK(backBufferCharacter.getCharacter())) {
+                if(TerminalTextUtils.isCharCJK(getBackBuffer().getCharAt(x, y))) {
                     x++;    //Skip the trailing padding
                 }
             }
@@ -229,11 +514,11 @@ public class TerminalScreen extends AbstractScreen {
                 currentBackgroundColor = newCharacter.getBackgroundColor();
             }
             for(SGR sgr: SGR.values()) {
-                if(currentSGR.contains(sgr) && !newCharacter.getModifiers().contains(sgr)) {
+                if(currentSGR.contains(sgr) && !newCharacter.hasModifier(sgr)) {
                     getTerminal().disableSGR(sgr);
                     currentSGR.remove(sgr);
                 }
-                else if(!currentSGR.contains(sgr) && newCharacter.getModifiers().contains(sgr)) {
+                else if(!currentSGR.contains(sgr) && newCharacter.hasModifier(sgr)) {
                     getTerminal().enableSGR(sgr);
                     currentSGR.add(sgr);
                 }
@@ -257,50 +542,17 @@ public class TerminalScreen extends AbstractScreen {
         getTerminal().resetColorAndSGR();
         scrollHint = null; // discard any scroll hint for full refresh
 
-        EnumSet<SGR> currentSGR = EnumSet.noneOf(SGR.class);
-        TextColor currentForegroundColor = TextColor.ANSI.DEFAULT;
-        TextColor currentBackgroundColor = TextColor.ANSI.DEFAULT;
-        for(int y = 0; y < getTerminalSize().getRows(); y++) {
-            getTerminal().setCursorPosition(0, y);
-            int currentColumn = 0;
-            for(int x = 0; x < getTerminalSize().getColumns(); x++) {
-                TextCharacter newCharacter = getBackBuffer().getCharacterAt(x, y);
-                if(newCharacter.equals(DEFAULT_CHARACTER)) {
+        TerminalSize terminalSize = getTerminalSize();
+        terminalState.reset(terminalSize.getColumns());
+        terminalState.assumeDefaultStyle();
+        for(int y = 0; y < terminalSize.getRows(); y++) {
+            for(int x = 0; x < terminalSize.getColumns(); x++) {
+                if(getBackBuffer().getCharAt(x, y) == DEFAULT_CHARACTER.getCharacter() &&
+                        getBackBuffer().getPackedStyleAt(x, y) == DEFAULT_PACKED_STYLE) {
                     continue;
                 }
-
-                if(!currentForegroundColor.equals(newCharacter.getForegroundColor())) {
-                    getTerminal().setForegroundColor(newCharacter.getForegroundColor());
-                    currentForegroundColor = newCharacter.getForegroundColor();
-                }
-                if(!currentBackgroundColor.equals(newCharacter.getBackgroundColor())) {
-                    getTerminal().setBackgroundColor(newCharacter.getBackgroundColor());
-                    currentBackgroundColor = newCharacter.getBackgroundColor();
-                }
-                for(SGR sgr: SGR.values()) {
-                    if(currentSGR.contains(sgr) && !newCharacter.getModifiers().contains(sgr)) {
-                        getTerminal().disableSGR(sgr);
-                        currentSGR.remove(sgr);
-                    }
-                    else if(!currentSGR.contains(sgr) && newCharacter.getModifiers().contains(sgr)) {
-                        getTerminal().enableSGR(sgr);
-                        currentSGR.add(sgr);
-                    }
-                }
-                if(currentColumn != x) {
-                    getTerminal().setCursorPosition(x, y);
-                    currentColumn = x;
-                }
-                getTerminal().putCharacter(newCharacter.getCharacter());
-                if(TerminalTextUtils.isCharCJK(newCharacter.getCharacter())) {
-                    //CJK characters take up two columns
-                    currentColumn += 2;
-                    x++;
-                }
-                else {
-                    //Normal characters take up one column
-                    currentColumn += 1;
-                }
+                // Skip past the run that was written (and, for CJK characters, the trailing padding)
+                x = terminalState.putCharacterRun(y, x, terminalSize.getColumns()) - 1;
             }
         }
     }
@@ -330,6 +582,11 @@ public class TerminalScreen extends AbstractScreen {
         return terminal.pollInput();
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) throws IOException {
+        return terminal.readInputBatch(keyStrokes, maxKeyStrokes);
+    }
+
     @Override
     public synchronized void clear() {
         super.clear();
@@ -397,6 +654,251 @@ public class TerminalScreen extends AbstractScreen {
         }
     }
 
+    /**
+     * Keeps track of where the cursor is on the terminal and which colors and modifiers are active while we are
+     * refreshing, so that we only need to send the commands that actually change something.
+     */
+    private class TerminalState {
+        private TextStyle currentStyle;
+        private boolean styleKnown;
+        private int cursorColumn;
+        private int cursorRow;
+        private int columns;
+        private char[] runCharacters;
+        // Style of the back buffer cell that was looked up last, so that it's only unpacked again when it changes
+        private TextStyle lookedUpStyle;
+        private int lookedUpColumn;
+        private int lookedUpRow;
+
+        TerminalState() {
+            this.runCharacters = new char[0];
+            this.lookedUpStyle = null;
+        }
+
+        void reset(int columns) {
+            this.columns = columns;
+            if(runCharacters.length < columns) {
+                runCharacters = new char[columns];
+            }
+            this.styleKnown = false;
+            this.currentStyle = null;
+            this.cursorColumn = -1;
+            this.cursorRow = -1;
+            this.lookedUpStyle = null;
+        }
+
+        void assumeDefaultStyle() {
+            this.styleKnown = true;
+            this.currentStyle = TextStyle.DEFAULT;
+        }
+
+        void moveCursor(int column, int row) throws IOException {
+            if(cursorColumn == column && cursorRow == row) {
+                return;
+            }
+            if(cursorColumn == -1) {
+                getTerminal().setCursorPosition(column, row);
+            }
+            else {
+                boolean relativeMovementSupported = getTerminal() instanceof ExtendedTerminal;
+                int reprintableCells = 0;
+                if(row == cursorRow && column > cursorColumn) {
+                    reprintableCells = countReprintableCells(row, cursorColumn, Math.min(column, cursorColumn + MAX_REPRINTABLE_CELLS));
+                }
+                CursorMovementPlanner.Movement movement = cursorMovementPlanner.planMovement(
+                        cursorColumn, cursorRow, column, row, reprintableCells, relativeMovementSupported);
+                if(movement == CursorMovementPlanner.Movement.REPRINT && reprintableCells > 0 && column - cursorColumn <= reprintableCells) {
+                    int count = column - cursorColumn;
+                    for(int i = 0; i < count; i++) {
+                        runCharacters[i] = getBackBuffer().getCharAt(cursorColumn + i, row);
+                    }
+                    getTerminal().putCharacters(runCharacters, 0, count);
+                }
+                else if(movement == CursorMovementPlanner.Movement.RELATIVE && relativeMovementSupported) {
+                    ((ExtendedTerminal)getTerminal()).moveCursorRelative(column - cursorColumn, row - cursorRow);
+                }
+                else if(movement == CursorMovementPlanner.Movement.LINE_START && relativeMovementSupported && column == 0) {
+                    ((ExtendedTerminal)getTerminal()).moveCursorToLineStart();
+                    ((ExtendedTerminal)getTerminal()).moveCursorRelative(0, row - cursorRow);
+                }
+                else {
+                    getTerminal().setCursorPosition(column, row);
+                }
+            }
+            cursorColumn = column;
+            cursorRow = row;
+        }
+
+        /**
+         * Counts how many cells, going right from {@code fromColumn}, that shows a single-byte character in the style
+         * the terminal is currently using. Since these cells are already on the terminal, printing them again is just
+         * another way of moving the cursor forward.
+         */
+        private int countReprintableCells(int row, int fromColumn, int toColumn) {
+            if(!styleKnown || currentStyle == null) {
+                return 0;
+            }
+            int count = 0;
+            for(int x = fromColumn; x < toColumn; x++) {
+                char c = getBackBuffer().getCharAt(x, row);
+                if(c < ' ' || c > '~' || !currentStyle.equals(getStyleAt(x, row))) {
+                    break;
+                }
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Returns the style of a back buffer cell. Comparing packed cells is cheap while unpacking them isn't, so the
+         * style is only unpacked if it differs from the one looked up last.
+         */
+        private TextStyle getStyleAt(int column, int row) {
+            if(lookedUpStyle == null || !getBackBuffer().isStyleEqual(lookedUpColumn, lookedUpRow, column, row)) {
+                lookedUpStyle = getBackBuffer().getCharacterAt(column, row).getStyle();
+            }
+            lookedUpColumn = column;
+            lookedUpRow = row;
+            return lookedUpStyle;
+        }
+
+        /**
+         * Writes the character in the back buffer at the specified position to the terminal, moving the cursor there
+         * first if needed, together with the characters following it (up to {@code limit}) that have the same style.
+         * The run ends before any sequence of identical characters long enough to be worth sending with erase or
+         * repeat sequences instead, which is done when such a sequence starts at {@code column} and the terminal is an
+         * {@link ExtendedTerminal}.
+         * @return The column after the last one written
+         */
+        int putCharacterRun(int row, int column, int limit) throws IOException {
+            char character = getBackBuffer().getCharAt(column, row);
+            moveCursor(column, row);
+            TextStyle style = getStyleAt(column, row);
+            if(TerminalTextUtils.isCharCJK(character)) {
+                putCharacter(character, style);
+                return column + 2;
+            }
+            limit = Math.min(limit, columns);
+            int count = countIdenticalCells(row, column, limit);
+            if(count >= MIN_REPEATED_CELLS && getTerminal() instanceof ExtendedTerminal) {
+                putRepeatedCharacter((ExtendedTerminal)getTerminal(), character, style, count, column + count == columns);
+                return column + count;
+            }
+            int end = column + count;
+            if(count < MIN_REPEATED_CELLS) {
+                while(end < limit) {
+                    if(!getBackBuffer().isStyleEqual(column, row, end, row) ||
+                            TerminalTextUtils.isCharCJK(getBackBuffer().getCharAt(end, row)) ||
+                            countIdenticalCells(row, end, Math.min(limit, end + MIN_REPEATED_CELLS)) >= MIN_REPEATED_CELLS) {
+                        break;
+                    }
+                    end++;
+                }
+            }
+            for(int x = column; x < end; x++) {
+                runCharacters[x - column] = getBackBuffer().getCharAt(x, row);
+            }
+            applyStyle(style);
+            getTerminal().putCharacters(runCharacters, 0, end - column);
+            cursorColumn = end;
+            if(cursorColumn >= columns) {
+                //The terminal may or may not have wrapped to the next line, we can't know for sure
+                cursorColumn = -1;
+                cursorRow = -1;
+            }
+            return end;
+        }
+
+        private int countIdenticalCells(int row, int column, int limit) {
+            int count = 1;
+            while(column + count < limit && getBackBuffer().isCellEqual(column, row, column + count, row)) {
+                count++;
+            }
+            return count;
+        }
+
+        private void putRepeatedCharacter(ExtendedTerminal terminal, char character, TextStyle style, int count, boolean toEndOfLine) throws IOException {
+            applyStyle(style);
+            if(character == ' ' &&
+                    style.getModifierMask() == 0 &&
+                    (terminal.isBackgroundColorErase() || TextColor.ANSI.DEFAULT.equals(style.getBackgroundColor()))) {
+                // Erasing doesn't move the cursor, so unless we reach the end of the line, we'll need to move it
+                // afterwards; only worth it if that together is shorter than the spaces
+                if(toEndOfLine) {
+                    terminal.eraseToEndOfLine();
+                    return;
+                }
+                else if(count > 2 * (3 + Integer.toString(count).length())) {
+                    terminal.eraseCharacters(count);
+                    return;
+                }
+            }
+            terminal.putCharacterRepeated(character, count);
+            cursorColumn += count;
+            if(cursorColumn >= columns) {
+                cursorColumn = -1;
+                cursorRow = -1;
+            }
+        }
+
+        void putCharacter(char character, TextStyle style) throws IOException {
+            applyStyle(style);
+            getTerminal().putCharacter(character);
+            cursorColumn += TerminalTextUtils.isCharCJK(character) ? 2 : 1;
+            if(cursorColumn >= columns) {
+                //The terminal may or may not have wrapped to the next line, we can't know for sure
+                cursorColumn = -1;
+                cursorRow = -1;
+            }
+        }
+
+        private void applyStyle(TextStyle style) throws IOException {
+            if(style == currentStyle) {
+                // Styles are interned, so this is the common case when drawing runs of similarly styled text
+                return;
+            }
+            if(!styleKnown) {
+                getTerminal().resetColorAndSGR();
+                assumeDefaultStyle();
+            }
+            TextColor foregroundColor = currentStyle.getForegroundColor();
+            TextColor backgroundColor = currentStyle.getBackgroundColor();
+            int activeMask = currentStyle.getModifierMask();
+            TextColor newForegroundColor = style.getForegroundColor().equals(foregroundColor) ? null : style.getForegroundColor();
+            TextColor newBackgroundColor = style.getBackgroundColor().equals(backgroundColor) ? null : style.getBackgroundColor();
+            int changedMask = activeMask ^ style.getModifierMask();
+            if(getTerminal() instanceof ExtendedTerminal) {
+                // Send all changes as one sequence
+                ((ExtendedTerminal)getTerminal()).setStyle(
+                        newForegroundColor,
+                        newBackgroundColor,
+                        changedMask & style.getModifierMask(),
+                        changedMask & activeMask);
+                currentStyle = style;
+                return;
+            }
+            if(newForegroundColor != null) {
+                getTerminal().setForegroundColor(newForegroundColor);
+            }
+            if(newBackgroundColor != null) {
+                getTerminal().setBackgroundColor(newBackgroundColor);
+            }
+            for(int i = 0; changedMask != 0 && i < ALL_SGR.length; i++) {
+                int bit = 1 << i;
+                if((changedMask & bit) != 0) {
+                    if((style.getModifierMask() & bit) != 0) {
+                        getTerminal().enableSGR(ALL_SGR[i]);
+                    }
+                    else {
+                        getTerminal().disableSGR(ALL_SGR[i]);
+                    }
+                    changedMask &= ~bit;
+                }
+            }
+            currentStyle = style;
+        }
+    }
+
     private static class ScrollHint {
         public static final ScrollHint INVALID = new ScrollHint(-1,-1,0);
         public final int firstLine;
@@ -24,6 +24,7 @@ import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * VirtualScreen wraps a normal screen and presents it as a screen that has a configurable minimum size; if the real
@@ -41,6 +42,15 @@ public class VirtualScreen extends AbstractScreen {
     private TerminalPosition viewportTopLeft;
     private TerminalSize viewportSize;
 
+    // What the viewport looked like at the last refresh, if it's still the same only changed rows need to be copied
+    private TerminalSize copiedRealSize;
+    private TerminalSize copiedVirtualSize;
+    private TerminalPosition copiedViewportTopLeft;
+    private ScreenBuffer copiedRealBackBuffer;
+    // Modification count of the real screen's back buffer after the last copy, if it differs someone else has drawn on
+    // the real screen and the whole viewport needs to be copied again
+    private long copiedRealModificationCount;
+
     /**
      * Creates a new VirtualScreen that wraps a supplied Screen. The screen passed in here should be the real screen
      * that is created on top of the real {@code Terminal}, it will have the correct size and content for what's
@@ -159,41 +169,77 @@ public class VirtualScreen extends AbstractScreen {
 
     @Override
     public void refresh(RefreshType refreshType) throws IOException {
+        if(scheduleRefresh(refreshType)) {
+            return;
+        }
         setCursorPosition(getCursorPosition()); //Make sure the cursor is at the correct position
-        if(!viewportSize.equals(realScreen.getTerminalSize())) {
+        TerminalSize realSize = realScreen.getTerminalSize();
+        ScreenBuffer realBackBuffer = realScreen instanceof AbstractScreen ? ((AbstractScreen)realScreen).getBackBuffer() : null;
+        boolean viewportUnchanged = refreshType != RefreshType.COMPLETE &&
+                realSize.equals(copiedRealSize) &&
+                getTerminalSize().equals(copiedVirtualSize) &&
+                viewportTopLeft.equals(copiedViewportTopLeft) &&
+                realBackBuffer != null &&
+                realBackBuffer == copiedRealBackBuffer &&
+                realBackBuffer.getModificationCount() == copiedRealModificationCount;
+
+        // The frame covers the whole real screen, so when it's drawn the whole viewport needs to be copied again
+        if(!viewportUnchanged && !viewportSize.equals(realSize)) {
             frameRenderer.drawFrame(
                     realScreen.newTextGraphics(),
-                    realScreen.getTerminalSize(),
+                    realSize,
                     getTerminalSize(),
                     viewportTopLeft);
         }
 
         //Copy the rows
+        int firstRow = viewportTopLeft.getRow();
+        int lastRow = firstRow + viewportSize.getRows() - 1;
+        if(viewportUnchanged) {
+            for(int row = getBackBuffer().nextDirtyRow(firstRow); row >= 0 && row <= lastRow; row = getBackBuffer().nextDirtyRow(row + 1)) {
+                copyViewportRows(row, 1);
+            }
+        }
+        else {
+            copyViewportRows(firstRow, viewportSize.getRows());
+        }
+        getBackBuffer().clearDirtyRows();
+        copiedRealSize = realSize;
+        copiedVirtualSize = getTerminalSize();
+        copiedViewportTopLeft = viewportTopLeft;
+        copiedRealBackBuffer = realBackBuffer;
+        copiedRealModificationCount = realBackBuffer != null ? realBackBuffer.getModificationCount() : 0;
+        realScreen.refresh(refreshType);
+    }
+
+    /**
+     * Copies rows of the virtual screen's back buffer, all of which must be inside the viewport, to the real screen
+     */
+    private void copyViewportRows(int firstRow, int rows) {
         TerminalPosition viewportOffset = frameRenderer.getViewportOffset();
         if(realScreen instanceof AbstractScreen) {
             AbstractScreen asAbstractScreen = (AbstractScreen)realScreen;
             getBackBuffer().copyTo(
                     asAbstractScreen.getBackBuffer(),
-                    viewportTopLeft.getRow(),
-                    viewportSize.getRows(),
+                    firstRow,
+                    rows,
                     viewportTopLeft.getColumn(),
                     viewportSize.getColumns(),
-                    viewportOffset.getRow(),
+                    firstRow - viewportTopLeft.getRow() + viewportOffset.getRow(),
                     viewportOffset.getColumn());
         }
         else {
-            for(int y = 0; y < viewportSize.getRows(); y++) {
+            for(int y = firstRow; y < firstRow + rows; y++) {
                 for(int x = 0; x < viewportSize.getColumns(); x++) {
                     realScreen.setCharacter(
                             x + viewportOffset.getColumn(),
-                            y + viewportOffset.getRow(),
+                            y - viewportTopLeft.getRow() + viewportOffset.getRow(),
                             getBackBuffer().getCharacterAt(
                                     x + viewportTopLeft.getColumn(),
-                                    y + viewportTopLeft.getRow()));
+                                    y));
                 }
             }
         }
-        realScreen.refresh(refreshType);
     }
 
     @Override
@@ -206,6 +252,22 @@ public class VirtualScreen extends AbstractScreen {
         return filter(realScreen.readInput());
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) throws IOException {
+        int start = keyStrokes.size();
+        realScreen.readInputBatch(keyStrokes, maxKeyStrokes);
+        // Key strokes used for moving the viewport are taken out of the batch
+        int kept = start;
+        for(int i = start; i < keyStrokes.size(); i++) {
+            KeyStroke keyStroke = filter(keyStrokes.get(i));
+            if(keyStroke != null) {
+                keyStrokes.set(kept++, keyStroke);
+            }
+        }
+        keyStrokes.subList(kept, keyStrokes.size()).clear();
+        return kept - start;
+    }
+
     private KeyStroke filter(KeyStroke keyStroke) throws IOException {
         if(keyStroke == null) {
             return null;
@@ -226,23 +288,30 @@ public class VirtualScreen extends AbstractScreen {
         }
         else if(keyStroke.isAltDown() && keyStroke.getKeyType() == KeyType.ArrowUp) {
             if(viewportTopLeft.getRow() > 0) {
-                viewportTopLeft = viewportTopLeft.withRelativeRow(-1);
-                realScreen.scrollLines(0,viewportSize.getRows()-1,-1);
-                refresh();
+                scrollViewport(-1);
                 return null;
             }
         }
         else if(keyStroke.isAltDown() && keyStroke.getKeyType() == KeyType.ArrowDown) {
             if(viewportTopLeft.getRow() + viewportSize.getRows() < getTerminalSize().getRows()) {
-                viewportTopLeft = viewportTopLeft.withRelativeRow(1);
-                realScreen.scrollLines(0,viewportSize.getRows()-1,1);
-                refresh();
+                scrollViewport(1);
                 return null;
             }
         }
         return keyStroke;
     }
 
+    /**
+     * Moves the viewport up or down and scrolls the real screen accordingly, so that the underlying terminal can scroll
+     * its content (if it's {@link com.googlecode.lanterna.graphics.Scrollable}) instead of drawing every row again
+     */
+    private void scrollViewport(int distance) throws IOException {
+        int viewportFirstRow = frameRenderer.getViewportOffset().getRow();
+        viewportTopLeft = viewportTopLeft.withRelativeRow(distance);
+        realScreen.scrollLines(viewportFirstRow, viewportFirstRow + viewportSize.getRows() - 1, distance);
+        refresh();
+    }
+
     @Override
     public void scrollLines(int firstLine, int lastLine, int distance) {
         // do base class stuff (scroll own back buffer)
@@ -41,6 +41,20 @@ public abstract class AbstractTerminal implements Terminal {
         this.lastKnownSize = null;
     }
 
+    @Override
+    public void putString(CharSequence string) throws IOException {
+        for(int i = 0; i < string.length(); i++) {
+            putCharacter(string.charAt(i));
+        }
+    }
+
+    @Override
+    public void putCharacters(char[] characters, int offset, int length) throws IOException {
+        for(int i = offset; i < offset + length; i++) {
+            putCharacter(characters[i]);
+        }
+    }
+
     @Override
     public void addResizeListener(TerminalResizeListener listener) {
         if (listener != null) {
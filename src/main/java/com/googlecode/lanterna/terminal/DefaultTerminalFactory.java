@@ -277,6 +277,7 @@ public class DefaultTerminalFactory implements TerminalFactory {
      *
      * @param inputTimeout how long to wait for possible completions of sequences.
      *         units are of a 1/4 second, so e.g. 12 would wait up to 3 seconds.
+     *         If not set, the terminal's own default of 50 milliseconds is kept.
      * @return Reference to itself, so multiple .set-calls can be chained
      */
     public DefaultTerminalFactory setInputTimeout(int inputTimeout) {
@@ -20,6 +20,9 @@ package com.googlecode.lanterna.terminal;
 
 import java.io.IOException;
 
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.TextStyle;
 import com.googlecode.lanterna.graphics.Scrollable;
 
 /**
@@ -97,4 +100,94 @@ public interface ExtendedTerminal extends Terminal, Scrollable {
      * @throws IOException If the was an underlying I/O error
      */
     void setMouseCaptureMode(MouseCaptureMode mouseCaptureMode) throws IOException;
+
+    /**
+     * Moves the text cursor relative to its current position. Positive values moves the cursor to the right and down,
+     * negative values to the left and up. The cursor will not move outside of the terminal. Depending on the distance,
+     * this can be cheaper to send than an absolute position through {@link #setCursorPosition(int, int)}.
+     *
+     * @param columns How many columns to move the cursor
+     * @param rows How many rows to move the cursor
+     * @throws IOException If the was an underlying I/O error
+     */
+    void moveCursorRelative(int columns, int rows) throws IOException;
+
+    /**
+     * Moves the text cursor to the first column of the row it is currently on (a carriage return).
+     *
+     * @throws IOException If the was an underlying I/O error
+     */
+    void moveCursorToLineStart() throws IOException;
+
+    /**
+     * Erases a number of characters, starting at the current cursor position and going right, without moving the
+     * cursor. Erased characters becomes blank spaces, see {@link #isBackgroundColorErase()} about which background
+     * color they will get.
+     *
+     * @param count Number of characters to erase
+     * @throws IOException If the was an underlying I/O error
+     */
+    void eraseCharacters(int count) throws IOException;
+
+    /**
+     * Erases all characters from the current cursor position to the end of the line, without moving the cursor.
+     * Erased characters becomes blank spaces, see {@link #isBackgroundColorErase()} about which background color they
+     * will get.
+     *
+     * @throws IOException If the was an underlying I/O error
+     */
+    void eraseToEndOfLine() throws IOException;
+
+    /**
+     * Returns {@code true} if characters erased through {@link #eraseCharacters(int)} and {@link #eraseToEndOfLine()}
+     * are given the currently active background color. If {@code false}, they will be given the default background
+     * color and it's only safe to use these methods to produce blank spaces with default colors.
+     *
+     * @return {@code true} if erasing uses the active background color
+     */
+    boolean isBackgroundColorErase();
+
+    /**
+     * Prints the same character a number of times, advancing the cursor as if {@link #putCharacter(char)} was called
+     * {@code count} times. If the terminal supports it, this will be sent using a repeat control sequence when that is
+     * shorter, otherwise the character is simply sent {@code count} times.
+     *
+     * @param c Character to print
+     * @param count How many times to print the character
+     * @throws IOException If the was an underlying I/O error
+     */
+    void putCharacterRepeated(char c, int count) throws IOException;
+
+    /**
+     * Changes colors and modifiers at the same time. Where possible, the terminal sends this as a single control
+     * sequence, which is shorter than calling {@link #setForegroundColor(TextColor)},
+     * {@link #setBackgroundColor(TextColor)}, {@link #enableSGR(SGR)} and {@link #disableSGR(SGR)} one by one. The
+     * modifiers are given as bitmasks where each SGR is represented by the bit {@code 1 << sgr.ordinal()}, as returned
+     * by {@link TextStyle#getModifierMask()}. Modifiers in neither mask are left as they are.
+     *
+     * @param foregroundColor New foreground color, or {@code null} to keep the current one
+     * @param backgroundColor New background color, or {@code null} to keep the current one
+     * @param enabledModifiers Bitmask of modifiers to enable
+     * @param disabledModifiers Bitmask of modifiers to disable
+     * @throws IOException If the was an underlying I/O error
+     */
+    void setStyle(TextColor foregroundColor, TextColor backgroundColor, int enabledModifiers, int disabledModifiers) throws IOException;
+
+    /**
+     * Marks the start of a frame, a batch of output that should be presented to the user all at once. Until the frame is
+     * ended with {@link #endFrame()}, output may be held back by the terminal so that it can be sent together. Terminal
+     * emulators supporting synchronized updates (DEC private mode 2026) will also wait with updating the display until
+     * the frame has ended, so the user never sees a half-drawn frame. Frames can be nested, only the outermost frame
+     * has any effect.
+     *
+     * @throws IOException If the was an underlying I/O error
+     */
+    void beginFrame() throws IOException;
+
+    /**
+     * Ends a frame started with {@link #beginFrame()}, sending all output held back for the frame to the terminal.
+     *
+     * @throws IOException If the was an underlying I/O error
+     */
+    void endFrame() throws IOException;
 }
@@ -18,6 +18,8 @@
  */
 package com.googlecode.lanterna.terminal;
 
+import com.googlecode.lanterna.TextColor;
+
 /**
  * Interface extending ExtendedTerminal that removes the IOException throw clause.
  * 
@@ -55,4 +57,28 @@ public interface IOSafeExtendedTerminal extends IOSafeTerminal,ExtendedTerminal
 
     @Override
     void scrollLines(int firstLine, int lastLine, int distance);
+
+    @Override
+    void moveCursorRelative(int columns, int rows);
+
+    @Override
+    void moveCursorToLineStart();
+
+    @Override
+    void eraseCharacters(int count);
+
+    @Override
+    void eraseToEndOfLine();
+
+    @Override
+    void putCharacterRepeated(char c, int count);
+
+    @Override
+    void setStyle(TextColor foregroundColor, TextColor backgroundColor, int enabledModifiers, int disabledModifiers);
+
+    @Override
+    void beginFrame();
+
+    @Override
+    void endFrame();
 }
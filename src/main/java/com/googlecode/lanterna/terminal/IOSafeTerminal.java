@@ -24,6 +24,7 @@ import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.input.KeyStroke;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -51,6 +52,10 @@ public interface IOSafeTerminal extends Terminal {
     @Override
     void putCharacter(char c);
     @Override
+    void putString(CharSequence string);
+    @Override
+    void putCharacters(char[] characters, int offset, int length);
+    @Override
     void enableSGR(SGR sgr);
     @Override
     void disableSGR(SGR sgr);
@@ -73,5 +78,7 @@ public interface IOSafeTerminal extends Terminal {
     @Override
     KeyStroke readInput();
     @Override
+    int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes);
+    @Override
     void close();
 }
@@ -25,6 +25,7 @@ import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.input.KeyStroke;
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -189,6 +190,26 @@ public class IOSafeTerminalAdapter implements IOSafeTerminal {
         }
     }
 
+    @Override
+    public void putString(CharSequence string) {
+        try {
+            backend.putString(string);
+        }
+        catch(IOException e) {
+            exceptionHandler.onException(e);
+        }
+    }
+
+    @Override
+    public void putCharacters(char[] characters, int offset, int length) {
+        try {
+            backend.putCharacters(characters, offset, length);
+        }
+        catch(IOException e) {
+            exceptionHandler.onException(e);
+        }
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         try {
@@ -334,6 +355,17 @@ public class IOSafeTerminalAdapter implements IOSafeTerminal {
         return null;
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) {
+        try {
+            return backend.readInputBatch(keyStrokes, maxKeyStrokes);
+        }
+        catch(IOException e) {
+            exceptionHandler.onException(e);
+        }
+        return 0;
+    }
+
     /**
      * This class exposes methods for converting an extended terminal into an IOSafeExtendedTerminal.
      */
@@ -445,5 +477,90 @@ public class IOSafeTerminalAdapter implements IOSafeTerminal {
             }
         }
 
+        @Override
+        public void moveCursorRelative(int columns, int rows) {
+            try {
+                backend.moveCursorRelative(columns, rows);
+            }
+            catch(IOException e) {
+                exceptionHandler.onException(e);
+            }
+        }
+
+        @Override
+        public void moveCursorToLineStart() {
+            try {
+                backend.moveCursorToLineStart();
+            }
+            catch(IOException e) {
+                exceptionHandler.onException(e);
+            }
+        }
+
+        @Override
+        public void eraseCharacters(int count) {
+            try {
+                backend.eraseCharacters(count);
+            }
+            catch(IOException e) {
+                exceptionHandler.onException(e);
+            }
+        }
+
+        @Override
+        public void eraseToEndOfLine() {
+            try {
+                backend.eraseToEndOfLine();
+            }
+            catch(IOException e) {
+                exceptionHandler.onException(e);
+            }
+        }
+
+        @Override
+        public boolean isBackgroundColorErase() {
+            return backend.isBackgroundColorErase();
+        }
+
+        @Override
+        public void putCharacterRepeated(char c, int count) {
+            try {
+                backend.putCharacterRepeated(c, count);
+            }
+            catch(IOException e) {
+                exceptionHandler.onException(e);
+            }
+        }
+
+        @Override
+        public void setStyle(TextColor foregroundColor, TextColor backgroundColor, int enabledModifiers, int disabledModifiers) {
+            try {
+                backend.setStyle(foregroundColor, backgroundColor, enabledModifiers, disabledModifiers);
+            }
+            catch(IOException e) {
+                exceptionHandler.onException(e);
+            }
+        }
+
+        @Override
+        public void beginFrame() {
+            try {
+                backend.beginFrame();
+            }
+            catch(IOException e) {
+                exceptionHandler.onException(e);
+            }
+        }
+
+        @Override
+        public void endFrame() {
+            try {
+                backend.endFrame();
+            }
+            catch(IOException e) {
+                exceptionHandler.onException(e);
+            }
+        }
+
     }
 }
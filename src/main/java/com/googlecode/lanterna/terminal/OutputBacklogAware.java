@@ -0,0 +1,44 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal;
+
+/**
+ * Implemented by terminals that can write their output in the background, so that output handed to the terminal may
+ * not have reached the other end yet. A {@link com.googlecode.lanterna.screen.TerminalScreen} on top of such a terminal
+ * skips refreshes while the terminal is behind and catches up with a single refresh once the output has been written,
+ * so a slow connection doesn't hold up the thread refreshing the screen.
+ *
+ * @author martin
+ */
+public interface OutputBacklogAware {
+    /**
+     * Returns {@code true} if so much output from earlier flushes is still waiting to be written that more output
+     * should be held back
+     * @return {@code true} if the terminal hasn't caught up with its output
+     */
+    boolean isOutputBacklogged();
+
+    /**
+     * Sets a listener to be called whenever all pending output has been written. The listener is not called from the
+     * thread writing the output, so it may produce more output. There is only one listener, setting a new one replaces
+     * the previous.
+     * @param listener Listener to call when the output backlog has been cleared, or {@code null} for none
+     */
+    void setOutputDrainedListener(Runnable listener);
+}
@@ -137,6 +137,27 @@ public interface Terminal extends InputProvider, Closeable {
      */
     void putCharacter(char c) throws IOException;
 
+    /**
+     * Prints a string to the terminal at the current cursor location, with the same result as calling
+     * {@link #putCharacter(char)} for each character in it. Terminals that encode their output can do this
+     * considerably faster than printing the characters one by one.
+     *
+     * @param string Characters to place on the terminal
+     * @throws java.io.IOException If there was an underlying I/O error
+     */
+    void putString(CharSequence string) throws IOException;
+
+    /**
+     * Prints a range of characters from an array to the terminal at the current cursor location, with the same result
+     * as calling {@link #putCharacter(char)} for each of them.
+     *
+     * @param characters Array holding the characters to place on the terminal
+     * @param offset Index of the first character to print
+     * @param length Number of characters to print
+     * @throws java.io.IOException If there was an underlying I/O error
+     */
+    void putCharacters(char[] characters, int offset, int length) throws IOException;
+
     /**
      * Creates a new TextGraphics object that uses this Terminal directly when outputting. Keep in mind that you are
      * probably better off to switch to a Screen to make advanced text graphics more efficient. Also, this TextGraphics
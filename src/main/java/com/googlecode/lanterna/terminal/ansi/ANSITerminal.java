@@ -22,14 +22,18 @@ import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.input.*;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TerminalTextUtils;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.terminal.ExtendedTerminal;
 import com.googlecode.lanterna.terminal.MouseCaptureMode;
 
+import java.awt.Color;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.util.List;
 
 /**
  * Class containing graphics code for ANSI compliant text terminals and terminal emulators. All the methods inside of
@@ -39,10 +43,53 @@ import java.nio.charset.Charset;
  * @author Martin
  */
 public abstract class ANSITerminal extends StreamBasedTerminal implements ExtendedTerminal {
+    private static final byte[] CSI = { 0x1b, '[' };
+    private static final byte[] OSC = { 0x1b, ']' };
+    private static final byte[] SHOW_CURSOR = "?25h".getBytes();
+    private static final byte[] HIDE_CURSOR = "?25l".getBytes();
+
+    // ANSI colors in the order of their color codes, which is also the order of the first 16 indexed colors
+    private static final TextColor.ANSI[] ANSI_COLORS = {
+            TextColor.ANSI.BLACK,
+            TextColor.ANSI.RED,
+            TextColor.ANSI.GREEN,
+            TextColor.ANSI.YELLOW,
+            TextColor.ANSI.BLUE,
+            TextColor.ANSI.MAGENTA,
+            TextColor.ANSI.CYAN,
+            TextColor.ANSI.WHITE
+    };
+
+    // SGR parameters for turning each modifier on and off, indexed by ordinal; 0 if there is no such parameter
+    private static final int[] ENABLE_SGR_CODES = new int[SGR.values().length];
+    private static final int[] DISABLE_SGR_CODES = new int[SGR.values().length];
+    static {
+        setSGRCodes(SGR.BLINK, 5, 25);
+        setSGRCodes(SGR.BOLD, 1, 22);
+        setSGRCodes(SGR.BORDERED, 51, 54);
+        setSGRCodes(SGR.CIRCLED, 52, 54);
+        setSGRCodes(SGR.CROSSED_OUT, 9, 29);
+        setSGRCodes(SGR.FRAKTUR, 20, 23);
+        setSGRCodes(SGR.REVERSE, 7, 27);
+        setSGRCodes(SGR.UNDERLINE, 4, 24);
+        setSGRCodes(SGR.ITALIC, 3, 23);
+    }
+
+    private static void setSGRCodes(SGR sgr, int enableCode, int disableCode) {
+        ENABLE_SGR_CODES[sgr.ordinal()] = enableCode;
+        DISABLE_SGR_CODES[sgr.ordinal()] = disableCode;
+    }
+
 
     private MouseCaptureMode requestedMouseCaptureMode;
     private MouseCaptureMode mouseCaptureMode;
     private boolean inPrivateMode;
+    private boolean bracketedPasteMode;
+    private boolean repeatCharacterSupported;
+    private boolean backgroundColorErase;
+    private boolean synchronizedUpdateSupported;
+    private ColorMode colorMode;
+    private final OutputAccumulator styleSequence;
 
     @SuppressWarnings("WeakerAccess")
     protected ANSITerminal(
@@ -51,9 +98,37 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
             Charset terminalCharset) {
 
         super(terminalInput, terminalOutput, terminalCharset);
+        this.styleSequence = new OutputAccumulator(64);
+        initialize();
+    }
+
+    /**
+     * Creates an ANSI terminal that writes its output to a channel instead of to an output stream, see
+     * {@link StreamBasedTerminal#StreamBasedTerminal(InputStream, WritableByteChannel, Charset)}
+     * @param terminalInput Input stream to read terminal input from
+     * @param terminalOutputChannel Channel to write terminal output to, must be in blocking mode
+     * @param terminalCharset Character set to use when converting characters to bytes
+     */
+    @SuppressWarnings("WeakerAccess")
+    protected ANSITerminal(
+            InputStream terminalInput,
+            WritableByteChannel terminalOutputChannel,
+            Charset terminalCharset) {
+
+        super(terminalInput, terminalOutputChannel, terminalCharset);
+        this.styleSequence = new OutputAccumulator(64);
+        initialize();
+    }
+
+    private void initialize() {
         this.inPrivateMode = false;
+        this.bracketedPasteMode = false;
         this.requestedMouseCaptureMode = null;
         this.mouseCaptureMode = null;
+        this.repeatCharacterSupported = false;
+        this.backgroundColorErase = true;
+        this.synchronizedUpdateSupported = true;
+        this.colorMode = ColorMode.TRUE_COLOR;
         getInputDecoder().addProfile(getDefaultKeyDecodingProfile());
     }
 
@@ -66,28 +141,15 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
     }
 
     private void writeCSISequenceToTerminal(byte... tail) throws IOException {
-        byte[] completeSequence = new byte[tail.length + 2];
-        completeSequence[0] = (byte)0x1b;
-        completeSequence[1] = (byte)'[';
-        System.arraycopy(tail, 0, completeSequence, 2, tail.length);
-        writeToTerminal(completeSequence);
+        writeSequenceToTerminal(CSI, tail, (byte)0);
     }
 
     private void writeSGRSequenceToTerminal(byte... sgrParameters) throws IOException {
-        byte[] completeSequence = new byte[sgrParameters.length + 3];
-        completeSequence[0] = (byte)0x1b;
-        completeSequence[1] = (byte)'[';
-        completeSequence[completeSequence.length - 1] = (byte)'m';
-        System.arraycopy(sgrParameters, 0, completeSequence, 2, sgrParameters.length);
-        writeToTerminal(completeSequence);
+        writeSequenceToTerminal(CSI, sgrParameters, (byte)'m');
     }
 
     private void writeOSCSequenceToTerminal(byte... tail) throws IOException {
-        byte[] completeSequence = new byte[tail.length + 2];
-        completeSequence[0] = (byte)0x1b;
-        completeSequence[1] = (byte)']';
-        System.arraycopy(tail, 0, completeSequence, 2, tail.length);
-        writeToTerminal(completeSequence);
+        writeSequenceToTerminal(OSC, tail, (byte)0);
     }
 
     // Final because we handle the onResized logic here; extending classes should override #findTerminalSize instead
@@ -129,88 +191,88 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
 
     @Override
     public void setForegroundColor(TextColor color) throws IOException {
-        writeSGRSequenceToTerminal(color.getForegroundSGRSequence());
+        writeSGRSequenceToTerminal(ColorSequences.foreground(toSupportedColor(color)));
     }
 
     @Override
     public void setBackgroundColor(TextColor color) throws IOException {
-        writeSGRSequenceToTerminal(color.getBackgroundSGRSequence());
+        writeSGRSequenceToTerminal(ColorSequences.background(toSupportedColor(color)));
     }
 
     @Override
     public void enableSGR(SGR sgr) throws IOException {
-        switch(sgr) {
-            case BLINK:
-                writeCSISequenceToTerminal((byte) '5', (byte) 'm');
-                break;
-            case BOLD:
-                writeCSISequenceToTerminal((byte) '1', (byte) 'm');
-                break;
-            case BORDERED:
-                writeCSISequenceToTerminal((byte) '5', (byte) '1', (byte) 'm');
-                break;
-            case CIRCLED:
-                writeCSISequenceToTerminal((byte) '5', (byte) '2', (byte) 'm');
-                break;
-            case CROSSED_OUT:
-                writeCSISequenceToTerminal((byte) '9', (byte) 'm');
-                break;
-            case FRAKTUR:
-                writeCSISequenceToTerminal((byte) '2', (byte) '0', (byte) 'm');
-                break;
-            case REVERSE:
-                writeCSISequenceToTerminal((byte) '7', (byte) 'm');
-                break;
-            case UNDERLINE:
-                writeCSISequenceToTerminal((byte) '4', (byte) 'm');
-                break;
-            case ITALIC:
-                writeCSISequenceToTerminal((byte) '3', (byte) 'm');
-                break;
+        int code = ENABLE_SGR_CODES[sgr.ordinal()];
+        if(code != 0) {
+            writeSequenceToTerminal(CSI, code, (byte)'m');
         }
     }
 
     @Override
     public void disableSGR(SGR sgr) throws IOException {
-        switch(sgr) {
-            case BLINK:
-                writeCSISequenceToTerminal((byte) '2', (byte) '5', (byte) 'm');
-                break;
-            case BOLD:
-                writeCSISequenceToTerminal((byte) '2', (byte) '2', (byte) 'm');
-                break;
-            case BORDERED:
-                writeCSISequenceToTerminal((byte) '5', (byte) '4', (byte) 'm');
-                break;
-            case CIRCLED:
-                writeCSISequenceToTerminal((byte) '5', (byte) '4', (byte) 'm');
-                break;
-            case CROSSED_OUT:
-                writeCSISequenceToTerminal((byte) '2', (byte) '9', (byte) 'm');
-                break;
-            case FRAKTUR:
-                writeCSISequenceToTerminal((byte) '2', (byte) '3', (byte) 'm');
-                break;
-            case REVERSE:
-                writeCSISequenceToTerminal((byte) '2', (byte) '7', (byte) 'm');
-                break;
-            case UNDERLINE:
-                writeCSISequenceToTerminal((byte) '2', (byte) '4', (byte) 'm');
-                break;
-            case ITALIC:
-                writeCSISequenceToTerminal((byte) '2', (byte) '3', (byte) 'm');
-                break;
+        int code = DISABLE_SGR_CODES[sgr.ordinal()];
+        if(code != 0) {
+            writeSequenceToTerminal(CSI, code, (byte)'m');
+        }
+    }
+
+    @Override
+    public void setStyle(TextColor foregroundColor, TextColor backgroundColor, int enabledModifiers, int disabledModifiers) throws IOException {
+        synchronized(styleSequence) {
+            styleSequence.clear();
+            // Some modifiers share the same code for turning them off, so keep track of which codes have been added
+            long addedCodes = 0;
+            for(int i = 0; i < DISABLE_SGR_CODES.length; i++) {
+                int code = DISABLE_SGR_CODES[i];
+                if((disabledModifiers & (1 << i)) != 0 && code != 0 && (addedCodes & (1L << code)) == 0) {
+                    appendStyleParameter(code);
+                    addedCodes |= 1L << code;
+                }
+            }
+            for(int i = 0; i < ENABLE_SGR_CODES.length; i++) {
+                if((enabledModifiers & (1 << i)) != 0 && ENABLE_SGR_CODES[i] != 0) {
+                    appendStyleParameter(ENABLE_SGR_CODES[i]);
+                }
+            }
+            if(foregroundColor != null) {
+                appendStyleParameter(ColorSequences.foreground(toSupportedColor(foregroundColor)));
+            }
+            if(backgroundColor != null) {
+                appendStyleParameter(ColorSequences.background(toSupportedColor(backgroundColor)));
+            }
+            if(styleSequence.size() > 0) {
+                styleSequence.append((byte)'m');
+                writeToTerminal(styleSequence);
+            }
+        }
+    }
+
+    private void appendStyleParameter(int code) {
+        appendStyleSeparator();
+        styleSequence.appendDecimal(code);
+    }
+
+    private void appendStyleParameter(byte[] parameter) {
+        appendStyleSeparator();
+        styleSequence.append(parameter);
+    }
+
+    private void appendStyleSeparator() {
+        if(styleSequence.size() == 0) {
+            styleSequence.append(CSI);
+        }
+        else {
+            styleSequence.append((byte)';');
         }
     }
 
     @Override
     public void resetColorAndSGR() throws IOException {
-        writeCSISequenceToTerminal((byte) '0', (byte) 'm');
+        writeSequenceToTerminal(CSI, 0, (byte)'m');
     }
 
     @Override
     public void clearScreen() throws IOException {
-        writeCSISequenceToTerminal((byte) '2', (byte) 'J');
+        writeSequenceToTerminal(CSI, 2, (byte)'J');
     }
 
     @Override
@@ -219,6 +281,9 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
             throw new IllegalStateException("Cannot call enterPrivateMode() when already in private mode");
         }
         writeCSISequenceToTerminal((byte) '?', (byte) '1', (byte) '0', (byte) '4', (byte) '9', (byte) 'h');
+        if (bracketedPasteMode) {
+            updateBracketedPasteMode('h');
+        }
         if (requestedMouseCaptureMode != null) {
             this.mouseCaptureMode = requestedMouseCaptureMode;
             updateMouseCaptureMode(this.mouseCaptureMode, 'h');
@@ -235,6 +300,9 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
         resetColorAndSGR();
         setCursorVisible(true);
         writeCSISequenceToTerminal((byte) '?', (byte) '1', (byte) '0', (byte) '4', (byte) '9', (byte) 'l');
+        if (bracketedPasteMode) {
+            updateBracketedPasteMode('l');
+        }
         if (null != mouseCaptureMode) {
             updateMouseCaptureMode(this.mouseCaptureMode, 'l');
             this.mouseCaptureMode = null;
@@ -253,7 +321,79 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
 
     @Override
     public void setCursorPosition(int x, int y) throws IOException {
-        writeCSISequenceToTerminal(((y + 1) + ";" + (x + 1) + "H").getBytes());
+        writeSequenceToTerminal(CSI, y + 1, x + 1, (byte)'H');
+    }
+
+    /**
+     * Returns which colors this terminal assumes the terminal emulator can display
+     * @return Colors supported by the terminal emulator
+     */
+    public ColorMode getColorMode() {
+        return colorMode;
+    }
+
+    /**
+     * Tells this terminal which colors the terminal emulator on the other end can display. Colors outside of this
+     * range are replaced with the closest supported color when they are set. The default is
+     * {@link ColorMode#TRUE_COLOR}, which sends all colors unchanged.
+     * @param colorMode Colors supported by the terminal emulator
+     */
+    public void setColorMode(ColorMode colorMode) {
+        if(colorMode == null) {
+            throw new IllegalArgumentException("Cannot set color mode to null");
+        }
+        this.colorMode = colorMode;
+    }
+
+    /**
+     * Returns {@code true} if this terminal asks the terminal emulator to mark up pasted text while in private mode
+     * @return {@code true} if bracketed paste mode is used
+     */
+    public boolean isBracketedPasteMode() {
+        return bracketedPasteMode;
+    }
+
+    /**
+     * Enables or disables bracketed paste mode, which is disabled by default. With it, the terminal emulator marks up
+     * text pasted while in private mode so that it's read as a single {@link com.googlecode.lanterna.input.PasteEvent}
+     * instead of one key stroke per character. Code reading input must then handle
+     * {@link com.googlecode.lanterna.input.KeyType#Paste}, or the pasted text is lost; in the GUI system,
+     * {@code TextBox} inserts it and other components get it as ordinary key strokes. Not all terminal emulators
+     * support this, those that don't will just send the pasted text as ordinary input.
+     * @param bracketedPasteMode {@code true} if bracketed paste mode should be used
+     * @throws IOException If there was an I/O error when updating the terminal emulator
+     */
+    public void setBracketedPasteMode(boolean bracketedPasteMode) throws IOException {
+        if(inPrivateMode && bracketedPasteMode != this.bracketedPasteMode) {
+            updateBracketedPasteMode(bracketedPasteMode ? 'h' : 'l');
+            flush();
+        }
+        this.bracketedPasteMode = bracketedPasteMode;
+    }
+
+    private void updateBracketedPasteMode(char l_or_h) throws IOException {
+        writeCSISequenceToTerminal((byte) '?', (byte) '2', (byte) '0', (byte) '0', (byte) '4', (byte) l_or_h);
+    }
+
+    private TextColor toSupportedColor(TextColor color) {
+        if(color instanceof TextColor.ANSI || colorMode == ColorMode.TRUE_COLOR) {
+            return color;
+        }
+        if(color instanceof TextColor.Indexed) {
+            if(colorMode == ColorMode.INDEXED_256) {
+                return color;
+            }
+            int colorIndex = ((TextColor.Indexed)color).getColorIndex();
+            if(colorIndex < 16) {
+                // The system colors are the ANSI colors followed by their bright versions
+                return ANSI_COLORS[colorIndex % 8];
+            }
+        }
+        Color rgb = color.toColor();
+        if(colorMode == ColorMode.INDEXED_256) {
+            return TextColor.Indexed.fromRGB(rgb.getRed(), rgb.getGreen(), rgb.getBlue());
+        }
+        return TextColor.ANSI.fromRGB(rgb.getRed(), rgb.getGreen(), rgb.getBlue());
     }
 
     @Override
@@ -261,6 +401,116 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
         setCursorPosition(position.getColumn(), position.getRow());
     }
 
+    @Override
+    public void moveCursorRelative(int columns, int rows) throws IOException {
+        if(rows != 0) {
+            writeCSISequenceWithCountToTerminal(Math.abs(rows), rows < 0 ? 'A' : 'B');
+        }
+        if(columns != 0) {
+            writeCSISequenceWithCountToTerminal(Math.abs(columns), columns < 0 ? 'D' : 'C');
+        }
+    }
+
+    @Override
+    public void moveCursorToLineStart() throws IOException {
+        writeToTerminal((byte)'\r');
+    }
+
+    @Override
+    public void eraseCharacters(int count) throws IOException {
+        if(count > 0) {
+            writeCSISequenceWithCountToTerminal(count, 'X');
+        }
+    }
+
+    @Override
+    public void eraseToEndOfLine() throws IOException {
+        writeSequenceToTerminal(CSI, -1, (byte)'K');
+    }
+
+    @Override
+    public boolean isBackgroundColorErase() {
+        return backgroundColorErase;
+    }
+
+    /**
+     * Tells this terminal if the terminal emulator on the other end will give characters erased through
+     * {@link #eraseCharacters(int)} and {@link #eraseToEndOfLine()} the active background color (often called
+     * {@code bce} in terminfo). This is the case for most terminal emulators, so the default is {@code true}.
+     * @param backgroundColorErase {@code true} if erasing uses the active background color
+     */
+    public void setBackgroundColorErase(boolean backgroundColorErase) {
+        this.backgroundColorErase = backgroundColorErase;
+    }
+
+    @Override
+    public void putCharacterRepeated(char c, int count) throws IOException {
+        if(count <= 0 || !TerminalTextUtils.isPrintableCharacter(c)) {
+            return;
+        }
+        // REP repeats the last printed graphic character, so it's not used when the character needed a charset switch
+        writeCharacterRepeated(c, count, repeatCharacterSupported ? CSI : null, (byte)'b');
+    }
+
+    /**
+     * Returns {@code true} if this terminal will use the REP (repeat preceding character) control sequence in
+     * {@link #putCharacterRepeated(char, int)}.
+     * @return {@code true} if the terminal emulator is assumed to support REP
+     */
+    public boolean isRepeatCharacterSupported() {
+        return repeatCharacterSupported;
+    }
+
+    /**
+     * Tells this terminal if the terminal emulator on the other end understands the REP (repeat preceding character)
+     * control sequence. Many terminal emulators do, but some, such as the Linux console, don't, so the default is
+     * {@code false} and repeated characters are sent one by one.
+     * @param repeatCharacterSupported {@code true} if the terminal emulator supports REP
+     */
+    public void setRepeatCharacterSupported(boolean repeatCharacterSupported) {
+        this.repeatCharacterSupported = repeatCharacterSupported;
+    }
+
+    @Override
+    public synchronized void beginFrame() throws IOException {
+        if(beginOutputFrame() && synchronizedUpdateSupported) {
+            writeCSISequenceToTerminal("?2026h".getBytes());
+        }
+    }
+
+    @Override
+    public synchronized void endFrame() throws IOException {
+        if(getOutputFrameDepth() == 1 && synchronizedUpdateSupported) {
+            writeCSISequenceToTerminal("?2026l".getBytes());
+        }
+        endOutputFrame();
+    }
+
+    /**
+     * Returns {@code true} if frames started with {@link #beginFrame()} will be wrapped in synchronized update
+     * sequences (DEC private mode 2026)
+     * @return {@code true} if synchronized updates are used
+     */
+    public boolean isSynchronizedUpdateSupported() {
+        return synchronizedUpdateSupported;
+    }
+
+    /**
+     * Tells this terminal if frames should be wrapped in synchronized update sequences (DEC private mode 2026), which
+     * makes supporting terminal emulators hold back updating the display until the whole frame has been received.
+     * Terminal emulators that don't support this mode ignores the sequences, so the default is {@code true}. Frames
+     * are written to the output stream in a single write regardless of this setting.
+     * @param synchronizedUpdateSupported {@code true} if synchronized update sequences should be sent
+     */
+    public void setSynchronizedUpdateSupported(boolean synchronizedUpdateSupported) {
+        this.synchronizedUpdateSupported = synchronizedUpdateSupported;
+    }
+
+    private void writeCSISequenceWithCountToTerminal(int count, char command) throws IOException {
+        // The count parameter defaults to 1 when omitted
+        writeSequenceToTerminal(CSI, count == 1 ? -1 : count, (byte)command);
+    }
+
     @Override
     public synchronized TerminalPosition getCursorPosition() throws IOException {
         resetMemorizedCursorPosition();
@@ -276,7 +526,7 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
 
     @Override
     public void setCursorVisible(boolean visible) throws IOException {
-        writeCSISequenceToTerminal(("?25" + (visible ? "h" : "l")).getBytes());
+        writeCSISequenceToTerminal(visible ? SHOW_CURSOR : HIDE_CURSOR);
     }
 
     @Override
@@ -294,6 +544,22 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
         return filterMouseEvents(super.pollInput());
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) throws IOException {
+        int start = keyStrokes.size();
+        super.readInputBatch(keyStrokes, maxKeyStrokes);
+        // Drop the filtered out mouse events by moving the remaining key strokes down over them
+        int kept = start;
+        for(int i = start; i < keyStrokes.size(); i++) {
+            KeyStroke keyStroke = filterMouseEvents(keyStrokes.get(i));
+            if(keyStroke != null) {
+                keyStrokes.set(kept++, keyStroke);
+            }
+        }
+        keyStrokes.subList(kept, keyStrokes.size()).clear();
+        return kept - start;
+    }
+
     private KeyStroke filterMouseEvents(KeyStroke keyStroke) {
         //Remove bad input events from terminals that are not following the xterm protocol properly
         if(keyStroke == null || keyStroke.getKeyType() != KeyType.MouseEvent) {
@@ -375,6 +641,9 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
         if(getCharset().equals(Charset.forName("UTF-8"))) {
             writeCSISequenceToTerminal((byte)'?', (byte)'1', (byte)'0', (byte)'0', (byte)'5', (byte)l_or_h);
         }
+        // Terminals supporting the SGR format use it over the ones above, it has no coordinate limit and tells which
+        // button was released
+        writeCSISequenceToTerminal((byte)'?', (byte)'1', (byte)'0', (byte)'0', (byte)'6', (byte)l_or_h);
     }
 
     @Override
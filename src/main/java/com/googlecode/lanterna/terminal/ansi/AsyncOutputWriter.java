@@ -0,0 +1,255 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.ansi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedList;
+
+/**
+ * Writes terminal output on a background thread, so that the thread producing the output doesn't have to wait for a
+ * slow output stream or channel. Output is queued in chunks; once the number of queued bytes reaches the backlog
+ * limit, {@link #submit(byte[])} blocks until the writer has caught up. The drained listener is called from a thread of
+ * its own, so that it can produce more output without waiting for the writer thread, which would be waiting for it.
+ * @author martin
+ */
+class AsyncOutputWriter {
+    private final OutputStream outputStream;
+    private final WritableByteChannel outputChannel;
+    private final int backlogLimit;
+    private final Thread writerThread;
+    private final Thread listenerThread;
+
+    // All of these are guarded by this object
+    private final LinkedList<byte[]> queue;
+    private int backlog;
+    private int peakBacklog;
+    private boolean running;
+    private IOException failure;
+    private Runnable drainedListener;
+    private boolean drainedPending;
+
+    /**
+     * Creates a writer for either an output stream or a channel; exactly one of them must be non-null. The writer
+     * thread is started right away.
+     * @param outputStream Stream to write to, or {@code null} if writing to a channel
+     * @param outputChannel Channel to write to, or {@code null} if writing to a stream
+     * @param backlogLimit Number of queued bytes at which {@link #submit(byte[])} starts blocking
+     */
+    AsyncOutputWriter(OutputStream outputStream, WritableByteChannel outputChannel, int backlogLimit) {
+        if(backlogLimit < 1) {
+            throw new IllegalArgumentException("Backlog limit must be at least 1, was " + backlogLimit);
+        }
+        this.outputStream = outputStream;
+        this.outputChannel = outputChannel;
+        this.backlogLimit = backlogLimit;
+        this.queue = new LinkedList<byte[]>();
+        this.backlog = 0;
+        this.peakBacklog = 0;
+        this.running = true;
+        this.failure = null;
+        this.drainedPending = false;
+        this.writerThread = new Thread("LanternaOutputWriter") {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        };
+        this.writerThread.setDaemon(true);
+        this.listenerThread = new Thread("LanternaOutputDrained") {
+            @Override
+            public void run() {
+                listenerLoop();
+            }
+        };
+        this.listenerThread.setDaemon(true);
+        this.writerThread.start();
+        this.listenerThread.start();
+    }
+
+    /**
+     * Queues a chunk of output to be written. If the backlog limit has been reached, this method waits until enough
+     * has been written.
+     * @param chunk Output to write, must not be modified afterwards
+     * @throws IOException If an earlier write failed
+     */
+    synchronized void submit(byte[] chunk) throws IOException {
+        while(failure == null && running && backlog >= backlogLimit) {
+            try {
+                wait();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the output backlog to clear");
+            }
+        }
+        if(failure != null) {
+            throw failure;
+        }
+        if(!running) {
+            throw new IOException("Asynchronous output writer has been stopped");
+        }
+        queue.add(chunk);
+        backlog += chunk.length;
+        peakBacklog = Math.max(peakBacklog, backlog);
+        notifyAll();
+    }
+
+    /**
+     * @return Number of bytes queued but not yet written
+     */
+    synchronized int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * @return Largest number of bytes that have been queued at the same time
+     */
+    synchronized int getPeakBacklog() {
+        return peakBacklog;
+    }
+
+    /**
+     * @return Number of queued bytes at which {@link #submit(byte[])} starts blocking
+     */
+    int getBacklogLimit() {
+        return backlogLimit;
+    }
+
+    synchronized void setDrainedListener(Runnable drainedListener) {
+        this.drainedListener = drainedListener;
+    }
+
+    /**
+     * Stops the writer after everything queued has been written and waits for the writer thread to finish
+     * @throws IOException If writing the queued output failed
+     */
+    void stop() throws IOException {
+        synchronized(this) {
+            running = false;
+            notifyAll();
+        }
+        if(Thread.currentThread() != writerThread) {
+            try {
+                writerThread.join();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized(this) {
+            if(failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while(true) {
+            byte[] chunk;
+            synchronized(this) {
+                while(queue.isEmpty() && running) {
+                    try {
+                        wait();
+                    }
+                    catch(InterruptedException ignore) {
+                    }
+                }
+                if(queue.isEmpty()) {
+                    return;
+                }
+                // The chunk stays counted in the backlog until it has actually been written
+                chunk = queue.removeFirst();
+            }
+            try {
+                write(chunk);
+                if(outputStream != null && isQueueEmpty()) {
+                    outputStream.flush();
+                }
+                synchronized(this) {
+                    backlog -= chunk.length;
+                    notifyAll();
+                    if(backlog == 0 && drainedListener != null) {
+                        drainedPending = true;
+                    }
+                }
+            }
+            catch(IOException e) {
+                // The output is broken, so shut down the listener thread as well
+                synchronized(this) {
+                    failure = e;
+                    running = false;
+                    drainedPending = false;
+                    queue.clear();
+                    backlog = 0;
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private void listenerLoop() {
+        while(true) {
+            Runnable listener;
+            synchronized(this) {
+                while(!drainedPending && running) {
+                    try {
+                        wait();
+                    }
+                    catch(InterruptedException ignore) {
+                    }
+                }
+                if(!drainedPending) {
+                    return;
+                }
+                drainedPending = false;
+                listener = drainedListener;
+            }
+            if(listener == null) {
+                continue;
+            }
+            try {
+                listener.run();
+            }
+            catch(RuntimeException e) {
+                // Don't let a failing listener stop later notifications
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private synchronized boolean isQueueEmpty() {
+        return queue.isEmpty();
+    }
+
+    private void write(byte[] chunk) throws IOException {
+        if(outputChannel != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            while(buffer.hasRemaining()) {
+                outputChannel.write(buffer);
+            }
+        }
+        else {
+            outputStream.write(chunk);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.ansi;
+
+/**
+ * Describes which colors the terminal emulator on the other end of an {@link ANSITerminal} can display. Colors that
+ * the terminal can't show are replaced with the closest color it can show before being sent.
+ * @author martin
+ */
+public enum ColorMode {
+    /**
+     * The terminal emulator supports 24-bit RGB colors, all colors are sent as they are
+     */
+    TRUE_COLOR,
+    /**
+     * The terminal emulator supports the 256 color indexed palette, RGB colors are replaced by the closest indexed
+     * color
+     */
+    INDEXED_256,
+    /**
+     * The terminal emulator only supports the 8 ANSI colors (16 with bold), RGB and indexed colors are replaced by the
+     * closest ANSI color
+     */
+    ANSI,
+    ;
+}
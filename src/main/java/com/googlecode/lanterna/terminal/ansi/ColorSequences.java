@@ -0,0 +1,67 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.ansi;
+
+import com.googlecode.lanterna.TextColor;
+
+/**
+ * Shared tables of the SGR parameters for the ANSI and indexed colors, so that {@link ANSITerminal} can write them
+ * without asking the color for a new array each time. The arrays returned here are shared and must not be modified.
+ * Colors outside of these two palettes are looked up through the color itself.
+ * @author martin
+ */
+class ColorSequences {
+    private static final byte[][] ANSI_FOREGROUND = new byte[TextColor.ANSI.values().length][];
+    private static final byte[][] ANSI_BACKGROUND = new byte[TextColor.ANSI.values().length][];
+    private static final byte[][] INDEXED_FOREGROUND = new byte[256][];
+    private static final byte[][] INDEXED_BACKGROUND = new byte[256][];
+    static {
+        for(TextColor.ANSI color: TextColor.ANSI.values()) {
+            ANSI_FOREGROUND[color.ordinal()] = color.getForegroundSGRSequence();
+            ANSI_BACKGROUND[color.ordinal()] = color.getBackgroundSGRSequence();
+        }
+        for(int i = 0; i < 256; i++) {
+            TextColor.Indexed color = new TextColor.Indexed(i);
+            INDEXED_FOREGROUND[i] = color.getForegroundSGRSequence();
+            INDEXED_BACKGROUND[i] = color.getBackgroundSGRSequence();
+        }
+    }
+
+    private ColorSequences() {}
+
+    static byte[] foreground(TextColor color) {
+        if(color instanceof TextColor.ANSI) {
+            return ANSI_FOREGROUND[((TextColor.ANSI)color).ordinal()];
+        }
+        else if(color instanceof TextColor.Indexed) {
+            return INDEXED_FOREGROUND[((TextColor.Indexed)color).getColorIndex()];
+        }
+        return color.getForegroundSGRSequence();
+    }
+
+    static byte[] background(TextColor color) {
+        if(color instanceof TextColor.ANSI) {
+            return ANSI_BACKGROUND[((TextColor.ANSI)color).ordinal()];
+        }
+        else if(color instanceof TextColor.Indexed) {
+            return INDEXED_BACKGROUND[((TextColor.Indexed)color).getColorIndex()];
+        }
+        return color.getBackgroundSGRSequence();
+    }
+}
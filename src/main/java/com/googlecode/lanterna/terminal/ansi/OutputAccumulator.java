@@ -0,0 +1,217 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.ansi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Growable byte buffer that collects terminal output until it's drained to the output stream or channel in a single
+ * write. Escape sequences can be appended piece by piece, including their numeric parameters, so that building them
+ * doesn't require any temporary arrays or strings. This class is not thread-safe; {@link StreamBasedTerminal} guards it
+ * with its output lock.
+ * @author martin
+ */
+class OutputAccumulator {
+    private ByteBuffer buffer;
+
+    OutputAccumulator(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * Creates an accumulator that optionally keeps its content in a direct buffer. A direct accumulator can be drained
+     * to a channel without the content being copied again, but it can't be drained to an output stream.
+     * @param initialCapacity Number of bytes the accumulator can hold before it has to grow
+     * @param direct If {@code true}, the content is kept in a direct buffer
+     */
+    OutputAccumulator(int initialCapacity, boolean direct) {
+        this.buffer = allocate(initialCapacity, direct);
+    }
+
+    /**
+     * @return Number of bytes currently collected
+     */
+    int size() {
+        return buffer.position();
+    }
+
+    void append(byte b) {
+        ensureRemaining(1);
+        buffer.put(b);
+    }
+
+    void append(byte[] bytes) {
+        append(bytes, 0, bytes.length);
+    }
+
+    void append(byte[] bytes, int offset, int length) {
+        ensureRemaining(length);
+        buffer.put(bytes, offset, length);
+    }
+
+    void append(OutputAccumulator other) {
+        if(other.buffer.hasArray()) {
+            append(other.buffer.array(), other.buffer.arrayOffset(), other.buffer.position());
+            return;
+        }
+        ByteBuffer content = other.buffer.duplicate();
+        content.flip();
+        ensureRemaining(content.remaining());
+        buffer.put(content);
+    }
+
+    /**
+     * Appends copies of bytes that have already been collected, so that repeated content doesn't have to be built up in
+     * a separate array first
+     * @param offset Position of the first byte to copy, counted from the start of the collected content
+     * @param length Number of bytes to copy
+     * @param times How many copies to append
+     */
+    void appendCopies(int offset, int length, int times) {
+        ensureRemaining(length * times);
+        for(int i = 0; i < times; i++) {
+            for(int index = offset; index < offset + length; index++) {
+                buffer.put(buffer.get(index));
+            }
+        }
+    }
+
+    /**
+     * @param index Position of the byte, counted from the start of the collected content
+     * @return Byte collected at this position
+     */
+    byte get(int index) {
+        return buffer.get(index);
+    }
+
+    /**
+     * Discards everything collected so far
+     */
+    void clear() {
+        buffer.clear();
+    }
+
+    /**
+     * Appends the decimal representation of a non-negative number as ASCII digits
+     * @param value Number to append
+     */
+    void appendDecimal(int value) {
+        if(value < 0) {
+            throw new IllegalArgumentException("Cannot append negative number " + value);
+        }
+        int digits = getDecimalLength(value);
+        ensureRemaining(digits);
+        int end = buffer.position() + digits;
+        for(int index = end - 1; index >= buffer.position(); index--) {
+            buffer.put(index, (byte)('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Writes everything collected so far to an output stream, in a single write, and empties the buffer. The output
+     * stream is not flushed.
+     * @param outputStream Stream to write to
+     * @return Number of bytes written
+     * @throws IOException If there was an underlying I/O error, the buffer is emptied anyway
+     */
+    int drainTo(OutputStream outputStream) throws IOException {
+        int length = buffer.position();
+        if(length == 0) {
+            return 0;
+        }
+        try {
+            outputStream.write(buffer.array(), buffer.arrayOffset(), length);
+        }
+        finally {
+            buffer.clear();
+        }
+        return length;
+    }
+
+    /**
+     * Returns everything collected so far as a new array and empties the buffer
+     * @return Collected bytes
+     */
+    byte[] takeBytes() {
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(bytes);
+        buffer.clear();
+        return bytes;
+    }
+
+    /**
+     * Writes everything collected so far to a channel and empties the buffer. The channel must be in blocking mode,
+     * this method keeps writing until everything has been accepted.
+     * @param channel Channel to write to
+     * @return Number of bytes written
+     * @throws IOException If there was an underlying I/O error, the buffer is emptied anyway
+     */
+    int drainTo(WritableByteChannel channel) throws IOException {
+        int length = buffer.position();
+        if(length == 0) {
+            return 0;
+        }
+        buffer.flip();
+        try {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        finally {
+            buffer.clear();
+        }
+        return length;
+    }
+
+    /**
+     * @param value Non-negative number
+     * @return Number of ASCII digits {@link #appendDecimal(int)} would append for this number
+     */
+    static int getDecimalLength(int value) {
+        int digits = 1;
+        for(int remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static ByteBuffer allocate(int capacity, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private void ensureRemaining(int length) {
+        if(buffer.remaining() >= length) {
+            return;
+        }
+        int capacity = Math.max(buffer.capacity(), 16);
+        while(capacity - buffer.position() < length) {
+            capacity *= 2;
+        }
+        ByteBuffer newBuffer = allocate(capacity, buffer.isDirect());
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+}
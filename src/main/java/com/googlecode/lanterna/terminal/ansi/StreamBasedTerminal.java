@@ -22,51 +22,121 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 import com.googlecode.lanterna.Symbols;
 import com.googlecode.lanterna.TerminalTextUtils;
 import com.googlecode.lanterna.input.InputDecoder;
 import com.googlecode.lanterna.input.KeyDecodingProfile;
 import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.input.MouseAction;
+import com.googlecode.lanterna.input.MouseActionType;
 import com.googlecode.lanterna.input.ScreenInfoAction;
 import com.googlecode.lanterna.input.ScreenInfoCharacterPattern;
 import com.googlecode.lanterna.terminal.AbstractTerminal;
+import com.googlecode.lanterna.terminal.OutputBacklogAware;
 import com.googlecode.lanterna.TerminalPosition;
 
 import java.io.ByteArrayOutputStream;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * An abstract terminal implementing functionality for terminals using OutputStream/InputStream. You can extend from
+ * An abstract terminal implementing functionality for terminals using OutputStream/InputStream (or a
+ * WritableByteChannel for the output). You can extend from
  * this class if your terminal implementation is using standard input and standard output but not ANSI escape codes (in
  * which case you should extend ANSITerminal). This class also contains some automatic UTF-8 to VT100 character
  * conversion when the terminal is not set to read UTF-8.
  *
  * @author Martin
  */
-public abstract class StreamBasedTerminal extends AbstractTerminal {
+public abstract class StreamBasedTerminal extends AbstractTerminal implements OutputBacklogAware {
 
     private static final Charset UTF8_REFERENCE = Charset.forName("UTF-8");
 
     private final InputStream terminalInput;
     private final OutputStream terminalOutput;
+    private final WritableByteChannel terminalOutputChannel;
+    private final Object outputLock;
     private final Charset terminalCharset;
 
     private final InputDecoder inputDecoder;
+    // Key strokes read while waiting for a cursor position report; added to and polled from without the read lock
     private final Queue<KeyStroke> keyQueue;
     private final Lock readLock;
+    // Key stroke read to find the end of a burst of mouse actions that wasn't part of it, guarded by readLock
+    private KeyStroke lookAheadKey;
+    // Mouse actions of these types that follow each other in the input are collapsed into the latest one
+    private volatile EnumSet<MouseActionType> coalescedMouseActions;
 
     private volatile TerminalPosition lastReportedCursorPosition;
+
+    private static final int DEFAULT_OUTPUT_BUFFER_THRESHOLD = 16384;
+    // Long enough for the rest of an escape sequence split over several reads or packets, short enough that a lone
+    // Escape key press isn't noticeably delayed; the wait ends as soon as more input arrives
+    private static final long DEFAULT_INPUT_TIMEOUT_MILLIS = 50;
+
+    // All output is collected here and written to the output stream or channel on flush, when a frame ends or when the
+    // threshold is reached outside of a frame; these fields are guarded by outputLock
+    private final OutputAccumulator outputBuffer;
+    private int outputBufferThreshold;
+    private int frameDepth;
+    private long flushCount;
+    private long bytesFlushed;
+    private int lastFlushSize;
+    // When set, drained output is handed to this writer instead of being written on the calling thread
+    private AsyncOutputWriter asyncOutputWriter;
+    private Runnable outputDrainedListener;
+    // 0 means the backlog limit of the asynchronous writer
+    private int outputBacklogThreshold;
+
+    // Reused when encoding printed characters, also guarded by outputLock
+    private final CharsetEncoder characterEncoder;
+    private final CharBuffer characterEncoderInput;
+    private final ByteBuffer characterEncoderOutput;
     
     @SuppressWarnings("WeakerAccess")
     public StreamBasedTerminal(InputStream terminalInput, OutputStream terminalOutput, Charset terminalCharset) {
+        this(terminalInput, terminalOutput, null, terminalCharset);
+    }
+
+    /**
+     * Creates a terminal that writes its output to a channel, such as a {@code SocketChannel} or the
+     * {@code FileChannel} of {@code /dev/tty}, instead of to an output stream. The output is collected in a direct
+     * buffer which is handed to the channel as it is, without the copies an {@code OutputStream} would make. The
+     * channel must be in blocking mode.
+     * @param terminalInput Input stream to read terminal input from
+     * @param terminalOutputChannel Channel to write terminal output to
+     * @param terminalCharset Character set to use when converting characters to bytes
+     */
+    @SuppressWarnings("WeakerAccess")
+    public StreamBasedTerminal(InputStream terminalInput, WritableByteChannel terminalOutputChannel, Charset terminalCharset) {
+        this(terminalInput, null, terminalOutputChannel, terminalCharset);
+    }
+
+    private StreamBasedTerminal(
+            InputStream terminalInput,
+            OutputStream terminalOutput,
+            WritableByteChannel terminalOutputChannel,
+            Charset terminalCharset) {
+
         this.terminalInput = terminalInput;
         this.terminalOutput = terminalOutput;
+        this.terminalOutputChannel = terminalOutputChannel;
+        this.outputLock = new Object();
         if(terminalCharset == null) {
             this.terminalCharset = Charset.defaultCharset();
         }
@@ -74,10 +144,24 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
             this.terminalCharset = terminalCharset;
         }
         this.inputDecoder = new InputDecoder(new InputStreamReader(this.terminalInput, this.terminalCharset));
-        this.keyQueue = new LinkedList<KeyStroke>();
+        this.inputDecoder.setTimeout(DEFAULT_INPUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        this.keyQueue = new ConcurrentLinkedQueue<KeyStroke>();
+        this.lookAheadKey = null;
         this.readLock = new ReentrantLock();
+        this.coalescedMouseActions = EnumSet.of(MouseActionType.MOVE, MouseActionType.DRAG);
         this.lastReportedCursorPosition = null;
-        //noinspection ConstantConditions
+        this.outputBuffer = new OutputAccumulator(8192, terminalOutputChannel != null);
+        this.outputBufferThreshold = DEFAULT_OUTPUT_BUFFER_THRESHOLD;
+        this.outputBacklogThreshold = 0;
+        this.frameDepth = 0;
+        this.flushCount = 0;
+        this.bytesFlushed = 0;
+        this.lastFlushSize = 0;
+        this.characterEncoder = this.terminalCharset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.characterEncoderInput = CharBuffer.allocate(256);
+        this.characterEncoderOutput = ByteBuffer.allocate((int)Math.ceil(256 * characterEncoder.maxBytesPerChar()));
     }
 
     /**
@@ -89,27 +173,487 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
     @Override
     public void putCharacter(char c) throws IOException {
         if(TerminalTextUtils.isPrintableCharacter(c)) {
-            writeToTerminal(translateCharacter(c));
+            synchronized(outputLock) {
+                putCharacterToBuffer(c);
+                encodePendingCharacters();
+                drainIfThresholdReached();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The characters are encoded together, reusing the same encoder and buffers, instead of one by one.
+     */
+    @Override
+    public void putString(CharSequence string) throws IOException {
+        synchronized(outputLock) {
+            for(int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if(TerminalTextUtils.isPrintableCharacter(c)) {
+                    putCharacterToBuffer(c);
+                }
+            }
+            encodePendingCharacters();
+            drainIfThresholdReached();
         }
     }
 
     /**
-     * This method will write a list of bytes directly to the output stream of the terminal.
+     * {@inheritDoc}
+     *
+     * The characters are encoded together, reusing the same encoder and buffers, instead of one by one.
+     */
+    @Override
+    public void putCharacters(char[] characters, int offset, int length) throws IOException {
+        synchronized(outputLock) {
+            for(int i = offset; i < offset + length; i++) {
+                char c = characters[i];
+                if(TerminalTextUtils.isPrintableCharacter(c)) {
+                    putCharacterToBuffer(c);
+                }
+            }
+            encodePendingCharacters();
+            drainIfThresholdReached();
+        }
+    }
+
+    /**
+     * Writes a printable character a number of times. The character is encoded only once, straight into the output
+     * buffer, and the encoded bytes are then copied from there. If {@code repeatIntroducer} is not {@code null} and the
+     * character didn't need an escape sequence, the character may instead be written once followed by a repeat sequence
+     * {@code repeatIntroducer [count - 1] repeatCommand}, where the count is left out when it's 1, if that's shorter.
+     * @param c Character to write
+     * @param count Number of times to write the character
+     * @param repeatIntroducer Bytes starting the repeat sequence, or {@code null} if it must not be used
+     * @param repeatCommand Final byte of the repeat sequence
+     * @throws IOException If there was an underlying I/O error
+     */
+    void writeCharacterRepeated(char c, int count, byte[] repeatIntroducer, byte repeatCommand) throws IOException {
+        synchronized(outputLock) {
+            int start = outputBuffer.size();
+            putCharacterToBuffer(c);
+            encodePendingCharacters();
+            int length = outputBuffer.size() - start;
+            if(length == 0 || count <= 1) {
+                drainIfThresholdReached();
+                return;
+            }
+            if(repeatIntroducer != null && outputBuffer.get(start) != 0x1b) {
+                int repeatLength = repeatIntroducer.length + 1 + (count == 2 ? 0 : OutputAccumulator.getDecimalLength(count - 1));
+                if(repeatLength < length * (count - 1)) {
+                    outputBuffer.append(repeatIntroducer);
+                    if(count > 2) {
+                        outputBuffer.appendDecimal(count - 1);
+                    }
+                    outputBuffer.append(repeatCommand);
+                    drainIfThresholdReached();
+                    return;
+                }
+            }
+            outputBuffer.appendCopies(start, length, count - 1);
+            drainIfThresholdReached();
+        }
+    }
+
+    // Must be called while holding the output lock
+    private void putCharacterToBuffer(char c) {
+        if(c >= 0x80 && terminalCharset != UTF8_REFERENCE) {
+            // May need to be translated to the VT100 line drawing characters
+            encodePendingCharacters();
+            outputBuffer.append(translateCharacter(c));
+            return;
+        }
+        characterEncoderInput.put(c);
+        if(!characterEncoderInput.hasRemaining()) {
+            if(Character.isHighSurrogate(c)) {
+                // Hold it back so that it's encoded together with the low surrogate following it
+                characterEncoderInput.position(characterEncoderInput.position() - 1);
+                encodePendingCharacters();
+                characterEncoderInput.put(c);
+            }
+            else {
+                encodePendingCharacters();
+            }
+        }
+    }
+
+    // Must be called while holding the output lock
+    private void encodePendingCharacters() {
+        if(characterEncoderInput.position() == 0) {
+            return;
+        }
+        characterEncoderInput.flip();
+        characterEncoder.reset();
+        CoderResult result;
+        do {
+            result = characterEncoder.encode(characterEncoderInput, characterEncoderOutput, true);
+            if(result.isUnderflow()) {
+                result = characterEncoder.flush(characterEncoderOutput);
+            }
+            outputBuffer.append(characterEncoderOutput.array(), characterEncoderOutput.arrayOffset(), characterEncoderOutput.position());
+            characterEncoderOutput.clear();
+        }
+        while(result.isOverflow());
+        characterEncoderInput.clear();
+    }
+
+    /**
+     * This method will write a list of bytes to the output of the terminal. The bytes are buffered and passed on to the
+     * output stream when the terminal is flushed, when the outermost frame ends or when the size of the buffer reaches
+     * the threshold (see {@link #setOutputBufferThreshold(int)}).
      * @param bytes Bytes to write to the terminal (synchronized)
      * @throws java.io.IOException If there was an underlying I/O error
      */
     @SuppressWarnings("WeakerAccess")
     protected void writeToTerminal(byte... bytes) throws IOException {
-        synchronized(terminalOutput) {
-            terminalOutput.write(bytes);
+        synchronized(outputLock) {
+            outputBuffer.append(bytes);
+            drainIfThresholdReached();
+        }
+    }
+
+    /**
+     * Writes a sequence that was built up in a separate accumulator, in one go
+     * @param sequence Accumulator holding the bytes to write, which is left untouched
+     * @throws IOException If there was an underlying I/O error
+     */
+    void writeToTerminal(OutputAccumulator sequence) throws IOException {
+        synchronized(outputLock) {
+            outputBuffer.append(sequence);
+            drainIfThresholdReached();
+        }
+    }
+
+    /**
+     * Writes an escape sequence consisting of an introducer, a body and an optional terminating byte, without first
+     * building the complete sequence in a separate array
+     * @param introducer Bytes starting the sequence, for example {@code ESC [}
+     * @param body Bytes following the introducer
+     * @param terminator Final byte of the sequence, or {@code 0} if the body already ends the sequence
+     * @throws IOException If there was an underlying I/O error
+     */
+    void writeSequenceToTerminal(byte[] introducer, byte[] body, byte terminator) throws IOException {
+        synchronized(outputLock) {
+            outputBuffer.append(introducer);
+            outputBuffer.append(body);
+            if(terminator != 0) {
+                outputBuffer.append(terminator);
+            }
+            drainIfThresholdReached();
+        }
+    }
+
+    /**
+     * Writes an escape sequence with a single numeric parameter, for example {@code ESC [ 5 X}
+     * @param introducer Bytes starting the sequence
+     * @param parameter Numeric parameter, written in decimal, or a negative number to leave out the parameter
+     * @param command Final byte of the sequence
+     * @throws IOException If there was an underlying I/O error
+     */
+    void writeSequenceToTerminal(byte[] introducer, int parameter, byte command) throws IOException {
+        synchronized(outputLock) {
+            outputBuffer.append(introducer);
+            if(parameter >= 0) {
+                outputBuffer.appendDecimal(parameter);
+            }
+            outputBuffer.append(command);
+            drainIfThresholdReached();
+        }
+    }
+
+    /**
+     * Writes an escape sequence with two numeric parameters, for example {@code ESC [ 10 ; 20 H}
+     * @param introducer Bytes starting the sequence
+     * @param first First numeric parameter, written in decimal
+     * @param second Second numeric parameter, written in decimal
+     * @param command Final byte of the sequence
+     * @throws IOException If there was an underlying I/O error
+     */
+    void writeSequenceToTerminal(byte[] introducer, int first, int second, byte command) throws IOException {
+        synchronized(outputLock) {
+            outputBuffer.append(introducer);
+            outputBuffer.appendDecimal(first);
+            outputBuffer.append((byte)';');
+            outputBuffer.appendDecimal(second);
+            outputBuffer.append(command);
+            drainIfThresholdReached();
+        }
+    }
+
+    // Must be called while holding the output lock
+    private void drainIfThresholdReached() throws IOException {
+        if(frameDepth == 0 && outputBuffer.size() >= outputBufferThreshold) {
+            drainOutputBuffer();
+        }
+    }
+
+    // Must be called while holding the output lock
+    private void drainOutputBuffer() throws IOException {
+        int size;
+        if(asyncOutputWriter != null) {
+            size = outputBuffer.size();
+            if(size > 0) {
+                asyncOutputWriter.submit(outputBuffer.takeBytes());
+            }
+        }
+        else if(terminalOutputChannel != null) {
+            size = outputBuffer.drainTo(terminalOutputChannel);
+        }
+        else {
+            size = outputBuffer.drainTo(terminalOutput);
+        }
+        if(size > 0) {
+            flushCount++;
+            bytesFlushed += size;
+            lastFlushSize = size;
+        }
+    }
+
+    // Channels don't buffer, so there is nothing to flush for them; the asynchronous writer flushes by itself
+    private void flushOutputStream() throws IOException {
+        if(terminalOutput != null && asyncOutputWriter == null) {
+            terminalOutput.flush();
+        }
+    }
+
+    /**
+     * Starts writing the output on a background thread. Flushing the terminal then only hands the output over to the
+     * background thread, so a slow connection doesn't hold up the thread producing the output. Once
+     * {@code backlogLimit} bytes are waiting to be written, flushing blocks until the background thread has caught up.
+     * A {@link com.googlecode.lanterna.screen.TerminalScreen} on top of this terminal skips refreshes while the backlog
+     * is at the threshold set by {@link #setOutputBacklogThreshold(int)}, see {@link OutputBacklogAware}.
+     * @param backlogLimit Number of bytes waiting to be written at which flushing starts to block
+     */
+    public void startAsynchronousOutput(int backlogLimit) {
+        synchronized(outputLock) {
+            if(asyncOutputWriter != null) {
+                throw new IllegalStateException("Asynchronous output has already been started");
+            }
+            asyncOutputWriter = new AsyncOutputWriter(terminalOutput, terminalOutputChannel, backlogLimit);
+            asyncOutputWriter.setDrainedListener(outputDrainedListener);
+        }
+    }
+
+    /**
+     * Stops writing the output on a background thread, after everything already flushed has been written. Does nothing
+     * if asynchronous output isn't active.
+     * @throws IOException If there was an I/O error writing the remaining output
+     */
+    public void stopAsynchronousOutput() throws IOException {
+        AsyncOutputWriter writer;
+        synchronized(outputLock) {
+            writer = asyncOutputWriter;
+            if(writer == null) {
+                return;
+            }
+            if(frameDepth == 0) {
+                drainOutputBuffer();
+            }
+            asyncOutputWriter = null;
+        }
+        writer.stop();
+        synchronized(outputLock) {
+            flushOutputStream();
+        }
+    }
+
+    /**
+     * Returns {@code true} if output is written on a background thread
+     * @return {@code true} if asynchronous output is active
+     */
+    public boolean isAsynchronousOutput() {
+        synchronized(outputLock) {
+            return asyncOutputWriter != null;
+        }
+    }
+
+    /**
+     * Returns how many bytes have been flushed but not yet written by the background thread. This is always 0 unless
+     * asynchronous output is active.
+     * @return Number of bytes waiting to be written
+     */
+    public int getOutputBacklog() {
+        AsyncOutputWriter writer = getAsyncOutputWriter();
+        return writer != null ? writer.getBacklog() : 0;
+    }
+
+    /**
+     * Returns the largest number of bytes that have been waiting to be written at the same time since asynchronous
+     * output was started
+     * @return Peak output backlog in bytes, 0 unless asynchronous output is active
+     */
+    public int getPeakOutputBacklog() {
+        AsyncOutputWriter writer = getAsyncOutputWriter();
+        return writer != null ? writer.getPeakBacklog() : 0;
+    }
+
+    /**
+     * Returns {@code true} once at least the output backlog threshold is waiting to be written, see
+     * {@link #setOutputBacklogThreshold(int)}. This is always {@code false} unless asynchronous output is active.
+     * @return {@code true} if the terminal hasn't caught up with its output
+     */
+    @Override
+    public boolean isOutputBacklogged() {
+        AsyncOutputWriter writer;
+        int threshold;
+        synchronized(outputLock) {
+            writer = asyncOutputWriter;
+            threshold = outputBacklogThreshold;
+        }
+        if(writer == null) {
+            return false;
+        }
+        return writer.getBacklog() >= (threshold > 0 ? threshold : writer.getBacklogLimit());
+    }
+
+    /**
+     * Sets how many bytes must be waiting to be written for {@link #isOutputBacklogged()} to return {@code true}. By
+     * default this is the backlog limit given to {@link #startAsynchronousOutput(int)}, so a screen skips refreshes
+     * exactly when flushing them would have to wait for the background thread. A lower threshold makes the screen
+     * start skipping refreshes earlier.
+     * @param outputBacklogThreshold Number of bytes waiting to be written, or 0 to use the backlog limit
+     */
+    public void setOutputBacklogThreshold(int outputBacklogThreshold) {
+        if(outputBacklogThreshold < 0) {
+            throw new IllegalArgumentException("Output backlog threshold cannot be negative, was " + outputBacklogThreshold);
+        }
+        synchronized(outputLock) {
+            this.outputBacklogThreshold = outputBacklogThreshold;
+        }
+    }
+
+    /**
+     * Returns how many bytes must be waiting to be written for {@link #isOutputBacklogged()} to return {@code true}
+     * @return Output backlog threshold in bytes, 0 if the backlog limit is used
+     */
+    public int getOutputBacklogThreshold() {
+        synchronized(outputLock) {
+            return outputBacklogThreshold;
+        }
+    }
+
+    @Override
+    public void setOutputDrainedListener(Runnable listener) {
+        synchronized(outputLock) {
+            outputDrainedListener = listener;
+            if(asyncOutputWriter != null) {
+                asyncOutputWriter.setDrainedListener(listener);
+            }
+        }
+    }
+
+    private AsyncOutputWriter getAsyncOutputWriter() {
+        synchronized(outputLock) {
+            return asyncOutputWriter;
+        }
+    }
+
+    /**
+     * Sets how many bytes of output may be buffered, outside of a frame, before they are written to the output stream
+     * even though the terminal hasn't been flushed. The default is 16 KiB.
+     * @param outputBufferThreshold Number of bytes to buffer at most outside of a frame
+     */
+    public void setOutputBufferThreshold(int outputBufferThreshold) {
+        if(outputBufferThreshold < 1) {
+            throw new IllegalArgumentException("Output buffer threshold must be at least 1, was " + outputBufferThreshold);
+        }
+        synchronized(outputLock) {
+            this.outputBufferThreshold = outputBufferThreshold;
+        }
+    }
+
+    /**
+     * Returns how many bytes of output may be buffered, outside of a frame, before they are written to the output
+     * stream even though the terminal hasn't been flushed
+     * @return Number of bytes to buffer at most outside of a frame
+     */
+    public int getOutputBufferThreshold() {
+        synchronized(outputLock) {
+            return outputBufferThreshold;
+        }
+    }
+
+    /**
+     * Returns how many times buffered output has been written to the output stream
+     * @return Number of writes to the output stream
+     */
+    public long getFlushCount() {
+        synchronized(outputLock) {
+            return flushCount;
+        }
+    }
+
+    /**
+     * Returns the total number of bytes that has been written to the output stream. Together with
+     * {@link #getFlushCount()} this gives the average number of bytes written per flush.
+     * @return Total number of bytes written to the output stream
+     */
+    public long getBytesFlushed() {
+        synchronized(outputLock) {
+            return bytesFlushed;
+        }
+    }
+
+    /**
+     * Returns the number of bytes written to the output stream by the latest flush
+     * @return Number of bytes in the latest write to the output stream
+     */
+    public int getLastFlushSize() {
+        synchronized(outputLock) {
+            return lastFlushSize;
+        }
+    }
+
+    /**
+     * Holds back everything written through {@link #writeToTerminal(byte...)} in memory, no matter how much is written
+     * and even if the terminal is flushed, until {@link #endOutputFrame()} is called. Frames can be nested, the output
+     * is written when the outermost frame ends.
+     * @return {@code true} if this call started the outermost frame
+     */
+    protected boolean beginOutputFrame() {
+        synchronized(outputLock) {
+            frameDepth++;
+            return frameDepth == 1;
+        }
+    }
+
+    /**
+     * Ends a frame started by {@link #beginOutputFrame()}. If this ends the outermost frame, everything collected during
+     * the frame is written to the output stream in a single write and the stream is flushed.
+     * @throws IOException If there was an underlying I/O error
+     */
+    protected void endOutputFrame() throws IOException {
+        synchronized(outputLock) {
+            if(frameDepth == 0) {
+                return;
+            }
+            frameDepth--;
+            if(frameDepth == 0 && outputBuffer.size() > 0) {
+                drainOutputBuffer();
+                flushOutputStream();
+            }
+        }
+    }
+
+    /**
+     * Returns how many frames are currently open, i.e. how many more times {@link #endOutputFrame()} needs to be
+     * called before the output is written to the output stream
+     * @return Number of currently open frames
+     */
+    protected int getOutputFrameDepth() {
+        synchronized(outputLock) {
+            return frameDepth;
         }
     }
 
     @Override
     public byte[] enquireTerminal(int timeout, TimeUnit timeoutTimeUnit) throws IOException {
-        synchronized(terminalOutput) {
-            terminalOutput.write(5);    //ENQ
-            flush();
+        synchronized(outputLock) {
+            outputBuffer.append((byte)5);    //ENQ
+            drainOutputBuffer();
+            flushOutputStream();
         }
         
         //Wait for input
@@ -136,19 +680,45 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
 
     @Override
     public void bell() throws IOException {
-        terminalOutput.write((byte)7);
-        terminalOutput.flush();
+        synchronized(outputLock) {
+            outputBuffer.append((byte)7);
+            drainOutputBuffer();
+            flushOutputStream();
+        }
     }
 
     /**
      * Returns the {@code InputDecoder} attached to this {@code StreamBasedTerminal}. Can be used to add additional
-     * character patterns to recognize and tune the way input is turned in {@code KeyStroke}:s.
+     * character patterns to recognize and tune the way input is turned in {@code KeyStroke}:s. The decoder of a
+     * {@code StreamBasedTerminal} waits up to 50 milliseconds for the rest of an ambiguous escape sequence, such as
+     * {@code ESC} followed by a character with Alt held down, instead of the {@code InputDecoder} default of not
+     * waiting at all; see {@link InputDecoder#setTimeout(long, TimeUnit)}.
      * @return {@code InputDecoder} attached to this {@code StreamBasedTerminal}
      */
     public InputDecoder getInputDecoder() {
         return inputDecoder;
     }
 
+    /**
+     * Returns the types of mouse actions that are coalesced when read, see {@link #setCoalescedMouseActions(Collection)}
+     * @return Copy of the set of coalesced mouse action types
+     */
+    public EnumSet<MouseActionType> getCoalescedMouseActions() {
+        return EnumSet.copyOf(coalescedMouseActions);
+    }
+
+    /**
+     * Sets which types of mouse actions are coalesced when input is read. If a mouse action of one of these types is
+     * followed in the input by others of the same type and button, only the last one is returned. This way a burst of
+     * mouse motion reports, which are sent for every character cell the mouse passes over, becomes a single event
+     * with the latest position. By default, {@code MOVE} and {@code DRAG} actions are coalesced.
+     * @param mouseActionTypes Types of mouse actions to coalesce, an empty collection turns coalescing off
+     */
+    public void setCoalescedMouseActions(Collection<MouseActionType> mouseActionTypes) {
+        this.coalescedMouseActions = mouseActionTypes.isEmpty() ?
+                EnumSet.noneOf(MouseActionType.class) : EnumSet.copyOf(mouseActionTypes);
+    }
+
     /**
      * Used by the cursor reporting methods to reset any previous position memorized, so we're guaranteed to return the
      * next reported position
@@ -165,6 +735,11 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
      * @throws IOException If there was an I/O error
      */
     synchronized TerminalPosition waitForCursorPositionReport() throws IOException {
+        // The query has to reach the terminal even if it was sent inside a frame, otherwise there won't be any report
+        synchronized(outputLock) {
+            drainOutputBuffer();
+            flushOutputStream();
+        }
         long startTime = System.currentTimeMillis();
         TerminalPosition cursorPosition = lastReportedCursorPosition;
         while(cursorPosition == null) {
@@ -194,6 +769,52 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
         return readInput(true, true);
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) throws IOException {
+        int count = 0;
+        while(count < maxKeyStrokes) {
+            KeyStroke previouslyReadKey = keyQueue.poll();
+            if(previouslyReadKey == null) {
+                break;
+            }
+            keyStrokes.add(previouslyReadKey);
+            count++;
+            if(previouslyReadKey.getKeyType() == KeyType.EOF) {
+                return count;
+            }
+        }
+        // Like pollInput(), don't wait for the lock, but once we have it decode everything that is available
+        if(count == maxKeyStrokes || !readLock.tryLock()) {
+            return count;
+        }
+        try {
+            while(count < maxKeyStrokes) {
+                KeyStroke key = nextDecodedKey(false);
+                if(key == null) {
+                    break;
+                }
+                ScreenInfoAction report = ScreenInfoCharacterPattern.tryToAdopt(key);
+                if(lastReportedCursorPosition == null && report != null) {
+                    lastReportedCursorPosition = report.getPosition();
+                    continue;
+                }
+                if(count > 0 && isCoalescedWith(keyStrokes.get(keyStrokes.size() - 1), key)) {
+                    keyStrokes.set(keyStrokes.size() - 1, key);
+                    continue;
+                }
+                keyStrokes.add(key);
+                count++;
+                if(key.getKeyType() == KeyType.EOF) {
+                    break;
+                }
+            }
+        }
+        finally {
+            readLock.unlock();
+        }
+        return count;
+    }
+
     private KeyStroke readInput(boolean blocking, boolean useKeyQueue) throws IOException {
         while(true) {
             if(useKeyQueue) {
@@ -212,13 +833,13 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
                 }
             }
             try {
-                KeyStroke key = inputDecoder.getNextCharacter(blocking);
+                KeyStroke key = nextDecodedKey(blocking);
                 ScreenInfoAction report = ScreenInfoCharacterPattern.tryToAdopt(key);
                 if (lastReportedCursorPosition == null && report != null) {
                     lastReportedCursorPosition = report.getPosition();
                 }
                 else {
-                    return key;
+                    return coalesceMouseActions(key);
                 }
             }
             finally {
@@ -227,15 +848,75 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
         }
     }
 
+    /**
+     * Returns the key stroke left over from coalescing mouse actions, if any, otherwise decodes the next one. Must be
+     * called with the read lock held.
+     */
+    private KeyStroke nextDecodedKey(boolean blocking) throws IOException {
+        KeyStroke key = lookAheadKey;
+        if(key != null) {
+            lookAheadKey = null;
+            return key;
+        }
+        return inputDecoder.getNextCharacter(blocking);
+    }
+
+    /**
+     * If the key stroke is a mouse action that should be coalesced, replaces it with the last one of the same kind that
+     * directly follows it in the input which is available right now. Must be called with the read lock held.
+     */
+    private KeyStroke coalesceMouseActions(KeyStroke key) throws IOException {
+        if(!(key instanceof MouseAction) || !coalescedMouseActions.contains(((MouseAction)key).getActionType())) {
+            return key;
+        }
+        while(true) {
+            KeyStroke next = inputDecoder.getNextCharacter(false);
+            if(next == null) {
+                return key;
+            }
+            ScreenInfoAction report = ScreenInfoCharacterPattern.tryToAdopt(next);
+            if(lastReportedCursorPosition == null && report != null) {
+                lastReportedCursorPosition = report.getPosition();
+            }
+            else if(isCoalescedWith(key, next)) {
+                key = next;
+            }
+            else {
+                // Not part of the burst, hand it out on the next read. It can't go into the key queue, as whatever
+                // this method returns may be queued after it by waitForCursorPositionReport().
+                lookAheadKey = next;
+                return key;
+            }
+        }
+    }
+
+    private boolean isCoalescedWith(KeyStroke previous, KeyStroke next) {
+        if(!(previous instanceof MouseAction) || !(next instanceof MouseAction)) {
+            return false;
+        }
+        MouseAction previousAction = (MouseAction)previous;
+        MouseAction nextAction = (MouseAction)next;
+        return previousAction.getActionType() == nextAction.getActionType() &&
+                previousAction.getButton() == nextAction.getButton() &&
+                coalescedMouseActions.contains(nextAction.getActionType());
+    }
+
     @Override
     public void flush() throws IOException {
-        synchronized(terminalOutput) {
-            terminalOutput.flush();
+        synchronized(outputLock) {
+            if(frameDepth > 0) {
+                return;
+            }
+            drainOutputBuffer();
+            flushOutputStream();
         }
     }
 
     @Override
     public void close() throws IOException {
+        // Don't leave any buffered output behind
+        flush();
+        stopAsynchronousOutput();
         // Should we close the input/output streams here?
         // If someone uses lanterna just temporarily and want to switch back to using System.out/System.in manually,
         // they won't be too happy if we closed the streams
@@ -328,6 +1009,10 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
     }
 
     private byte[] convertToCharset(char input) {
-        return terminalCharset.encode(Character.toString(input)).array();
+        // The array backing the encoded buffer can be larger than the encoded data
+        ByteBuffer encoded = terminalCharset.encode(Character.toString(input));
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        return bytes;
     }
 }
@@ -22,9 +22,13 @@ import static com.googlecode.lanterna.terminal.ansi.TelnetProtocol.*;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.ArrayList;
@@ -45,17 +49,35 @@ import java.util.List;
 public class TelnetTerminal extends ANSITerminal {
     
     private final Socket socket;
+    private final TelnetClientIACFilterer inputFilter;
     private final NegotiationState negotiationState;
 
     TelnetTerminal(Socket socket, Charset terminalCharset) throws IOException {
         this(socket, new TelnetClientIACFilterer(socket.getInputStream()), socket.getOutputStream(), terminalCharset);
     }
 
+    TelnetTerminal(SocketChannel socketChannel, Charset terminalCharset) throws IOException {
+        this(socketChannel.socket(), new TelnetClientIACFilterer(new ChannelInputStream(socketChannel)), socketChannel, terminalCharset);
+    }
+
     //This weird construction is just so that we can access the input filter without changing the visibility in StreamBasedTerminal
     private TelnetTerminal(Socket socket, TelnetClientIACFilterer inputStream, OutputStream outputStream, Charset terminalCharset) throws IOException {
         super(inputStream, outputStream, terminalCharset);
         this.socket = socket;
+        this.inputFilter = inputStream;
         this.negotiationState = inputStream.negotiationState;
+        startNegotiation(inputStream);
+    }
+
+    private TelnetTerminal(Socket socket, TelnetClientIACFilterer inputStream, WritableByteChannel outputChannel, Charset terminalCharset) throws IOException {
+        super(inputStream, outputChannel, terminalCharset);
+        this.socket = socket;
+        this.inputFilter = inputStream;
+        this.negotiationState = inputStream.negotiationState;
+        startNegotiation(inputStream);
+    }
+
+    private void startNegotiation(TelnetClientIACFilterer inputStream) throws IOException {
         inputStream.setEventListener(new TelnetClientEventListener() {
             @Override
             public void onResize(int columns, int rows) {
@@ -115,6 +137,7 @@ public class TelnetTerminal extends ANSITerminal {
     public void close() throws IOException {
         super.close();
         socket.close();
+        inputFilter.close();
     }
 
     /**
@@ -390,4 +413,115 @@ public class TelnetTerminal extends ANSITerminal {
     private static int convertTwoBytesToInt2(byte b1, byte b2) {
         return ( (b2 & 0xFF) << 8) | (b1 & 0xFF);
     }
+
+    /**
+     * The input stream of a socket created by a channel doesn't report how much input is available on older JREs, which
+     * breaks polling for input. Until the input decoder can read from a channel directly, this stream has a thread copy
+     * the input from the channel into a buffer, so that {@code available()} returns what has arrived.
+     */
+    private static class ChannelInputStream extends InputStream implements Runnable {
+        private final InputStream channelInput;
+        private final Thread inputThread;
+        private final byte[] buffer;
+        private int start;
+        private int end;
+        private boolean endOfInput;
+
+        ChannelInputStream(SocketChannel socketChannel) {
+            this.channelInput = Channels.newInputStream(socketChannel);
+            this.buffer = new byte[8192];
+            this.start = 0;
+            this.end = 0;
+            this.endOfInput = false;
+            this.inputThread = new Thread(this, "TelnetTerminal input " + socketChannel.socket().getRemoteSocketAddress());
+            this.inputThread.setDaemon(true);
+            this.inputThread.start();
+        }
+
+        @Override
+        public void run() {
+            byte[] readBuffer = new byte[1024];
+            try {
+                int readBytes;
+                while((readBytes = channelInput.read(readBuffer)) != -1) {
+                    synchronized(this) {
+                        // Wait until the decoder has caught up, rather than buffering without limit
+                        while(buffer.length - (end - start) < readBytes) {
+                            wait();
+                        }
+                        if(buffer.length - end < readBytes) {
+                            System.arraycopy(buffer, start, buffer, 0, end - start);
+                            end -= start;
+                            start = 0;
+                        }
+                        System.arraycopy(readBuffer, 0, buffer, end, readBytes);
+                        end += readBytes;
+                        notifyAll();
+                    }
+                }
+            }
+            catch(IOException ignore) {
+                // The connection was closed
+            }
+            catch(InterruptedException ignore) {
+                Thread.currentThread().interrupt();
+            }
+            finally {
+                synchronized(this) {
+                    endOfInput = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public synchronized int available() {
+            return end - start;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] singleByte = new byte[1];
+            return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xff;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if(len == 0) {
+                return 0;
+            }
+            while(start == end && !endOfInput) {
+                try {
+                    wait();
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            if(start == end) {
+                return -1;
+            }
+            int readBytes = Math.min(len, end - start);
+            System.arraycopy(buffer, start, b, off, readBytes);
+            start += readBytes;
+            notifyAll();
+            return readBytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The interrupt ends the copy thread also when it's waiting for the decoder to catch up
+            inputThread.interrupt();
+            channelInput.close();
+            if(Thread.currentThread() != inputThread) {
+                try {
+                    inputThread.join();
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
 }
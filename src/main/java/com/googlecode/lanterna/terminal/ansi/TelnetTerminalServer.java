@@ -21,6 +21,7 @@ package com.googlecode.lanterna.terminal.ansi;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.charset.Charset;
 import javax.net.ServerSocketFactory;
 
@@ -82,6 +83,19 @@ public class TelnetTerminalServer {
         this.charset = charset;
     }
 
+    /**
+     * Creates a new TelnetTerminalServer on top of an already bound server socket channel. The terminals of clients
+     * accepted through the channel write their output directly to the client's {@code SocketChannel}, see
+     * {@link StreamBasedTerminal#StreamBasedTerminal(java.io.InputStream, java.nio.channels.WritableByteChannel, Charset)}.
+     * The channel must be in blocking mode.
+     * @param serverSocketChannel Bound channel to accept incoming telnet connections from
+     * @param charset Character set to use
+     */
+    public TelnetTerminalServer(ServerSocketChannel serverSocketChannel, Charset charset) {
+        this.serverSocket = serverSocketChannel.socket();
+        this.charset = charset;
+    }
+
     /**
      * Returns the actual server socket used by this object. Can be used to tweak settings but be careful!
      * @return Underlying ServerSocket
@@ -100,6 +114,9 @@ public class TelnetTerminalServer {
     public TelnetTerminal acceptConnection() throws IOException {
         Socket clientSocket = serverSocket.accept();
         clientSocket.setTcpNoDelay(true);
+        if(clientSocket.getChannel() != null) {
+            return new TelnetTerminal(clientSocket.getChannel(), charset);
+        }
         return new TelnetTerminal(clientSocket, charset);
     }
 
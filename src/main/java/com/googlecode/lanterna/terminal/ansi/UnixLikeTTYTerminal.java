@@ -22,6 +22,7 @@ import java.io.*;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -78,6 +79,37 @@ public abstract class UnixLikeTTYTerminal extends UnixLikeTerminal {
         realAcquire();
     }
 
+    /**
+     * Creates a UnixTerminal that writes its output to a channel instead of an output stream, otherwise the same as
+     * {@link #UnixLikeTTYTerminal(File, InputStream, OutputStream, Charset, CtrlCBehaviour)}
+     *
+     * @param ttyDev TTY device file that is representing this terminal session, will be used when calling stty to make
+     *               it operate on this session
+     * @param terminalInput Input stream to read terminal input from
+     * @param terminalOutputChannel Channel to write terminal output to, must be in blocking mode
+     * @param terminalCharset Character set to use when converting characters to bytes
+     * @param terminalCtrlCBehaviour Special settings on how the terminal will behave, see {@code UnixTerminalMode} for
+     *                               more details
+     * @throws IOException If there was an I/O error while setting up the terminal
+     */
+    protected UnixLikeTTYTerminal(
+            File ttyDev,
+            InputStream terminalInput,
+            WritableByteChannel terminalOutputChannel,
+            Charset terminalCharset,
+            CtrlCBehaviour terminalCtrlCBehaviour) throws IOException {
+
+        super(terminalInput,
+                terminalOutputChannel,
+                terminalCharset,
+                terminalCtrlCBehaviour);
+
+        this.ttyDev = ttyDev;
+
+        // Take ownership of the terminal
+        realAcquire();
+    }
+
     @Override
     protected void acquire() throws IOException {
         // Hack!
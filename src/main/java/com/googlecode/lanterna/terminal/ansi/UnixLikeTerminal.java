@@ -23,7 +23,9 @@ import com.googlecode.lanterna.input.KeyStroke;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.util.List;
 
 /**
  * Base class for all terminals that generally behave like Unix terminals. This class defined a number of abstract
@@ -58,19 +60,39 @@ public abstract class UnixLikeTerminal extends ANSITerminal {
 
         super(terminalInput, terminalOutput, terminalCharset);
         this.acquired = false;
+        this.catchSpecialCharacters = isCatchSpecialCharactersEnabled();
+        this.terminalCtrlCBehaviour = terminalCtrlCBehaviour;
+        this.shutdownHook = createShutdownHook();
+        acquire();
+    }
+
+    protected UnixLikeTerminal(InputStream terminalInput,
+                            WritableByteChannel terminalOutputChannel,
+                            Charset terminalCharset,
+                            CtrlCBehaviour terminalCtrlCBehaviour) throws IOException {
+
+        super(terminalInput, terminalOutputChannel, terminalCharset);
+        this.acquired = false;
+        this.catchSpecialCharacters = isCatchSpecialCharactersEnabled();
+        this.terminalCtrlCBehaviour = terminalCtrlCBehaviour;
+        this.shutdownHook = createShutdownHook();
+        acquire();
+    }
 
+    private static boolean isCatchSpecialCharactersEnabled() {
         String catchSpecialCharactersPropValue = System.getProperty(
                 "com.googlecode.lanterna.terminal.UnixTerminal.catchSpecialCharacters",
                 "");
-        this.catchSpecialCharacters = !"false".equals(catchSpecialCharactersPropValue.trim().toLowerCase());
-        this.terminalCtrlCBehaviour = terminalCtrlCBehaviour;
-        shutdownHook = new Thread("Lanterna STTY restore") {
+        return !"false".equals(catchSpecialCharactersPropValue.trim().toLowerCase());
+    }
+
+    private Thread createShutdownHook() {
+        return new Thread("Lanterna STTY restore") {
             @Override
             public void run() {
                 exitPrivateModeAndRestoreState();
             }
         };
-        acquire();
     }
 
     /**
@@ -129,6 +151,15 @@ public abstract class UnixLikeTerminal extends ANSITerminal {
         return key;
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) throws IOException {
+        int count = super.readInputBatch(keyStrokes, maxKeyStrokes);
+        for(int i = keyStrokes.size() - count; i < keyStrokes.size(); i++) {
+            isCtrlC(keyStrokes.get(i));
+        }
+        return count;
+    }
+
     protected CtrlCBehaviour getTerminalCtrlCBehaviour() {
         return terminalCtrlCBehaviour;
     }
@@ -20,6 +20,7 @@ package com.googlecode.lanterna.terminal.ansi;
 
 
 import java.io.*;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 
 import com.googlecode.lanterna.TerminalSize;
@@ -82,6 +83,31 @@ public class UnixTerminal extends UnixLikeTTYTerminal {
         this(new File("/dev/tty"), terminalInput, terminalOutput, terminalCharset, terminalCtrlCBehaviour);
     }
 
+    /**
+     * Creates a UnixTerminal that writes its output to a channel, for example the {@code FileChannel} of
+     * {@code /dev/tty}, instead of an output stream. The output is then written from a direct buffer without going
+     * through the copies of an {@code OutputStream}.
+     *
+     * @param terminalInput Input stream to read terminal input from
+     * @param terminalOutputChannel Channel to write terminal output to, must be in blocking mode
+     * @param terminalCharset Character set to use when converting characters to bytes
+     * @param terminalCtrlCBehaviour Special settings on how the terminal will behave, see {@code UnixTerminalMode} for more
+     * details
+     * @throws java.io.IOException If there was an I/O error initializing the terminal
+     */
+    public UnixTerminal(
+            InputStream terminalInput,
+            WritableByteChannel terminalOutputChannel,
+            Charset terminalCharset,
+            CtrlCBehaviour terminalCtrlCBehaviour) throws IOException {
+
+        super(new File("/dev/tty"),
+                terminalInput,
+                terminalOutputChannel,
+                terminalCharset,
+                terminalCtrlCBehaviour);
+    }
+
     private UnixTerminal(
             File terminalDevice,
             InputStream terminalInput,
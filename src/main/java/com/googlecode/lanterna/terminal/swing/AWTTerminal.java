@@ -28,6 +28,7 @@ import com.googlecode.lanterna.terminal.IOSafeTerminal;
 import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
 import java.awt.*;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 
@@ -243,6 +244,16 @@ public class AWTTerminal extends Panel implements IOSafeTerminal {
         terminalImplementation.putCharacter(c);
     }
 
+    @Override
+    public void putString(CharSequence string) {
+        terminalImplementation.putString(string);
+    }
+
+    @Override
+    public void putCharacters(char[] characters, int offset, int length) {
+        terminalImplementation.putCharacters(characters, offset, length);
+    }
+
     @Override
     public void enableSGR(SGR sgr) {
         terminalImplementation.enableSGR(sgr);
@@ -303,6 +314,11 @@ public class AWTTerminal extends Panel implements IOSafeTerminal {
         return terminalImplementation.readInput();
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) {
+        return terminalImplementation.readInputBatch(keyStrokes, maxKeyStrokes);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return terminalImplementation.newTextGraphics();
@@ -31,6 +31,7 @@ import com.googlecode.lanterna.terminal.TerminalResizeListener;
 import java.awt.*;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -177,6 +178,24 @@ public class AWTTerminalFrame extends Frame implements IOSafeTerminal {
         return awtTerminal.readInput();
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) {
+        // Go through pollInput() so that the auto-close triggers see every key stroke
+        int count = 0;
+        while(count < maxKeyStrokes) {
+            KeyStroke keyStroke = pollInput();
+            if(keyStroke == null) {
+                break;
+            }
+            keyStrokes.add(keyStroke);
+            count++;
+            if(keyStroke.getKeyType() == KeyType.EOF) {
+                break;
+            }
+        }
+        return count;
+    }
+
     @Override
     public void enterPrivateMode() {
         awtTerminal.enterPrivateMode();
@@ -220,6 +239,16 @@ public class AWTTerminalFrame extends Frame implements IOSafeTerminal {
         awtTerminal.putCharacter(c);
     }
 
+    @Override
+    public void putString(CharSequence string) {
+        awtTerminal.putString(string);
+    }
+
+    @Override
+    public void putCharacters(char[] characters, int offset, int length) {
+        awtTerminal.putCharacters(characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return awtTerminal.newTextGraphics();
@@ -410,7 +410,7 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
                             TerminalTextUtils.isCharCJK(textCharacter.getCharacter())) {
                         atCursorLocation = true;
                     }
-                    boolean isBlinking = textCharacter.getModifiers().contains(SGR.BLINK);
+                    boolean isBlinking = textCharacter.isBlinking();
                     if(isBlinking) {
                         foundBlinkingCharacters.set(true);
                     }
@@ -634,6 +634,18 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         return keyQueue.poll();
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) {
+        if(!enableInput) {
+            if(maxKeyStrokes <= 0) {
+                return 0;
+            }
+            keyStrokes.add(new KeyStroke(KeyType.EOF));
+            return 1;
+        }
+        return keyQueue.drainTo(keyStrokes, maxKeyStrokes);
+    }
+
     @Override
     public KeyStroke readInput() {
         // Synchronize on keyQueue here so only one thread is inside keyQueue.take()
@@ -716,6 +728,16 @@ abstract class GraphicalTerminalImplementation implements IOSafeTerminal {
         virtualTerminal.putCharacter(c);
     }
 
+    @Override
+    public synchronized void putString(CharSequence string) {
+        virtualTerminal.putString(string);
+    }
+
+    @Override
+    public synchronized void putCharacters(char[] characters, int offset, int length) {
+        virtualTerminal.putCharacters(characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return virtualTerminal.newTextGraphics();
@@ -30,6 +30,7 @@ import com.googlecode.lanterna.terminal.TerminalResizeListener;
 import java.awt.*;
 import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -187,6 +188,11 @@ public class ScrollingAWTTerminal extends Container implements IOSafeTerminal {
         return awtTerminal.readInput();
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) {
+        return awtTerminal.readInputBatch(keyStrokes, maxKeyStrokes);
+    }
+
     @Override
     public void enterPrivateMode() {
         awtTerminal.enterPrivateMode();
@@ -227,6 +233,16 @@ public class ScrollingAWTTerminal extends Container implements IOSafeTerminal {
         awtTerminal.putCharacter(c);
     }
 
+    @Override
+    public void putString(CharSequence string) {
+        awtTerminal.putString(string);
+    }
+
+    @Override
+    public void putCharacters(char[] characters, int offset, int length) {
+        awtTerminal.putCharacters(characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return awtTerminal.newTextGraphics();
@@ -30,6 +30,7 @@ import com.googlecode.lanterna.terminal.TerminalResizeListener;
 import java.awt.*;
 import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 
@@ -188,6 +189,11 @@ public class ScrollingSwingTerminal extends JComponent implements IOSafeTerminal
         return swingTerminal.readInput();
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) {
+        return swingTerminal.readInputBatch(keyStrokes, maxKeyStrokes);
+    }
+
     @Override
     public void enterPrivateMode() {
         swingTerminal.enterPrivateMode();
@@ -228,6 +234,16 @@ public class ScrollingSwingTerminal extends JComponent implements IOSafeTerminal
         swingTerminal.putCharacter(c);
     }
 
+    @Override
+    public void putString(CharSequence string) {
+        swingTerminal.putString(string);
+    }
+
+    @Override
+    public void putCharacters(char[] characters, int offset, int length) {
+        swingTerminal.putCharacters(characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return swingTerminal.newTextGraphics();
@@ -29,6 +29,7 @@ import com.googlecode.lanterna.terminal.TerminalResizeListener;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -235,6 +236,16 @@ public class SwingTerminal extends JComponent implements IOSafeTerminal {
         terminalImplementation.putCharacter(c);
     }
 
+    @Override
+    public void putString(CharSequence string) {
+        terminalImplementation.putString(string);
+    }
+
+    @Override
+    public void putCharacters(char[] characters, int offset, int length) {
+        terminalImplementation.putCharacters(characters, offset, length);
+    }
+
     @Override
     public void enableSGR(SGR sgr) {
         terminalImplementation.enableSGR(sgr);
@@ -295,6 +306,11 @@ public class SwingTerminal extends JComponent implements IOSafeTerminal {
         return terminalImplementation.readInput();
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) {
+        return terminalImplementation.readInputBatch(keyStrokes, maxKeyStrokes);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return terminalImplementation.newTextGraphics();
@@ -31,6 +31,7 @@ import com.googlecode.lanterna.terminal.TerminalResizeListener;
 import java.awt.*;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import javax.swing.*;
@@ -195,6 +196,24 @@ public class SwingTerminalFrame extends JFrame implements IOSafeTerminal {
         return swingTerminal.readInput();
     }
 
+    @Override
+    public int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) {
+        // Go through pollInput() so that the auto-close triggers see every key stroke
+        int count = 0;
+        while(count < maxKeyStrokes) {
+            KeyStroke keyStroke = pollInput();
+            if(keyStroke == null) {
+                break;
+            }
+            keyStrokes.add(keyStroke);
+            count++;
+            if(keyStroke.getKeyType() == KeyType.EOF) {
+                break;
+            }
+        }
+        return count;
+    }
+
     @Override
     public void enterPrivateMode() {
         swingTerminal.enterPrivateMode();
@@ -238,6 +257,16 @@ public class SwingTerminalFrame extends JFrame implements IOSafeTerminal {
         swingTerminal.putCharacter(c);
     }
 
+    @Override
+    public void putString(CharSequence string) {
+        swingTerminal.putString(string);
+    }
+
+    @Override
+    public void putCharacters(char[] characters, int offset, int length) {
+        swingTerminal.putCharacters(characters, offset, length);
+    }
+
     @Override
     public TextGraphics newTextGraphics() {
         return swingTerminal.newTextGraphics();
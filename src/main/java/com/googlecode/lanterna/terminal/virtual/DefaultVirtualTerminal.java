@@ -172,6 +172,20 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
         }
     }
 
+    @Override
+    public synchronized void putString(CharSequence string) {
+        for(int i = 0; i < string.length(); i++) {
+            putCharacter(string.charAt(i));
+        }
+    }
+
+    @Override
+    public synchronized void putCharacters(char[] characters, int offset, int length) {
+        for(int i = offset; i < offset + length; i++) {
+            putCharacter(characters[i]);
+        }
+    }
+
     @Override
     public synchronized void enableSGR(SGR sgr) {
         activeModifiers.add(sgr);
@@ -230,6 +244,11 @@ public class DefaultVirtualTerminal extends AbstractTerminal implements VirtualT
         return inputQueue.poll();
     }
 
+    @Override
+    public synchronized int readInputBatch(List<KeyStroke> keyStrokes, int maxKeyStrokes) {
+        return inputQueue.drainTo(keyStrokes, maxKeyStrokes);
+    }
+
     @Override
     public synchronized KeyStroke readInput() {
         try {
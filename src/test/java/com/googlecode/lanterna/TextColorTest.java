@@ -0,0 +1,48 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TextColorTest {
+    @Test
+    public void indexedColorsAreLookedUpFromRGB() {
+        assertEquals(16, TextColor.Indexed.fromRGB(0, 0, 0).getColorIndex());
+        assertEquals(196, TextColor.Indexed.fromRGB(255, 0, 0).getColorIndex());
+        assertEquals(231, TextColor.Indexed.fromRGB(255, 255, 255).getColorIndex());
+        assertEquals(67, TextColor.Indexed.fromRGB(0x5f, 0x87, 0xaf).getColorIndex());
+        assertEquals(243, TextColor.Indexed.fromRGB(118, 118, 118).getColorIndex());
+        assertSame(TextColor.Indexed.fromRGB(255, 0, 0), TextColor.Indexed.fromRGB(250, 1, 2));
+    }
+
+    @Test
+    public void ansiColorsAreLookedUpFromRGB() {
+        assertEquals(TextColor.ANSI.BLACK, TextColor.ANSI.fromRGB(10, 10, 10));
+        assertEquals(TextColor.ANSI.RED, TextColor.ANSI.fromRGB(255, 0, 0));
+        assertEquals(TextColor.ANSI.BLUE, TextColor.ANSI.fromRGB(0, 0, 255));
+        assertEquals(TextColor.ANSI.WHITE, TextColor.ANSI.fromRGB(200, 200, 200));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rgbOutsideOfRangeIsRejected() {
+        TextColor.Indexed.fromRGB(0, 256, 0);
+    }
+}
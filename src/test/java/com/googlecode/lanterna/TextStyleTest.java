@@ -0,0 +1,80 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna;
+
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.screen.ScreenBuffer;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.Assert.*;
+
+public class TextStyleTest {
+    @Test
+    public void equalStylesAreInterned() {
+        TextStyle style = TextStyle.of(TextColor.ANSI.RED, new TextColor.RGB(10, 20, 30), SGR.BOLD, SGR.UNDERLINE);
+        assertSame(style, TextStyle.of(TextColor.ANSI.RED, new TextColor.RGB(10, 20, 30), EnumSet.of(SGR.UNDERLINE, SGR.BOLD)));
+        assertSame(TextStyle.DEFAULT, TextStyle.of(null, null));
+        assertSame(style, style.withForegroundColor(TextColor.ANSI.RED));
+        assertNotSame(style, style.withBackgroundColor(TextColor.ANSI.RED));
+
+        TextStyle indexed = TextStyle.of(new TextColor.Indexed(1), TextColor.ANSI.RED, 0);
+        assertSame(indexed, TextStyle.of(new TextColor.Indexed(1), TextColor.ANSI.RED, 0));
+        assertNotSame(indexed, TextStyle.of(TextColor.ANSI.RED, new TextColor.Indexed(1), 0));
+        assertNotSame(indexed, TextStyle.of(TextColor.ANSI.RED, TextColor.ANSI.RED, 0));
+        assertEquals(new TextColor.Indexed(1), indexed.getForegroundColor());
+    }
+
+    @Test
+    public void modifierMaskMatchesModifiers() {
+        TextStyle style = TextStyle.of(TextColor.ANSI.DEFAULT, TextColor.ANSI.DEFAULT, SGR.ITALIC, SGR.BLINK);
+        assertEquals(TextStyle.maskOf(SGR.ITALIC) | TextStyle.maskOf(SGR.BLINK), style.getModifierMask());
+        assertEquals(EnumSet.of(SGR.ITALIC, SGR.BLINK), style.getModifiers());
+        assertTrue(style.hasModifier(SGR.BLINK));
+        assertFalse(style.hasModifier(SGR.BOLD));
+    }
+
+    @Test
+    public void printableCharactersAreCached() {
+        TextCharacter character = TextCharacter.of('x', TextColor.ANSI.GREEN, TextColor.ANSI.BLACK, SGR.BOLD);
+        assertSame(character, TextCharacter.of('x', TextColor.ANSI.GREEN, TextColor.ANSI.BLACK, SGR.BOLD));
+        assertSame(character, character.withoutModifier(SGR.BOLD).withModifier(SGR.BOLD));
+        assertEquals(new TextCharacter('x', TextColor.ANSI.GREEN, TextColor.ANSI.BLACK, SGR.BOLD), character);
+        assertEquals(new TextCharacter('x', TextColor.ANSI.GREEN, TextColor.ANSI.BLACK, SGR.BOLD).hashCode(), character.hashCode());
+        assertEquals(new TextCharacter('å', TextColor.ANSI.GREEN, TextColor.ANSI.BLACK, SGR.BOLD),
+                TextCharacter.of('å', TextColor.ANSI.GREEN, TextColor.ANSI.BLACK, SGR.BOLD));
+    }
+
+    @Test
+    public void textGraphicsSharesStyleBetweenCharacters() {
+        ScreenBuffer buffer = new ScreenBuffer(new TerminalSize(10, 2), TextCharacter.DEFAULT_CHARACTER);
+        TextGraphics textGraphics = buffer.newTextGraphics();
+        textGraphics.setForegroundColor(TextColor.ANSI.CYAN);
+        textGraphics.enableModifiers(SGR.REVERSE);
+        textGraphics.putString(0, 0, "abc");
+        assertSame(buffer.getCharacterAt(0, 0).getStyle(), buffer.getCharacterAt(2, 0).getStyle());
+        assertTrue(buffer.getCharacterAt(1, 0).isReversed());
+
+        textGraphics.disableModifiers(SGR.REVERSE);
+        textGraphics.putString(0, 1, "abc");
+        assertFalse(buffer.getCharacterAt(1, 1).isReversed());
+        assertEquals(TextColor.ANSI.CYAN, buffer.getCharacterAt(1, 1).getForegroundColor());
+    }
+}
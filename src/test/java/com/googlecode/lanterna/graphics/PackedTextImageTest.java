@@ -0,0 +1,155 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.graphics;
+
+import com.googlecode.lanterna.*;
+import org.junit.Test;
+
+import java.awt.Color;
+
+import static org.junit.Assert.*;
+
+public class PackedTextImageTest {
+    private static final TerminalSize SIZE = new TerminalSize(8, 4);
+
+    @Test
+    public void charactersAreStoredWithColorsAndModifiers() {
+        PackedTextImage image = new PackedTextImage(SIZE);
+        TextCharacter[] characters = new TextCharacter[] {
+                new TextCharacter('A', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT, SGR.BOLD),
+                new TextCharacter('B', new TextColor.Indexed(200), TextColor.ANSI.BLUE, SGR.ITALIC, SGR.CIRCLED),
+                new TextCharacter('C', new TextColor.RGB(1, 2, 3), new TextColor.RGB(255, 128, 0)),
+        };
+        for(int i = 0; i < characters.length; i++) {
+            image.setCharacterAt(i, 1, characters[i]);
+        }
+        for(int i = 0; i < characters.length; i++) {
+            assertEquals(characters[i], image.getCharacterAt(i, 1));
+        }
+        assertEquals(TextCharacter.DEFAULT_CHARACTER, image.getCharacterAt(0, 0));
+        assertNull(image.getCharacterAt(8, 0));
+        assertEquals('B', image.getCharAt(1, 1));
+    }
+
+    @Test
+    public void copyAndCompareWithBasicTextImage() {
+        BasicTextImage basic = new BasicTextImage(SIZE);
+        basic.newTextGraphics().putString(1, 1, "Hello", SGR.UNDERLINE);
+        PackedTextImage packed = new PackedTextImage(SIZE);
+        basic.copyTo(packed);
+        PackedTextImage other = new PackedTextImage(SIZE);
+        packed.copyTo(other);
+        for(int row = 0; row < SIZE.getRows(); row++) {
+            assertEquals(packed.getRowHash(row), other.getRowHash(row));
+            for(int column = 0; column < SIZE.getColumns(); column++) {
+                assertEquals(basic.getCharacterAt(column, row), packed.getCharacterAt(column, row));
+                assertTrue(packed.cellEquals(column, row, other));
+            }
+        }
+        other.setCharacterAt(2, 1, new TextCharacter('e'));
+        assertFalse(packed.cellEquals(2, 1, other));
+    }
+
+    @Test
+    public void scrollingMovesLinesAndBlanksTheRest() {
+        PackedTextImage image = new PackedTextImage(SIZE);
+        TextGraphics textGraphics = image.newTextGraphics();
+        for(int row = 0; row < SIZE.getRows(); row++) {
+            textGraphics.putString(0, row, "line" + row);
+        }
+        image.scrollLines(0, 3, 1);
+        assertEquals('1', image.getCharAt(4, 0));
+        assertEquals('3', image.getCharAt(4, 2));
+        assertEquals(' ', image.getCharAt(4, 3));
+
+        image.scrollLines(1, 3, -2);
+        assertEquals('1', image.getCharAt(4, 0));
+        assertEquals(' ', image.getCharAt(4, 1));
+        assertEquals(' ', image.getCharAt(4, 2));
+        assertEquals('2', image.getCharAt(4, 3));
+    }
+
+    @Test
+    public void resizeKeepsContent() {
+        PackedTextImage image = new PackedTextImage(SIZE);
+        image.newTextGraphics().putString(0, 0, "ABC");
+        PackedTextImage resized = image.resize(new TerminalSize(2, 2), new TextCharacter('x'));
+        assertEquals(new TerminalSize(2, 2), resized.getSize());
+        assertEquals('B', resized.getCharAt(1, 0));
+        resized = resized.resize(new TerminalSize(3, 3), new TextCharacter('x'));
+        assertEquals('x', resized.getCharAt(2, 0));
+        assertEquals('x', resized.getCharAt(0, 2));
+    }
+
+    @Test
+    public void customColorsAreKeptPerImage() {
+        TextColor first = new CustomColor("first");
+        TextColor second = new CustomColor("second");
+        PackedTextImage image = new PackedTextImage(SIZE);
+        PackedTextImage other = new PackedTextImage(SIZE);
+        // Store the colors in a different order, so that the images number them differently
+        image.setCharacterAt(0, 0, new TextCharacter('a', first, TextColor.ANSI.DEFAULT));
+        image.setCharacterAt(1, 0, new TextCharacter('a', second, TextColor.ANSI.DEFAULT));
+        other.setCharacterAt(1, 0, new TextCharacter('a', second, TextColor.ANSI.DEFAULT));
+        other.setCharacterAt(0, 0, new TextCharacter('a', second, TextColor.ANSI.DEFAULT));
+
+        assertFalse(image.cellEquals(0, 0, other));
+        assertTrue(image.cellEquals(1, 0, other));
+        assertEquals(first, image.getCharacterAt(0, 0).getForegroundColor());
+        assertEquals(second, other.getCharacterAt(0, 0).getForegroundColor());
+
+        image.copyTo(other);
+        assertTrue(image.cellEquals(0, 0, other));
+        assertEquals(first, other.getCharacterAt(0, 0).getForegroundColor());
+        assertEquals(image.getRowHash(0), other.getRowHash(0));
+    }
+
+    private static class CustomColor implements TextColor {
+        private final String name;
+
+        CustomColor(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public byte[] getForegroundSGRSequence() {
+            return "39".getBytes();
+        }
+
+        @Override
+        public byte[] getBackgroundSGRSequence() {
+            return "49".getBytes();
+        }
+
+        @Override
+        public Color toColor() {
+            return Color.WHITE;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CustomColor && name.equals(((CustomColor)obj).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+}
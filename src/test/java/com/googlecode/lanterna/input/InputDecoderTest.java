@@ -0,0 +1,253 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.input;
+
+import com.googlecode.lanterna.TerminalPosition;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InputDecoderTest {
+    @Test
+    public void keysAreDecodedFromMixedInput() throws IOException {
+        InputDecoder decoder = createDecoder("a\u001b[A\u001b[1;5C\u0001\u001bx\u001b\u0002\u001b[[B\u001b[17~\r\u0000\t");
+        assertEquals(new KeyStroke('a', false, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.ArrowUp), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.ArrowRight, true, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('a', true, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('x', false, true), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('b', true, true), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.F2), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.F6), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.Enter), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.Tab), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.EOF), decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void mouseAndCursorReportsAreDecoded() throws IOException {
+        InputDecoder decoder = createDecoder("\u001b[M !#\u001b[12;40R");
+        KeyStroke mouse = decoder.getNextCharacter(false);
+        assertTrue(mouse instanceof MouseAction);
+        assertEquals(MouseActionType.CLICK_DOWN, ((MouseAction)mouse).getActionType());
+        assertEquals(1, ((MouseAction)mouse).getButton());
+        assertEquals(new TerminalPosition(0, 2), ((MouseAction)mouse).getPosition());
+        KeyStroke report = decoder.getNextCharacter(false);
+        assertTrue(report instanceof ScreenInfoAction);
+        assertEquals(new TerminalPosition(40, 12), ((ScreenInfoAction)report).getPosition());
+    }
+
+    @Test
+    public void sgrMouseReportsAreDecoded() throws IOException {
+        InputDecoder decoder = createDecoder("\u001b[<0;300;250M\u001b[<2;300;250m\u001b[<35;1;2M\u001b[<65;4;5M\u001b[<0;1Mx");
+        assertMouseAction(MouseActionType.CLICK_DOWN, 1, new TerminalPosition(299, 249), decoder.getNextCharacter(false));
+        assertMouseAction(MouseActionType.CLICK_RELEASE, 3, new TerminalPosition(299, 249), decoder.getNextCharacter(false));
+        assertMouseAction(MouseActionType.MOVE, 0, new TerminalPosition(0, 1), decoder.getNextCharacter(false));
+        assertMouseAction(MouseActionType.SCROLL_DOWN, 5, new TerminalPosition(3, 4), decoder.getNextCharacter(false));
+        // An incomplete report is not a mouse event
+        assertEquals(new KeyStroke('[', false, true), decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void longestValidMatchIsUsedWhenSequenceBreaks() throws IOException {
+        // There is no key 99, so this falls back to the longest match found on the way, Alt+[
+        InputDecoder decoder = createDecoder("\u001b[99~z");
+        assertEquals(new KeyStroke('[', false, true), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('9', false, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('9', false, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('~', false, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('z', false, false), decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void customPatternsAreStillMatched() throws IOException {
+        InputDecoder decoder = createDecoder("\u001b[Ajk");
+        decoder.addProfile(new KeyDecodingProfile() {
+            @Override
+            public Collection<CharacterPattern> getPatterns() {
+                return Collections.<CharacterPattern>singletonList(new CharacterPattern() {
+                    @Override
+                    public Matching match(List<Character> seq) {
+                        if(seq.size() == 1 && seq.get(0) == 'j') {
+                            return Matching.NOT_YET;
+                        }
+                        if(seq.size() == 2 && seq.get(0) == 'j' && seq.get(1) == 'k') {
+                            return new Matching(new KeyStroke(KeyType.Escape));
+                        }
+                        return null;
+                    }
+                });
+            }
+        });
+        // Patterns added later take precedence, also over the compiled ones
+        decoder.addProfile(new KeyDecodingProfile() {
+            @Override
+            public Collection<CharacterPattern> getPatterns() {
+                return Collections.<CharacterPattern>singletonList(
+                        new BasicCharacterPattern(new KeyStroke(KeyType.PageUp), KeyDecodingProfile.ESC_CODE, '[', 'A'));
+            }
+        });
+        assertEquals(new KeyStroke(KeyType.PageUp), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.Escape), decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void escapeSequenceCompletedBeforeTheDeadlineIsDecoded() throws Exception {
+        PipedReader reader = new PipedReader();
+        final PipedWriter writer = new PipedWriter(reader);
+        InputDecoder decoder = new InputDecoder(reader);
+        decoder.addProfile(new DefaultKeyDecodingProfile());
+        decoder.setTimeout(10, TimeUnit.SECONDS);
+        writer.write(KeyDecodingProfile.ESC_CODE);
+        writer.flush();
+        Thread completer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    writer.write("[A");
+                    writer.flush();
+                }
+                catch(Exception ignore) {
+                }
+            }
+        };
+        long start = System.nanoTime();
+        completer.start();
+        assertEquals(new KeyStroke(KeyType.ArrowUp), decoder.getNextCharacter(false));
+        // Woken up by the input rather than waiting for the whole timeout
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        completer.join();
+        writer.close();
+    }
+
+    @Test
+    public void loneEscapeIsDecodedWhenTheDeadlinePasses() throws IOException {
+        PipedReader reader = new PipedReader();
+        PipedWriter writer = new PipedWriter(reader);
+        InputDecoder decoder = new InputDecoder(reader);
+        decoder.addProfile(new DefaultKeyDecodingProfile());
+        decoder.setTimeout(20, TimeUnit.MILLISECONDS);
+        assertEquals(0, decoder.getTimeoutUnits());
+        assertEquals(20, decoder.getTimeout(TimeUnit.MILLISECONDS));
+        writer.write(KeyDecodingProfile.ESC_CODE);
+        writer.flush();
+        long start = System.nanoTime();
+        assertEquals(new KeyStroke(KeyType.Escape), decoder.getNextCharacter(false));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        writer.close();
+    }
+
+    @Test
+    public void bracketedPasteIsDecodedAsOneEvent() throws IOException {
+        InputDecoder decoder = createDecoder("a\u001b[200~x\u001b[Ay\ry\u001b[201~\u001b[B");
+        assertEquals(new KeyStroke('a', false, false), decoder.getNextCharacter(false));
+        assertEquals(new PasteEvent("x\u001b[Ay\ry"), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.ArrowDown), decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void bracketedPasteIsCollectedAcrossReads() throws IOException {
+        PipedReader reader = new PipedReader();
+        PipedWriter writer = new PipedWriter(reader);
+        InputDecoder decoder = new InputDecoder(reader);
+        decoder.addProfile(new DefaultKeyDecodingProfile());
+        writer.write("\u001b[200~first part\u001b[2");
+        writer.flush();
+        assertNull(decoder.getNextCharacter(false));
+        writer.write("01~b");
+        writer.flush();
+        assertEquals(new PasteEvent("first part"), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('b', false, false), decoder.getNextCharacter(false));
+        writer.close();
+    }
+
+    @Test
+    public void bracketedPasteWithoutEndMarkerIsDeliveredWhenInputGoesIdle() throws IOException, InterruptedException {
+        PipedReader reader = new PipedReader();
+        PipedWriter writer = new PipedWriter(reader);
+        InputDecoder decoder = new InputDecoder(reader);
+        decoder.addProfile(new DefaultKeyDecodingProfile());
+        decoder.setPasteTimeout(20, TimeUnit.MILLISECONDS);
+        writer.write("\u001b[200~lost end");
+        writer.flush();
+        assertNull(decoder.getNextCharacter(false));
+        Thread.sleep(30);
+        assertEquals(new PasteEvent("lost end"), decoder.getNextCharacter(false));
+        writer.write("b");
+        writer.flush();
+        assertEquals(new KeyStroke('b', false, false), decoder.getNextCharacter(false));
+
+        // Blocking reads give up on the end marker the same way
+        writer.write("\u001b[200~lost again");
+        writer.flush();
+        assertEquals(new PasteEvent("lost again"), decoder.getNextCharacter(true));
+        writer.close();
+    }
+
+    @Test
+    public void pastedTextCanBeTypedOutAsKeyStrokes() {
+        List<KeyStroke> keyStrokes = new PasteEvent("a\tb\r\nc\u0007").toKeyStrokes();
+        assertEquals(Arrays.asList(
+                new KeyStroke('a', false, false),
+                new KeyStroke(KeyType.Tab),
+                new KeyStroke('b', false, false),
+                new KeyStroke(KeyType.Enter),
+                new KeyStroke('c', false, false)), keyStrokes);
+    }
+
+    @Test
+    public void longBracketedPasteIsDeliveredInParts() throws IOException {
+        InputDecoder decoder = createDecoder("\u001b[200~abcdefghij\u001b[201~c");
+        decoder.setMaxPasteLength(12);
+        // The start of the end marker is held back until it's clear whether the rest of it follows
+        assertEquals(new PasteEvent("abcdefghij"), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('c', false, false), decoder.getNextCharacter(false));
+
+        decoder = createDecoder("\u001b[200~abcdefghijklmnop\u001b[201~");
+        decoder.setMaxPasteLength(8);
+        assertEquals(new PasteEvent("abcdefgh"), decoder.getNextCharacter(false));
+        assertEquals(new PasteEvent("ijklmnop"), decoder.getNextCharacter(false));
+        assertEquals(KeyType.EOF, decoder.getNextCharacter(false).getKeyType());
+    }
+
+    private static void assertMouseAction(MouseActionType expectedType, int expectedButton, TerminalPosition expectedPosition, KeyStroke keyStroke) {
+        assertTrue(keyStroke instanceof MouseAction);
+        MouseAction mouseAction = (MouseAction)keyStroke;
+        assertEquals(expectedType, mouseAction.getActionType());
+        assertEquals(expectedButton, mouseAction.getButton());
+        assertEquals(expectedPosition, mouseAction.getPosition());
+    }
+
+    private static InputDecoder createDecoder(String input) {
+        InputDecoder decoder = new InputDecoder(new StringReader(input));
+        decoder.addProfile(new DefaultKeyDecodingProfile());
+        return decoder;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+import com.googlecode.lanterna.screen.CursorMovementPlanner.Movement;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DefaultCursorMovementPlannerTest {
+    private final DefaultCursorMovementPlanner planner = new DefaultCursorMovementPlanner();
+
+    @Test
+    public void costsMatchEscapeSequenceLengths() {
+        assertEquals("\u001b[1;1H".length(), DefaultCursorMovementPlanner.getAbsoluteMovementCost(0, 0));
+        assertEquals("\u001b[24;120H".length(), DefaultCursorMovementPlanner.getAbsoluteMovementCost(119, 23));
+        assertEquals("\u001b[C".length(), DefaultCursorMovementPlanner.getRelativeMovementCost(1, 0));
+        assertEquals("\u001b[12D\u001b[A".length(), DefaultCursorMovementPlanner.getRelativeMovementCost(-12, -1));
+    }
+
+    @Test
+    public void shortGapsAreReprinted() {
+        assertEquals(Movement.REPRINT, planner.planMovement(10, 5, 12, 5, 2, true));
+        assertEquals(Movement.REPRINT, planner.planMovement(10, 5, 12, 5, 2, false));
+        assertEquals(Movement.RELATIVE, planner.planMovement(10, 5, 12, 5, 1, true));
+    }
+
+    @Test
+    public void cheapestMovementIsPicked() {
+        assertEquals(Movement.RELATIVE, planner.planMovement(70, 20, 90, 20, 0, true));
+        assertEquals(Movement.ABSOLUTE, planner.planMovement(70, 20, 90, 20, 0, false));
+        assertEquals(Movement.LINE_START, planner.planMovement(70, 20, 0, 21, 0, true));
+        assertEquals(Movement.ABSOLUTE, planner.planMovement(70, 20, 0, 0, 0, true));
+        assertEquals(Movement.RELATIVE, planner.planMovement(1, 0, 3, 0, 0, true));
+    }
+}
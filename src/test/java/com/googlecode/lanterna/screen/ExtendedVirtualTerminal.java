@@ -0,0 +1,208 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.TextStyle;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.terminal.ExtendedTerminal;
+import com.googlecode.lanterna.terminal.MouseCaptureMode;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+
+/**
+ * Virtual terminal which also implements the parts of {@link ExtendedTerminal} that {@link TerminalScreen} makes use of,
+ * so that tests can verify the output of the screen when it takes advantage of them. Counts how many times the
+ * different cursor movements, scrolling, erasing, printing, style changes and frames have been used.
+ */
+class ExtendedVirtualTerminal extends DefaultVirtualTerminal implements ExtendedTerminal {
+    int absoluteMovements;
+    int relativeMovements;
+    int lineStartMovements;
+    int printedCharacters;
+    int printedRuns;
+    int scrolls;
+    int erasures;
+    int repeats;
+    int styleChanges;
+    int frames;
+    int frameDepth;
+
+    ExtendedVirtualTerminal(TerminalSize initialTerminalSize) {
+        super(initialTerminalSize);
+    }
+
+    @Override
+    public synchronized void setCursorPosition(int x, int y) {
+        absoluteMovements++;
+        super.setCursorPosition(x, y);
+    }
+
+    @Override
+    public synchronized void putCharacter(char c) {
+        printedCharacters++;
+        super.putCharacter(c);
+    }
+
+    @Override
+    public synchronized void moveCursorRelative(int columns, int rows) {
+        relativeMovements++;
+        TerminalPosition position = getCursorPosition().withRelative(columns, rows);
+        super.setCursorPosition(
+                Math.max(0, Math.min(getTerminalSize().getColumns() - 1, position.getColumn())),
+                Math.max(0, Math.min(getTerminalSize().getRows() - 1, position.getRow())));
+    }
+
+    @Override
+    public synchronized void moveCursorToLineStart() {
+        lineStartMovements++;
+        super.setCursorPosition(0, getCursorPosition().getRow());
+    }
+
+    @Override
+    public synchronized void eraseCharacters(int count) {
+        erasures++;
+        TerminalPosition position = getCursorPosition();
+        count = Math.min(count, getTerminalSize().getColumns() - position.getColumn());
+        for(int i = 0; i < count; i++) {
+            super.putCharacter(' ');
+        }
+        super.setCursorPosition(position);
+    }
+
+    @Override
+    public synchronized void eraseToEndOfLine() {
+        eraseCharacters(getTerminalSize().getColumns() - getCursorPosition().getColumn());
+    }
+
+    @Override
+    public boolean isBackgroundColorErase() {
+        return true;
+    }
+
+    @Override
+    public synchronized void putCharacters(char[] characters, int offset, int length) {
+        printedRuns++;
+        super.putCharacters(characters, offset, length);
+    }
+
+    @Override
+    public synchronized void putCharacterRepeated(char c, int count) {
+        repeats++;
+        for(int i = 0; i < count; i++) {
+            super.putCharacter(c);
+        }
+    }
+
+    @Override
+    public synchronized void setStyle(TextColor foregroundColor, TextColor backgroundColor, int enabledModifiers, int disabledModifiers) {
+        styleChanges++;
+        if(foregroundColor != null) {
+            super.setForegroundColor(foregroundColor);
+        }
+        if(backgroundColor != null) {
+            super.setBackgroundColor(backgroundColor);
+        }
+        for(SGR sgr: SGR.values()) {
+            if((disabledModifiers & TextStyle.maskOf(sgr)) != 0) {
+                super.disableSGR(sgr);
+            }
+            if((enabledModifiers & TextStyle.maskOf(sgr)) != 0) {
+                super.enableSGR(sgr);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void beginFrame() {
+        frameDepth++;
+        frames++;
+    }
+
+    @Override
+    public synchronized void endFrame() {
+        frameDepth--;
+    }
+
+    @Override
+    public void setTerminalSize(int columns, int rows) {
+        setTerminalSize(new TerminalSize(columns, rows));
+    }
+
+    @Override
+    public synchronized void scrollLines(int firstLine, int lastLine, int distance) {
+        scrolls++;
+        int columns = getTerminalSize().getColumns();
+        TextCharacter[][] lines = new TextCharacter[lastLine - firstLine + 1][columns];
+        for(int row = firstLine; row <= lastLine; row++) {
+            for(int column = 0; column < columns; column++) {
+                lines[row - firstLine][column] = getCharacter(column, row);
+            }
+        }
+        TextGraphics textGraphics = newTextGraphics();
+        for(int row = firstLine; row <= lastLine; row++) {
+            int sourceRow = row + distance;
+            for(int column = 0; column < columns; column++) {
+                TextCharacter character = TextCharacter.DEFAULT_CHARACTER;
+                if(sourceRow >= firstLine && sourceRow <= lastLine) {
+                    character = lines[sourceRow - firstLine][column];
+                }
+                textGraphics.setCharacter(column, row, character);
+                if(character.isDoubleWidth()) {
+                    column++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setTitle(String title) {
+    }
+
+    @Override
+    public void pushTitle() {
+    }
+
+    @Override
+    public void popTitle() {
+    }
+
+    @Override
+    public void iconify() {
+    }
+
+    @Override
+    public void deiconify() {
+    }
+
+    @Override
+    public void maximize() {
+    }
+
+    @Override
+    public void unmaximize() {
+    }
+
+    @Override
+    public void setMouseCaptureMode(MouseCaptureMode mouseCaptureMode) {
+    }
+}
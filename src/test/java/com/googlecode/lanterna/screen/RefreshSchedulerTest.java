@@ -0,0 +1,129 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class RefreshSchedulerTest {
+    @Test
+    public void refreshRequestsAreCoalesced() throws Exception {
+        DefaultVirtualTerminal virtualTerminal = new DefaultVirtualTerminal(new TerminalSize(20, 5));
+        final TerminalScreen screen = new TerminalScreen(virtualTerminal);
+        screen.startScreen();
+        RefreshScheduler scheduler = screen.startRefreshScheduler(20);
+        assertSame(scheduler, screen.getRefreshScheduler());
+
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++) {
+            final int row = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for(int column = 0; column < 20; column++) {
+                        screen.setCharacter(column, row, new TextCharacter((char)('a' + row)));
+                        try {
+                            screen.refresh();
+                        }
+                        catch(IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for(Thread thread: threads) {
+            thread.join();
+        }
+        screen.stopRefreshScheduler();
+        assertNull(screen.getRefreshScheduler());
+        assertFalse(scheduler.isRunning());
+
+        RefreshScheduler.Statistics statistics = scheduler.getStatistics();
+        assertEquals(80, statistics.getRequestCount());
+        assertTrue(statistics.getFrameCount() >= 1);
+        assertTrue(statistics.getFrameCount() < statistics.getRequestCount());
+        assertEquals(statistics.getRequestCount() - statistics.getFrameCount(), statistics.getCoalescedRequestCount());
+        assertNull(scheduler.getLastException());
+
+        for(int row = 0; row < threads.length; row++) {
+            for(int column = 0; column < 20; column++) {
+                assertEquals((char)('a' + row), virtualTerminal.getCharacter(column, row).getCharacter());
+            }
+        }
+    }
+
+    @Test
+    public void refreshIsDirectWhenSchedulerIsStopped() throws IOException {
+        DefaultVirtualTerminal virtualTerminal = new DefaultVirtualTerminal(new TerminalSize(20, 5));
+        TerminalScreen screen = new TerminalScreen(virtualTerminal);
+        screen.startScreen();
+        RefreshScheduler scheduler = screen.startRefreshScheduler(60);
+        screen.stopRefreshScheduler();
+        assertFalse(scheduler.requestRefresh(Screen.RefreshType.DELTA));
+
+        screen.setCharacter(3, 2, new TextCharacter('X'));
+        screen.refresh();
+        assertEquals('X', virtualTerminal.getCharacter(3, 2).getCharacter());
+    }
+
+    @Test
+    public void renderThreadSurvivesExceptionsFromRefresh() throws Exception {
+        DefaultVirtualTerminal virtualTerminal = new DefaultVirtualTerminal(new TerminalSize(20, 5));
+        final boolean[] failNextRefresh = { true };
+        TerminalScreen screen = new TerminalScreen(virtualTerminal) {
+            @Override
+            public void refresh(RefreshType refreshType) throws IOException {
+                if(failNextRefresh[0]) {
+                    failNextRefresh[0] = false;
+                    throw new IllegalStateException("Broken refresh");
+                }
+                super.refresh(refreshType);
+            }
+        };
+        screen.startScreen();
+        RefreshScheduler scheduler = new RefreshScheduler(screen, 100);
+        scheduler.start();
+        assertTrue(scheduler.requestRefresh(Screen.RefreshType.DELTA));
+        waitForFrames(scheduler, 1);
+        assertTrue(scheduler.isRunning());
+        assertTrue(scheduler.getLastException() instanceof IllegalStateException);
+
+        screen.setCharacter(3, 2, new TextCharacter('X'));
+        assertTrue(scheduler.requestRefresh(Screen.RefreshType.DELTA));
+        waitForFrames(scheduler, 2);
+        scheduler.stop();
+        assertEquals('X', virtualTerminal.getCharacter(3, 2).getCharacter());
+    }
+
+    private static void waitForFrames(RefreshScheduler scheduler, long frames) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(scheduler.getStatistics().getFrameCount() < frames && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(frames, scheduler.getStatistics().getFrameCount());
+    }
+}
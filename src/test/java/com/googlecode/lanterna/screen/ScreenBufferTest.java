@@ -0,0 +1,118 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScreenBufferTest {
+    private static final TerminalSize SIZE = new TerminalSize(10, 5);
+
+    @Test
+    public void newBufferHasAllRowsDirty() {
+        ScreenBuffer buffer = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        for(int row = 0; row < SIZE.getRows(); row++) {
+            assertTrue(buffer.isRowDirty(row));
+        }
+        buffer.clearDirtyRows();
+        assertFalse(buffer.hasDirtyRows());
+        assertEquals(-1, buffer.nextDirtyRow(0));
+    }
+
+    @Test
+    public void modificationsMarkRowsDirty() {
+        ScreenBuffer buffer = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        buffer.clearDirtyRows();
+
+        buffer.setCharacterAt(3, 2, new TextCharacter('A'));
+        assertEquals(2, buffer.nextDirtyRow(0));
+        assertEquals(-1, buffer.nextDirtyRow(3));
+
+        buffer.clearDirtyRows();
+        buffer.newTextGraphics().putString(0, 4, "Hello");
+        assertEquals(4, buffer.nextDirtyRow(0));
+
+        buffer.clearDirtyRows();
+        buffer.scrollLines(1, 3, 1);
+        assertFalse(buffer.isRowDirty(0));
+        assertTrue(buffer.isRowDirty(1));
+        assertTrue(buffer.isRowDirty(3));
+        assertFalse(buffer.isRowDirty(4));
+
+        ScreenBuffer other = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        other.clearDirtyRows();
+        buffer.copyTo(other, 0, 2, 0, 10, 1, 0);
+        assertEquals(1, other.nextDirtyRow(0));
+        assertEquals(2, other.nextDirtyRow(2));
+        assertEquals(-1, other.nextDirtyRow(3));
+    }
+
+    @Test
+    public void rowHashFollowsContent() {
+        ScreenBuffer buffer = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        ScreenBuffer other = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        assertEquals(buffer.getRowHash(0), other.getRowHash(0));
+
+        buffer.setCharacterAt(0, 0, new TextCharacter('X', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT));
+        assertTrue(buffer.getRowHash(0) != other.getRowHash(0));
+        assertEquals(buffer.getRowHash(1), other.getRowHash(1));
+
+        buffer.copyTo(other);
+        assertEquals(buffer.getRowHash(0), other.getRowHash(0));
+    }
+
+    @Test
+    public void veryDifferentOnlyCountsDirtyRows() {
+        ScreenBuffer back = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        ScreenBuffer front = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        back.newTextGraphics().putString(0, 1, "0123456789");
+        assertTrue(back.isVeryDifferent(front, 10));
+        assertFalse(back.isVeryDifferent(front, 11));
+
+        back.copyTo(front);
+        back.clearDirtyRows();
+        front.clearDirtyRows();
+        assertFalse(back.isVeryDifferent(front, 1));
+    }
+
+    @Test
+    public void copyDirtyRowsOnlyTouchesDirtyRows() {
+        ScreenBuffer back = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        ScreenBuffer front = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        back.copyDirtyRowsTo(front);
+        back.clearDirtyRows();
+        front.clearDirtyRows();
+
+        // A row that only differs in the front buffer (no longer dirty) must be left alone
+        front.setCharacterAt(0, 0, new TextCharacter('F'));
+        front.clearDirtyRows();
+        back.setCharacterAt(3, 1, new TextCharacter('B', TextColor.ANSI.GREEN, TextColor.ANSI.DEFAULT));
+        back.copyDirtyRowsTo(front);
+
+        assertEquals(back.getCharacterAt(3, 1), front.getCharacterAt(3, 1));
+        assertEquals(back.getRowHash(1), front.getRowHash(1));
+        assertEquals('F', front.getCharacterAt(0, 0).getCharacter());
+        assertTrue(front.isRowDirty(1));
+        assertFalse(front.isRowDirty(0));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScreenChangeSetTest {
+    private static final TerminalSize SIZE = new TerminalSize(20, 6);
+
+    @Test
+    public void spansCoverChangedCellsOnly() {
+        ScreenBuffer back = newSyncedBuffer();
+        ScreenBuffer front = newSyncedBuffer();
+        back.newTextGraphics().putString(2, 1, "abc");
+        back.newTextGraphics().putString(10, 1, "de");
+        back.newTextGraphics().putString(0, 4, "f");
+
+        ScreenChangeSet changeSet = new ScreenChangeSet();
+        changeSet.compute(back, front);
+        assertEquals(3, changeSet.getSpanCount());
+        assertSpan(changeSet, 0, 1, 2, 5);
+        assertSpan(changeSet, 1, 1, 10, 12);
+        assertSpan(changeSet, 2, 4, 0, 1);
+        assertEquals(6, changeSet.getChangedCells());
+        assertFalse(changeSet.isFullRedrawCheaper());
+    }
+
+    @Test
+    public void cleanRowsAreNotCompared() {
+        ScreenBuffer back = newSyncedBuffer();
+        ScreenBuffer front = newSyncedBuffer();
+        // The front buffer differs, but isn't dirty, so the row is assumed to already be up to date
+        front.newTextGraphics().putString(0, 0, "x");
+        front.clearDirtyRows();
+
+        ScreenChangeSet changeSet = new ScreenChangeSet();
+        changeSet.compute(back, front);
+        assertEquals(0, changeSet.getSpanCount());
+    }
+
+    @Test
+    public void fullRedrawIsCheaperWhenContentIsScattered() {
+        ScreenBuffer back = newSyncedBuffer();
+        ScreenBuffer front = newSyncedBuffer();
+        // Every other cell changes from something to a blank, which a full redraw gets for free by clearing the screen
+        TextGraphics frontGraphics = front.newTextGraphics();
+        for(int row = 0; row < SIZE.getRows(); row++) {
+            for(int column = 0; column < SIZE.getColumns(); column += 2) {
+                frontGraphics.setCharacter(column, row, 'x');
+            }
+        }
+
+        ScreenChangeSet changeSet = new ScreenChangeSet();
+        changeSet.compute(back, front);
+        assertEquals(SIZE.getRows() * SIZE.getColumns() / 2, changeSet.getSpanCount());
+        assertTrue(changeSet.isFullRedrawCheaper());
+    }
+
+    @Test
+    public void styleChangesAddToTheDeltaCost() {
+        ScreenBuffer plainBack = newSyncedBuffer();
+        plainBack.newTextGraphics().putString(0, 0, "abcd");
+        ScreenChangeSet plain = new ScreenChangeSet();
+        plain.compute(plainBack, newSyncedBuffer());
+
+        ScreenBuffer styledBack = newSyncedBuffer();
+        TextGraphics graphics = styledBack.newTextGraphics();
+        graphics.putString(0, 0, "ab");
+        graphics.setForegroundColor(TextColor.ANSI.RED);
+        graphics.putString(2, 0, "cd");
+        ScreenChangeSet styled = new ScreenChangeSet();
+        styled.compute(styledBack, newSyncedBuffer());
+
+        assertEquals(plain.getChangedCells(), styled.getChangedCells());
+        // "ESC [ 3 1 m" switching to red
+        assertEquals(plain.getDeltaCost() + 5, styled.getDeltaCost());
+    }
+
+    private static ScreenBuffer newSyncedBuffer() {
+        ScreenBuffer buffer = new ScreenBuffer(SIZE, TextCharacter.DEFAULT_CHARACTER);
+        buffer.clearDirtyRows();
+        return buffer;
+    }
+
+    private static void assertSpan(ScreenChangeSet changeSet, int index, int row, int start, int end) {
+        assertEquals(row, changeSet.getSpanRow(index));
+        assertEquals(start, changeSet.getSpanStart(index));
+        assertEquals(end, changeSet.getSpanEnd(index));
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+import com.googlecode.lanterna.*;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.terminal.OutputBacklogAware;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TerminalScreenRefreshTest {
+    private DefaultVirtualTerminal virtualTerminal;
+    private TerminalScreen screen;
+
+    public TerminalScreenRefreshTest() throws IOException {
+        createScreen(false);
+    }
+
+    private void createScreen(boolean packedBuffers) throws IOException {
+        createScreen(new DefaultVirtualTerminal(new TerminalSize(30, 8)), packedBuffers);
+    }
+
+    private void createScreen(DefaultVirtualTerminal virtualTerminal, boolean packedBuffers) throws IOException {
+        this.virtualTerminal = virtualTerminal;
+        this.screen = new TerminalScreen(virtualTerminal, Screen.DEFAULT_CHARACTER, packedBuffers);
+        this.screen.startScreen();
+    }
+
+    @Test
+    public void completeRefreshDrawsBackBuffer() throws IOException {
+        drawTestPattern();
+        screen.refresh(Screen.RefreshType.COMPLETE);
+        assertTerminalMatchesScreen();
+    }
+
+    @Test
+    public void deltaRefreshWithRunsUpdatesChangedCells() throws IOException {
+        screen.setDeltaRefreshMode(DeltaRefreshMode.RUNS);
+        verifyDeltaRefresh();
+    }
+
+    @Test
+    public void deltaRefreshWithPositionMapUpdatesChangedCells() throws IOException {
+        screen.setDeltaRefreshMode(DeltaRefreshMode.POSITION_MAP);
+        verifyDeltaRefresh();
+    }
+
+    @Test
+    public void deltaRefreshWithPackedBuffersUpdatesChangedCells() throws IOException {
+        createScreen(true);
+        verifyDeltaRefresh();
+    }
+
+    @Test
+    public void deltaRefreshWithCheapestCursorMovementUpdatesChangedCells() throws IOException {
+        ExtendedVirtualTerminal extendedTerminal = new ExtendedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(extendedTerminal, false);
+        verifyDeltaRefresh();
+        assertTrue(extendedTerminal.relativeMovements > 0);
+    }
+
+    @Test
+    public void deltaRefreshWithForcedCursorMovementsUpdatesChangedCells() throws IOException {
+        for(final CursorMovementPlanner.Movement movement: CursorMovementPlanner.Movement.values()) {
+            createScreen(new ExtendedVirtualTerminal(new TerminalSize(30, 8)), false);
+            screen.setCursorMovementPlanner(new CursorMovementPlanner() {
+                @Override
+                public Movement planMovement(int fromColumn, int fromRow, int toColumn, int toRow, int reprintableCells, boolean relativeMovementSupported) {
+                    return movement;
+                }
+            });
+            verifyDeltaRefresh();
+        }
+    }
+
+    @Test
+    public void gapsAreBridgedByReprintingUnchangedCells() throws IOException {
+        ExtendedVirtualTerminal extendedTerminal = new ExtendedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(extendedTerminal, false);
+        TextGraphics textGraphics = screen.newTextGraphics();
+        textGraphics.putString(0, 5, "abcdefghij");
+        screen.refresh(Screen.RefreshType.DELTA);
+
+        textGraphics.putString(2, 5, "C");
+        textGraphics.putString(4, 5, "E");
+        extendedTerminal.absoluteMovements = 0;
+        extendedTerminal.relativeMovements = 0;
+        screen.refresh(Screen.RefreshType.DELTA);
+        assertTerminalMatchesScreen();
+        // One move to the first change, then re-printing 'd' to get to the second change, then moving the cursor back
+        // to where the screen wants it
+        assertEquals(2, extendedTerminal.absoluteMovements + extendedTerminal.relativeMovements);
+    }
+
+    @Test
+    public void contentMovedUpIsScrolledInsteadOfRedrawn() throws IOException {
+        ExtendedVirtualTerminal extendedTerminal = new ExtendedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(extendedTerminal, false);
+        drawLogLines(0);
+        screen.refresh(Screen.RefreshType.COMPLETE);
+
+        extendedTerminal.printedCharacters = 0;
+        drawLogLines(1);
+        screen.refresh(Screen.RefreshType.AUTOMATIC);
+        assertTerminalMatchesScreen();
+        assertEquals(1, extendedTerminal.scrolls);
+        assertEquals("log line 8".length(), extendedTerminal.printedCharacters);
+    }
+
+    @Test
+    public void contentMovedDownIsScrolledInsteadOfRedrawn() throws IOException {
+        ExtendedVirtualTerminal extendedTerminal = new ExtendedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(extendedTerminal, true);
+        drawLogLines(5);
+        screen.refresh(Screen.RefreshType.COMPLETE);
+
+        extendedTerminal.printedCharacters = 0;
+        drawLogLines(3);
+        screen.refresh(Screen.RefreshType.DELTA);
+        assertTerminalMatchesScreen();
+        assertEquals(1, extendedTerminal.scrolls);
+        assertEquals("log line 3log line 4".length(), extendedTerminal.printedCharacters);
+    }
+
+    @Test
+    public void scrollDetectionCanBeDisabled() throws IOException {
+        ExtendedVirtualTerminal extendedTerminal = new ExtendedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(extendedTerminal, false);
+        screen.setScrollDetectionEnabled(false);
+        drawLogLines(0);
+        screen.refresh(Screen.RefreshType.COMPLETE);
+        drawLogLines(1);
+        screen.refresh(Screen.RefreshType.DELTA);
+        assertTerminalMatchesScreen();
+        assertEquals(0, extendedTerminal.scrolls);
+    }
+
+    @Test
+    public void runsOfIdenticalCellsAreErasedOrRepeated() throws IOException {
+        ExtendedVirtualTerminal extendedTerminal = new ExtendedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(extendedTerminal, false);
+        TextGraphics textGraphics = screen.newTextGraphics();
+        textGraphics.setBackgroundColor(TextColor.ANSI.BLUE);
+        textGraphics.fillRectangle(new TerminalPosition(5, 1), new TerminalSize(25, 3), ' ');
+        textGraphics.setForegroundColor(TextColor.ANSI.WHITE);
+        textGraphics.drawLine(6, 2, 25, 2, Symbols.SINGLE_LINE_HORIZONTAL);
+        screen.refresh(Screen.RefreshType.COMPLETE);
+        assertTerminalMatchesScreen();
+        assertTrue(extendedTerminal.erasures > 0);
+        assertTrue(extendedTerminal.repeats > 0);
+
+        textGraphics.setBackgroundColor(TextColor.ANSI.RED);
+        textGraphics.fillRectangle(new TerminalPosition(0, 5), new TerminalSize(20, 2), ' ');
+        textGraphics.setBackgroundColor(TextColor.ANSI.DEFAULT);
+        textGraphics.fillRectangle(new TerminalPosition(8, 1), new TerminalSize(22, 1), ' ');
+        screen.refresh(Screen.RefreshType.DELTA);
+        assertTerminalMatchesScreen();
+    }
+
+    @Test
+    public void eachRefreshIsOneFrame() throws IOException {
+        ExtendedVirtualTerminal extendedTerminal = new ExtendedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(extendedTerminal, false);
+        drawTestPattern();
+        screen.refresh(Screen.RefreshType.COMPLETE);
+        screen.setCharacter(1, 1, new TextCharacter('!'));
+        screen.refresh(Screen.RefreshType.DELTA);
+        assertEquals(2, extendedTerminal.frames);
+        assertEquals(0, extendedTerminal.frameDepth);
+    }
+
+    @Test
+    public void styleChangesAreSentTogether() throws IOException {
+        ExtendedVirtualTerminal extendedTerminal = new ExtendedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(extendedTerminal, false);
+        screen.setCharacter(2, 1, new TextCharacter('X', TextColor.ANSI.RED, TextColor.ANSI.BLUE, SGR.BOLD, SGR.UNDERLINE));
+        screen.setCharacter(3, 1, new TextCharacter('Y', TextColor.ANSI.RED, TextColor.ANSI.BLUE, SGR.BOLD, SGR.UNDERLINE));
+        screen.setCharacter(4, 1, new TextCharacter('Z', TextColor.ANSI.GREEN, TextColor.ANSI.BLUE, SGR.BOLD));
+        screen.refresh(Screen.RefreshType.COMPLETE);
+        assertTerminalMatchesScreen();
+        assertEquals(2, extendedTerminal.styleChanges);
+    }
+
+    @Test
+    public void cellsWithTheSameStyleArePrintedTogether() throws IOException {
+        ExtendedVirtualTerminal extendedTerminal = new ExtendedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(extendedTerminal, false);
+        TextGraphics textGraphics = screen.newTextGraphics();
+        textGraphics.putString(2, 3, "Hello World");
+        textGraphics.setForegroundColor(TextColor.ANSI.GREEN);
+        textGraphics.putString(13, 3, "!!");
+        screen.refresh(Screen.RefreshType.COMPLETE);
+        assertTerminalMatchesScreen();
+        assertEquals(2, extendedTerminal.printedRuns);
+        assertEquals(13, extendedTerminal.printedCharacters);
+    }
+
+    @Test
+    public void refreshesAreSkippedWhileTheTerminalIsBehind() throws IOException {
+        BackloggedVirtualTerminal backloggedTerminal = new BackloggedVirtualTerminal(new TerminalSize(30, 8));
+        createScreen(backloggedTerminal, false);
+        drawTestPattern();
+        screen.refresh(Screen.RefreshType.COMPLETE);
+
+        backloggedTerminal.backlogged = true;
+        screen.newTextGraphics().putString(1, 6, "first");
+        screen.refresh();
+        screen.newTextGraphics().putString(1, 7, "second");
+        screen.refresh();
+        assertEquals(2, screen.getDroppedRefreshCount());
+        assertEquals(' ', virtualTerminal.getCharacter(1, 6).getCharacter());
+
+        // Once the output has been written, a single refresh brings the terminal up to date
+        backloggedTerminal.backlogged = false;
+        int frames = backloggedTerminal.frames;
+        backloggedTerminal.drainedListener.run();
+        assertEquals(frames + 1, backloggedTerminal.frames);
+        assertTerminalMatchesScreen();
+    }
+
+    private void drawLogLines(int firstLine) {
+        TextGraphics textGraphics = screen.newTextGraphics();
+        textGraphics.fill(' ');
+        for(int row = 0; row < screen.getTerminalSize().getRows(); row++) {
+            int line = firstLine + row;
+            textGraphics.setForegroundColor(line % 2 == 0 ? TextColor.ANSI.CYAN : TextColor.ANSI.DEFAULT);
+            textGraphics.putString(0, row, "log line " + line);
+        }
+    }
+
+    private void verifyDeltaRefresh() throws IOException {
+        drawTestPattern();
+        screen.refresh(Screen.RefreshType.COMPLETE);
+
+        TextGraphics textGraphics = screen.newTextGraphics();
+        textGraphics.setForegroundColor(TextColor.ANSI.YELLOW);
+        textGraphics.setBackgroundColor(TextColor.ANSI.BLUE);
+        textGraphics.putString(3, 1, "changed", SGR.BOLD);
+        textGraphics.setForegroundColor(TextColor.ANSI.DEFAULT);
+        textGraphics.setBackgroundColor(TextColor.ANSI.DEFAULT);
+        textGraphics.putString(25, 2, "edge!");
+        textGraphics.putString(0, 7, "last");
+        textGraphics.setCharacter(10, 4, new TextCharacter('X', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT, SGR.REVERSE));
+        screen.refresh(Screen.RefreshType.DELTA);
+        assertTerminalMatchesScreen();
+
+        screen.clear();
+        screen.refresh(Screen.RefreshType.DELTA);
+        assertTerminalMatchesScreen();
+    }
+
+    private void drawTestPattern() {
+        TextGraphics textGraphics = screen.newTextGraphics();
+        textGraphics.setBackgroundColor(TextColor.ANSI.GREEN);
+        textGraphics.fillRectangle(new TerminalPosition(2, 2), new TerminalSize(10, 3), ' ');
+        textGraphics.setForegroundColor(TextColor.ANSI.WHITE);
+        textGraphics.putString(0, 0, "Hello World", SGR.UNDERLINE);
+        textGraphics.setForegroundColor(new TextColor.Indexed(123));
+        textGraphics.putString(4, 3, "こんにちは");
+    }
+
+    private void assertTerminalMatchesScreen() {
+        TerminalSize size = screen.getTerminalSize();
+        for(int row = 0; row < size.getRows(); row++) {
+            for(int column = 0; column < size.getColumns(); column++) {
+                TextCharacter expected = screen.getBackCharacter(column, row);
+                TextCharacter actual = virtualTerminal.getCharacter(column, row);
+                assertEquals("Mismatch at " + column + "x" + row, expected, actual);
+                if(expected.isDoubleWidth()) {
+                    column++;
+                }
+            }
+        }
+    }
+
+    private static class BackloggedVirtualTerminal extends ExtendedVirtualTerminal implements OutputBacklogAware {
+        private boolean backlogged;
+        private Runnable drainedListener;
+
+        BackloggedVirtualTerminal(TerminalSize initialTerminalSize) {
+            super(initialTerminalSize);
+        }
+
+        @Override
+        public boolean isOutputBacklogged() {
+            return backlogged;
+        }
+
+        @Override
+        public void setOutputDrainedListener(Runnable listener) {
+            drainedListener = listener;
+        }
+    }
+}
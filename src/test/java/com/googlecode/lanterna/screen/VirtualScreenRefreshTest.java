@@ -0,0 +1,93 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.screen;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class VirtualScreenRefreshTest {
+    private final ExtendedVirtualTerminal terminal;
+    private final TerminalScreen realScreen;
+    private final VirtualScreen virtualScreen;
+
+    public VirtualScreenRefreshTest() throws IOException {
+        terminal = new ExtendedVirtualTerminal(new TerminalSize(20, 10));
+        realScreen = new TerminalScreen(terminal);
+        virtualScreen = new VirtualScreen(realScreen);
+        virtualScreen.startScreen();
+    }
+
+    @Test
+    public void onlyChangedRowsAreCopiedToTheRealScreen() throws IOException {
+        virtualScreen.newTextGraphics().putString(0, 2, "first");
+        virtualScreen.refresh();
+        assertEquals('f', terminal.getCharacter(0, 2).getCharacter());
+
+        virtualScreen.newTextGraphics().putString(0, 3, "second");
+        int printedBefore = terminal.printedCharacters;
+        virtualScreen.refresh();
+        assertEquals('s', terminal.getCharacter(0, 3).getCharacter());
+        assertEquals("second".length(), terminal.printedCharacters - printedBefore);
+    }
+
+    @Test
+    public void changesMadeDirectlyOnTheRealScreenAreOverwritten() throws IOException {
+        virtualScreen.newTextGraphics().putString(0, 2, "first");
+        virtualScreen.refresh();
+
+        // Modify the real screen directly on a row the virtual screen hasn't touched since the last refresh
+        realScreen.newTextGraphics().putString(0, 5, "real");
+        virtualScreen.refresh();
+        assertEquals(' ', terminal.getCharacter(0, 5).getCharacter());
+        assertEquals('f', terminal.getCharacter(0, 2).getCharacter());
+
+        // Also when the real screen has been refreshed in between
+        realScreen.clear();
+        realScreen.refresh();
+        assertEquals(' ', terminal.getCharacter(0, 2).getCharacter());
+        virtualScreen.refresh();
+        assertEquals('f', terminal.getCharacter(0, 2).getCharacter());
+    }
+
+    @Test
+    public void scrollingTheViewportScrollsTheTerminal() throws IOException {
+        virtualScreen.setMinimumSize(new TerminalSize(20, 30));
+        for(int row = 0; row < 30; row++) {
+            virtualScreen.newTextGraphics().putString(0, row, "row " + row);
+        }
+        virtualScreen.refresh();
+        assertEquals('0', terminal.getCharacter(4, 0).getCharacter());
+
+        int scrollsBefore = terminal.scrolls;
+        int printedBefore = terminal.printedCharacters;
+        terminal.addInput(new KeyStroke(KeyType.ArrowDown, false, true));
+        assertNull(virtualScreen.pollInput());
+        assertEquals(scrollsBefore + 1, terminal.scrolls);
+        assertEquals('1', terminal.getCharacter(4, 0).getCharacter());
+        assertEquals('8', terminal.getCharacter(4, 7).getCharacter());
+        // Only the exposed row and the scrollbar should have been printed, not the whole viewport
+        assertTrue(terminal.printedCharacters - printedBefore < 40);
+    }
+}
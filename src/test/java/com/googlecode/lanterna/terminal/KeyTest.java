@@ -21,6 +21,8 @@ package com.googlecode.lanterna.terminal;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -63,4 +65,18 @@ public class KeyTest {
         assertEquals(KeyType.PageUp, KeyStroke.fromString("<PageUp>").getKeyType());
     }
 
+    @Test
+    public void sharedKeyStrokesAreReused() {
+        assertSame(KeyStroke.of('x', false, true), KeyStroke.of('x', false, true));
+        assertEquals(new KeyStroke('x', false, true), KeyStroke.of('x', false, true));
+        assertNotSame(KeyStroke.of('\u00e5', false, false), KeyStroke.of('\u00e5', false, false));
+        assertEquals(new KeyStroke('\u00e5', false, false), KeyStroke.of('\u00e5', false, false));
+
+        KeyStroke arrow = KeyStroke.of(KeyType.ArrowUp, true, false, true);
+        assertSame(arrow, KeyStroke.of(KeyType.ArrowUp, true, false, true));
+        assertEquals(new KeyStroke(KeyType.ArrowUp, true, false, true), arrow);
+        assertEquals(0, arrow.getEventTime());
+        assertEquals(new Character('\n'), KeyStroke.of(KeyType.Enter).getCharacter());
+    }
+
 }
@@ -0,0 +1,405 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.ansi;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.Symbols;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.TextStyle;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.input.MouseAction;
+import com.googlecode.lanterna.input.MouseActionType;
+import com.googlecode.lanterna.terminal.MouseCaptureMode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ANSITerminalTest {
+    private final CountingOutputStream output = new CountingOutputStream();
+    private final ANSITerminal terminal = new ANSITerminal(
+            new ByteArrayInputStream(new byte[0]),
+            output,
+            Charset.forName("UTF-8")) {};
+
+    @Test
+    public void relativeCursorMovementOmitsDistanceOfOne() throws IOException {
+        terminal.moveCursorRelative(1, -1);
+        terminal.moveCursorRelative(-12, 3);
+        terminal.moveCursorToLineStart();
+        assertOutput("\u001b[A\u001b[C\u001b[3B\u001b[12D\r");
+    }
+
+    @Test
+    public void eraseSequences() throws IOException {
+        terminal.eraseCharacters(1);
+        terminal.eraseCharacters(40);
+        terminal.eraseToEndOfLine();
+        assertOutput("\u001b[X\u001b[40X\u001b[K");
+    }
+
+    @Test
+    public void inputDecoderWaitsBrieflyForTheRestOfEscapeSequencesByDefault() {
+        assertEquals(50, terminal.getInputDecoder().getTimeout(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void repeatedCharactersAreSentOneByOneByDefault() throws IOException {
+        terminal.putCharacterRepeated('-', 10);
+        assertOutput("----------");
+    }
+
+    @Test
+    public void repeatedCharactersUseREPWhenSupported() throws IOException {
+        terminal.setRepeatCharacterSupported(true);
+        terminal.putCharacterRepeated('-', 4);
+        terminal.putCharacterRepeated('=', 10);
+        terminal.putCharacterRepeated('x', 6);
+        assertOutput("----=\u001b[9bx\u001b[5b");
+    }
+
+    @Test
+    public void repeatedMultiByteCharactersAreEncodedOnce() throws IOException {
+        terminal.putCharacterRepeated('\u00e9', 3);
+        terminal.setRepeatCharacterSupported(true);
+        terminal.putCharacterRepeated('\u00e9', 3);
+        terminal.putCharacterRepeated('\u2500', 4);
+        assertOutput("\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u2500\u001b[3b");
+    }
+
+    @Test
+    public void framesAreWrittenAtOnceWithSynchronizedUpdate() throws IOException {
+        terminal.beginFrame();
+        terminal.setCursorPosition(4, 2);
+        terminal.beginFrame();
+        terminal.putCharacter('x');
+        terminal.endFrame();
+        terminal.putCharacter('y');
+        assertEquals(0, output.size());
+        terminal.endFrame();
+        assertEquals(1, output.writes);
+        assertOutput("\u001b[?2026h\u001b[3;5Hxy\u001b[?2026l");
+    }
+
+    @Test
+    public void synchronizedUpdateCanBeDisabled() throws IOException {
+        terminal.setSynchronizedUpdateSupported(false);
+        terminal.beginFrame();
+        terminal.putCharacter('x');
+        terminal.putCharacter('y');
+        terminal.endFrame();
+        assertEquals(1, output.writes);
+        assertOutput("xy");
+    }
+
+    @Test
+    public void styleChangesAreMergedIntoOneSequence() throws IOException {
+        terminal.setStyle(
+                new TextColor.Indexed(123),
+                new TextColor.Indexed(17),
+                TextStyle.maskOf(SGR.BOLD) | TextStyle.maskOf(SGR.UNDERLINE),
+                0);
+        terminal.setStyle(
+                TextColor.ANSI.DEFAULT,
+                null,
+                0,
+                TextStyle.maskOf(SGR.BORDERED) | TextStyle.maskOf(SGR.CIRCLED) | TextStyle.maskOf(SGR.BOLD));
+        terminal.setStyle(null, null, 0, 0);
+        terminal.setForegroundColor(TextColor.ANSI.RED);
+        terminal.setBackgroundColor(new TextColor.Indexed(200));
+        assertOutput("\u001b[1;4;38;5;123;48;5;17m\u001b[22;54;39m\u001b[31m\u001b[48;5;200m");
+    }
+
+    @Test
+    public void colorsAreDownsampledToTheColorMode() throws IOException {
+        assertEquals(ColorMode.TRUE_COLOR, terminal.getColorMode());
+        terminal.setForegroundColor(new TextColor.RGB(1, 2, 3));
+        terminal.setColorMode(ColorMode.INDEXED_256);
+        terminal.setForegroundColor(new TextColor.RGB(255, 0, 0));
+        terminal.setBackgroundColor(new TextColor.Indexed(17));
+        terminal.setColorMode(ColorMode.ANSI);
+        terminal.setForegroundColor(new TextColor.RGB(0, 0, 250));
+        terminal.setBackgroundColor(new TextColor.Indexed(9));
+        terminal.setStyle(new TextColor.Indexed(196), TextColor.ANSI.DEFAULT, 0, 0);
+        assertOutput("\u001b[38;2;1;2;3m\u001b[38;5;196m\u001b[48;5;17m\u001b[34m\u001b[41m\u001b[31;49m");
+    }
+
+    @Test
+    public void stringsAreEncodedTogether() throws IOException {
+        terminal.putString("a\u00e9\u0007\u6f22\ud83d\ude00");
+        terminal.putCharacters("xyz".toCharArray(), 1, 2);
+        terminal.putCharacter('\u00f6');
+        assertOutput("a\u00e9\u6f22\ud83d\ude00yz\u00f6");
+        assertArrayEquals(new byte[] { (byte)0xc3, (byte)0xa9 }, terminal.translateCharacter('\u00e9'));
+    }
+
+    @Test
+    public void lineDrawingCharactersAreTranslatedForOtherCharsets() throws IOException {
+        ByteArrayOutputStream latin1Output = new ByteArrayOutputStream();
+        ANSITerminal latin1Terminal = new ANSITerminal(
+                new ByteArrayInputStream(new byte[0]),
+                latin1Output,
+                Charset.forName("ISO-8859-1")) {};
+        latin1Terminal.putString("a" + Symbols.SINGLE_LINE_HORIZONTAL + "\u00e9");
+        latin1Terminal.flush();
+        assertArrayEquals(new byte[] { 'a', 27, 40, 48, 113, 27, 40, 66, (byte)0xe9 }, latin1Output.toByteArray());
+    }
+
+    @Test
+    public void outputIsBufferedUntilFlushed() throws IOException {
+        terminal.setCursorPosition(79, 23);
+        terminal.enableSGR(SGR.BOLD);
+        terminal.disableSGR(SGR.BORDERED);
+        terminal.resetColorAndSGR();
+        assertEquals(0, output.size());
+        terminal.flush();
+        assertEquals(1, output.writes);
+        assertEquals(1, terminal.getFlushCount());
+        assertEquals(output.size(), terminal.getLastFlushSize());
+        assertOutput("\u001b[24;80H\u001b[1m\u001b[54m\u001b[0m");
+    }
+
+    @Test
+    public void outputIsWrittenWhenThresholdIsReached() throws IOException {
+        terminal.setOutputBufferThreshold(8);
+        terminal.putCharacterRepeated('a', 5);
+        assertEquals(0, output.size());
+        terminal.putCharacterRepeated('b', 5);
+        assertEquals(1, output.writes);
+        assertEquals(10, terminal.getBytesFlushed());
+
+        // Frames are held back regardless of the threshold
+        terminal.setSynchronizedUpdateSupported(false);
+        terminal.beginFrame();
+        terminal.putCharacterRepeated('c', 20);
+        terminal.flush();
+        assertEquals(1, output.writes);
+        terminal.endFrame();
+        assertEquals(2, output.writes);
+        assertEquals(20, terminal.getLastFlushSize());
+        assertOutput("aaaaabbbbbcccccccccccccccccccc");
+    }
+
+    @Test
+    public void outputCanBeWrittenToAChannel() throws IOException {
+        ANSITerminal channelTerminal = new ANSITerminal(
+                new ByteArrayInputStream(new byte[0]),
+                Channels.newChannel(output),
+                Charset.forName("UTF-8")) {};
+        channelTerminal.setForegroundColor(TextColor.ANSI.RED);
+        channelTerminal.putString("h\u00e9j");
+        assertEquals(0, output.size());
+        channelTerminal.setSynchronizedUpdateSupported(false);
+        channelTerminal.beginFrame();
+        for(int i = 0; i < 1000; i++) {
+            channelTerminal.putCharacter('x');
+        }
+        channelTerminal.endFrame();
+        assertEquals(1, channelTerminal.getFlushCount());
+        assertEquals(1009, output.size());
+        assertTrue(new String(output.toByteArray(), "UTF-8").startsWith("\u001b[31mh\u00e9jxxx"));
+    }
+
+    @Test
+    public void asynchronousOutputIsWrittenInTheBackground() throws Exception {
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch releaseWrite = new CountDownLatch(1);
+        final ByteArrayOutputStream slowOutput = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                writeStarted.countDown();
+                try {
+                    releaseWrite.await();
+                }
+                catch(InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.write(b, off, len);
+            }
+        };
+        ANSITerminal asyncTerminal = new ANSITerminal(
+                new ByteArrayInputStream(new byte[0]),
+                slowOutput,
+                Charset.forName("UTF-8")) {};
+        final CountDownLatch drained = new CountDownLatch(1);
+        final String[] listenerThreadName = new String[1];
+        asyncTerminal.setOutputDrainedListener(new Runnable() {
+            @Override
+            public void run() {
+                listenerThreadName[0] = Thread.currentThread().getName();
+                drained.countDown();
+            }
+        });
+        asyncTerminal.startAsynchronousOutput(1024);
+        asyncTerminal.putString("hello");
+        asyncTerminal.flush();
+        assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+        assertEquals(5, asyncTerminal.getOutputBacklog());
+        // The backlog is far below the limit, so it only counts once the threshold is lowered
+        assertFalse(asyncTerminal.isOutputBacklogged());
+        asyncTerminal.setOutputBacklogThreshold(5);
+        assertTrue(asyncTerminal.isOutputBacklogged());
+
+        releaseWrite.countDown();
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        assertFalse("LanternaOutputWriter".equals(listenerThreadName[0]));
+        assertFalse(asyncTerminal.isOutputBacklogged());
+        assertEquals(5, asyncTerminal.getPeakOutputBacklog());
+        asyncTerminal.putString(" world");
+        asyncTerminal.close();
+        assertFalse(asyncTerminal.isAsynchronousOutput());
+        assertEquals("hello world", slowOutput.toString("UTF-8"));
+    }
+
+    @Test
+    public void failedAsynchronousWriteStopsBothThreads() throws Exception {
+        Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+        AsyncOutputWriter writer = new AsyncOutputWriter(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken output");
+            }
+        }, null, 1024);
+        writer.setDrainedListener(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        writer.submit(new byte[] { 'x' });
+        for(Thread thread: Thread.getAllStackTraces().keySet()) {
+            if(!threadsBefore.contains(thread) && thread.getName().startsWith("LanternaOutput")) {
+                thread.join(5000);
+                assertFalse(thread.getName(), thread.isAlive());
+            }
+        }
+        try {
+            writer.submit(new byte[] { 'y' });
+            fail("Submitting after a failed write should throw");
+        }
+        catch(IOException e) {
+            assertEquals("Broken output", e.getMessage());
+        }
+    }
+
+    @Test
+    public void availableInputIsReadInBatches() throws IOException {
+        ANSITerminal inputTerminal = createInputTerminal("ab\u001b[Ac");
+        List<KeyStroke> batch = new ArrayList<KeyStroke>();
+        assertEquals(3, inputTerminal.readInputBatch(batch, 3));
+        assertEquals(1, inputTerminal.readInputBatch(batch, 3));
+        assertEquals(0, inputTerminal.readInputBatch(batch, 3));
+        assertEquals(Arrays.asList(
+                new KeyStroke('a', false, false),
+                new KeyStroke('b', false, false),
+                new KeyStroke(KeyType.ArrowUp),
+                new KeyStroke('c', false, false)), batch);
+    }
+
+    @Test
+    public void mouseMotionIsCoalesced() throws IOException {
+        String moves = "\u001b[MC!!\u001b[MC\"!\u001b[MC#!";
+        String click = "\u001b[M !!";
+        ANSITerminal inputTerminal = createInputTerminal(moves + click + moves);
+        assertMouseAction(MouseActionType.MOVE, 2, inputTerminal.pollInput());
+        assertMouseAction(MouseActionType.CLICK_DOWN, 0, inputTerminal.pollInput());
+        List<KeyStroke> batch = new ArrayList<KeyStroke>();
+        assertEquals(1, inputTerminal.readInputBatch(batch, 10));
+        assertMouseAction(MouseActionType.MOVE, 2, batch.get(0));
+
+        inputTerminal = createInputTerminal(moves);
+        inputTerminal.setCoalescedMouseActions(Collections.<MouseActionType>emptySet());
+        assertMouseAction(MouseActionType.MOVE, 0, inputTerminal.pollInput());
+        assertMouseAction(MouseActionType.MOVE, 1, inputTerminal.pollInput());
+    }
+
+    @Test
+    public void inputReadWhileWaitingForCursorPositionKeepsItsOrder() throws IOException {
+        ANSITerminal inputTerminal = createInputTerminal("\u001b[MC!!\u001b[MC\"!x\u001b[5;10R");
+        assertEquals(new TerminalPosition(9, 4), inputTerminal.getCursorPosition());
+        assertMouseAction(MouseActionType.MOVE, 1, inputTerminal.pollInput());
+        assertEquals(new KeyStroke('x', false, false), inputTerminal.pollInput());
+    }
+
+    @Test
+    public void bracketedPasteModeIsOnlyRequestedWhenEnabled() throws IOException {
+        terminal.enterPrivateMode();
+        terminal.exitPrivateMode();
+        assertFalse(new String(output.toByteArray(), "UTF-8").contains("2004"));
+        terminal.setBracketedPasteMode(true);
+        terminal.enterPrivateMode();
+        assertTrue(new String(output.toByteArray(), "UTF-8").endsWith("\u001b[?1049h\u001b[?2004h"));
+    }
+
+    @Test
+    public void mouseCaptureRequestsTheSGRFormat() throws IOException {
+        terminal.setBracketedPasteMode(false);
+        terminal.setMouseCaptureMode(MouseCaptureMode.CLICK_RELEASE);
+        terminal.enterPrivateMode();
+        assertOutput("\u001b[?1049h\u001b[?1000h\u001b[?1005h\u001b[?1006h");
+    }
+
+    private ANSITerminal createInputTerminal(String input) throws IOException {
+        return new ANSITerminal(
+                new ByteArrayInputStream(input.getBytes("UTF-8")),
+                output,
+                Charset.forName("UTF-8")) {};
+    }
+
+    private static void assertMouseAction(MouseActionType expectedType, int expectedColumn, KeyStroke keyStroke) {
+        assertTrue(keyStroke instanceof MouseAction);
+        assertEquals(expectedType, ((MouseAction)keyStroke).getActionType());
+        assertEquals(expectedColumn, ((MouseAction)keyStroke).getPosition().getColumn());
+    }
+
+    private void assertOutput(String expected) throws IOException {
+        terminal.flush();
+        assertEquals(expected, new String(output.toByteArray(), "UTF-8"));
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+        private int writes;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            writes++;
+            super.write(b);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2017 Martin Berglund
+ */
+package com.googlecode.lanterna.terminal.ansi;
+
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class TelnetTerminalServerTest {
+    @Test
+    public void inputCanBePolledOnConnectionsAcceptedThroughAChannel() throws IOException, InterruptedException {
+        ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+        TelnetTerminalServer server = new TelnetTerminalServer(serverSocketChannel, Charset.forName("UTF-8"));
+        Socket client = new Socket(InetAddress.getByName("127.0.0.1"), serverSocketChannel.socket().getLocalPort());
+        try {
+            TelnetTerminal terminal = server.acceptConnection();
+            client.getOutputStream().write('a');
+            client.getOutputStream().flush();
+
+            KeyStroke keyStroke = null;
+            long deadline = System.currentTimeMillis() + 5000;
+            while(keyStroke == null && System.currentTimeMillis() < deadline) {
+                keyStroke = terminal.pollInput();
+                if(keyStroke == null) {
+                    Thread.sleep(10);
+                }
+            }
+            assertNotNull(keyStroke);
+            assertEquals(KeyType.Character, keyStroke.getKeyType());
+            assertEquals('a', keyStroke.getCharacter().charValue());
+            terminal.close();
+            for(Thread thread: Thread.getAllStackTraces().keySet()) {
+                assertFalse(thread.getName(), thread.getName().startsWith("TelnetTerminal input"));
+            }
+        }
+        finally {
+            client.close();
+            server.close();
+        }
+    }
+}